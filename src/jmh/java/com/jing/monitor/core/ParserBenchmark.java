@@ -0,0 +1,85 @@
+package com.jing.monitor.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.jing.monitor.model.SectionInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response parsing: the streaming parser vs. the JsonNode tree path vs. the original String + tree path.
+ * Payloads are built from the recorded fixture, replicated up to {@code packages} entries.
+ * Run with -prof gc to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"4", "60", "400"})
+    public int packages;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final EnrollmentPackageParser parser = new EnrollmentPackageParser(mapper.getFactory());
+
+    private byte[] packagesBody;
+    private byte[] searchBody;
+
+    @Setup
+    public void setup() throws IOException {
+        JsonNode fixture = mapper.readTree(load("/fixtures/enrollment-packages.json"));
+
+        ArrayNode payload = mapper.createArrayNode();
+        for (int i = 0; i < packages; i++) {
+            ObjectNode copy = fixture.get(i % fixture.size()).deepCopy();
+            copy.put("enrollmentClassNumber", 60000 + i);
+            payload.add(copy);
+        }
+        packagesBody = mapper.writeValueAsBytes(payload);
+        searchBody = load("/fixtures/search-response.json");
+    }
+
+    @Benchmark
+    public List<SectionInfo> streamingBytes() throws IOException {
+        return parser.parse(packagesBody, "004289");
+    }
+
+    @Benchmark
+    public List<SectionInfo> streamingInputStream() throws IOException {
+        return parser.parse(new ByteArrayInputStream(packagesBody), "004289");
+    }
+
+    @Benchmark
+    public List<SectionInfo> tree() throws IOException {
+        return parser.parseTree(mapper.readTree(packagesBody), "004289");
+    }
+
+    // What fetchCourseStatus did originally: body String first, then a full tree
+    @Benchmark
+    public List<SectionInfo> stringThenTree() throws IOException {
+        String body = new String(packagesBody, StandardCharsets.UTF_8);
+        return parser.parseTree(mapper.readTree(body), "004289");
+    }
+
+    @Benchmark
+    public JsonNode searchResponseTree() throws IOException {
+        return mapper.readTree(searchBody);
+    }
+
+    private static byte[] load(String resource) throws IOException {
+        try (InputStream in = ParserBenchmark.class.getResourceAsStream(resource)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.jing.monitor.repository;
+
+import com.jing.monitor.model.HistoryRecord;
+import com.jing.monitor.model.StatusMapping;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of one history append (mmap store under the log's lock), single writer and contended.
+ * Segments are small enough that rolling is part of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatusHistoryLogBenchmark {
+
+    private Path dir;
+    private StatusHistoryLog log;
+    private long timestamp;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("history-bench");
+        log = new StatusHistoryLog(dir.toString(), true, 1_000_000, 1000, 2);
+        log.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        log.stop();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean append() {
+        return log.append(++timestamp, 60035, 4289, StatusMapping.OPEN, StatusMapping.CLOSED,
+                HistoryRecord.Kind.TRANSITION);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean appendContended() {
+        return log.append(System.currentTimeMillis(), 60035, 4289, StatusMapping.OPEN, StatusMapping.CLOSED,
+                HistoryRecord.Kind.TRANSITION);
+    }
+}
@@ -0,0 +1,45 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.model.StatusMapping;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All 12 (previous, current) status pairs, including "never seen" (null), through determineAction.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DetermineActionBenchmark {
+
+    private StatusMapping[] previous;
+    private StatusMapping[] current;
+
+    @Setup
+    public void setup() {
+        StatusMapping[] values = StatusMapping.values();
+        previous = new StatusMapping[(values.length + 1) * values.length];
+        current = new StatusMapping[previous.length];
+        int i = 0;
+        for (int p = -1; p < values.length; p++) {
+            for (StatusMapping c : values) {
+                previous[i] = p < 0 ? null : values[p];
+                current[i] = c;
+                i++;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(12)
+    public void allTransitions(Blackhole bh) {
+        for (int i = 0; i < previous.length; i++) {
+            bh.consume(SchedulerService.determineAction(previous[i], current[i]));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.CourseRefreshCache;
+import com.jing.monitor.core.MonitorMetrics;
+import com.jing.monitor.core.PollPlanner;
+import com.jing.monitor.core.SectionStateTable;
+import com.jing.monitor.core.StatusProbe;
+import com.jing.monitor.core.SubscriptionIndex;
+import com.jing.monitor.model.AlertEvent;
+import com.jing.monitor.model.SectionInfo;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.model.Task;
+import com.jing.monitor.repository.StatusHistoryLog;
+import com.jing.monitor.repository.TaskRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Per-course sync of processSingleCourse (everything after the HTTP fetch) against an in-memory repository.
+ * steady: the payload matches the stored state (the common case, should never reach the repository).
+ * flapping: every section changes status on every call (worst case, full write-through).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SectionSyncBenchmark {
+
+    private static final String COURSE_ID = "004289";
+
+    @Param({"10", "60"})
+    public int sections;
+
+    @Param({"steady", "flapping"})
+    public String scenario;
+
+    private SchedulerService scheduler;
+    private StatusHistoryLog historyLog;
+    private Path historyDir;
+    private List<SectionInfo> closedPayload;
+    private List<SectionInfo> openPayload;
+    private boolean flip;
+
+    @Setup
+    public void setup() throws IOException {
+        // Real mmap log in a temp dir: every sync appends one record per section, like production
+        historyDir = Files.createTempDirectory("history-bench");
+        historyLog = new StatusHistoryLog(historyDir.toString(), true, 1_000_000, 1000, 2);
+        historyLog.start();
+
+        TaskRepository repository = InMemoryTaskRepository.create();
+        closedPayload = new ArrayList<>();
+        openPayload = new ArrayList<>();
+        for (int i = 0; i < sections; i++) {
+            String sectionId = String.valueOf(60000 + i);
+            Task task = new Task("COMP SCI", "577", sectionId, COURSE_ID, StatusMapping.CLOSED);
+            task.setEnabled(i % 2 == 0);
+            repository.save(task);
+            closedPayload.add(new SectionInfo("COMP SCI", "577", sectionId, StatusMapping.CLOSED, COURSE_ID));
+            openPayload.add(new SectionInfo("COMP SCI", "577", sectionId, StatusMapping.OPEN, COURSE_ID));
+        }
+
+        scheduler = new SchedulerService(
+                null,
+                new DiscardingAlertDispatcher(),
+                repository,
+                new TransactionTemplate(new NoOpTransactionManager()),
+                new SectionStateTable(),
+                new PollPlanner(120000, 600000, 3600000, 21600000, 4, 4, ""),
+                new MonitorMetrics(new SimpleMeterRegistry()),
+                new HistoryService(historyLog, 500),
+                new TaskEventStream(4096, 15000, 0),
+                new SubscriptionIndex(),
+                ClusterMembership.standalone(),
+                new StatusProbe(null, null, false, 0, 200),
+                new CourseRefreshCache(0, 16));
+        scheduler.loadSectionStates();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        historyLog.stop();
+        try (Stream<Path> files = Files.walk(historyDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int syncCourse() {
+        if (scenario.equals("flapping")) {
+            flip = !flip;
+            return scheduler.syncCourse(COURSE_ID, flip ? openPayload : closedPayload);
+        }
+        return scheduler.syncCourse(COURSE_ID, closedPayload);
+    }
+
+    static final class DiscardingAlertDispatcher extends AlertDispatcher {
+        DiscardingAlertDispatcher() {
+            super(null, null, 1, 0);
+        }
+
+        @Override
+        public boolean enqueue(AlertEvent alert) {
+            return true;
+        }
+    }
+}
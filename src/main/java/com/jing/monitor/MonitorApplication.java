@@ -4,11 +4,21 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.Map;
+
 @SpringBootApplication
 @EnableScheduling
 public class MonitorApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(MonitorApplication.class, args);
+        SpringApplication app = new SpringApplication(MonitorApplication.class);
+        // Lowest-precedence defaults; application.properties / env / args still win
+        app.setDefaultProperties(Map.of(
+                "management.endpoints.web.exposure.include", "health,info,prometheus",
+                // Fast start: beans are created on first use (pollers are marked @Lazy(false)),
+                // and the JPA EntityManagerFactory is built on a background thread while the rest starts
+                "spring.main.lazy-initialization", "true",
+                "spring.data.jpa.repositories.bootstrap-mode", "deferred"));
+        app.run(args);
     }
-}
\ No newline at end of file
+}
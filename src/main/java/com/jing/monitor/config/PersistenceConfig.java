@@ -0,0 +1,24 @@
+package com.jing.monitor.config;
+
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate defaults for the poller's write pattern (one saveAll per course).
+ * Values set in application.properties (spring.jpa.properties.hibernate.*) still win.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            // Group the UPDATEs of one saveAll into JDBC batches instead of one round trip each.
+            // (Task uses IDENTITY ids, so Hibernate still sends INSERTs for new sections one by one.)
+            properties.putIfAbsent("hibernate.jdbc.batch_size", "50");
+            properties.putIfAbsent("hibernate.order_inserts", "true");
+            properties.putIfAbsent("hibernate.order_updates", "true");
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.jing.monitor.controller;
+
+import com.jing.monitor.common.Result;
+import com.jing.monitor.model.dto.SectionHistoryDto;
+import com.jing.monitor.model.dto.TransitionDto;
+import com.jing.monitor.service.HistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/history")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class HistoryController {
+
+    private final HistoryService historyService;
+
+    // 1. Aggregates of one section (openings, total time OPEN, typical opening hour)
+    @GetMapping("/sections/{sectionId}")
+    public Result<SectionHistoryDto> section(@PathVariable String sectionId) {
+        requireReady();
+        SectionHistoryDto stats = historyService.getSectionStats(sectionId);
+        return stats == null ? Result.error("No history for section " + sectionId) : Result.success(stats);
+    }
+
+    // 2. Transition timeline of one section, newest first
+    @GetMapping("/sections/{sectionId}/timeline")
+    public Result<List<TransitionDto>> timeline(@PathVariable String sectionId,
+                                                @RequestParam(defaultValue = "100") int limit) {
+        requireReady();
+        List<TransitionDto> timeline = historyService.getTimeline(sectionId, Math.max(1, limit));
+        return timeline == null ? Result.error("No history for section " + sectionId) : Result.success(timeline);
+    }
+
+    // 3. Aggregates of every section of a course
+    @GetMapping("/courses/{courseId}")
+    public Result<List<SectionHistoryDto>> course(@PathVariable String courseId) {
+        requireReady();
+        return Result.success(historyService.getCourseStats(courseId));
+    }
+
+    // The aggregates are rebuilt from the log after startup; until then they would undercount
+    private void requireReady() {
+        if (!historyService.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "History is still being rebuilt");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.jing.monitor.controller;
+
+import com.jing.monitor.common.Result;
+import com.jing.monitor.core.CourseCrawler;
+import com.jing.monitor.core.CourseRefreshCache;
+import com.jing.monitor.core.HostRateController;
+import com.jing.monitor.core.SessionPool;
+import com.jing.monitor.model.dto.CrawlerSessionStatsDto;
+import com.jing.monitor.model.dto.FetchCacheStatsDto;
+import com.jing.monitor.model.dto.HostRateStatsDto;
+import com.jing.monitor.model.dto.RecordingDumpDto;
+import com.jing.monitor.model.dto.RefreshCacheStatsDto;
+import com.jing.monitor.model.dto.SearchCacheStatsDto;
+import com.jing.monitor.service.FlightRecorderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class MonitorController {
+
+    private final CourseCrawler crawler;
+    private final HostRateController rateController;
+    private final CourseRefreshCache refreshCache;
+    private final SessionPool sessionPool;
+    private final FlightRecorderService flightRecorder;
+
+    // 1. Conditional fetch hit/miss counters
+    @GetMapping("/fetch-cache")
+    public Result<FetchCacheStatsDto> fetchCache() {
+        return Result.success(crawler.getCacheStats());
+    }
+
+    // 2. Per-host AIMD rate factor and circuit breaker state
+    @GetMapping("/hosts")
+    public Result<List<HostRateStatsDto>> hosts() {
+        return Result.success(rateController.getStats());
+    }
+
+    // 3. Search cache hit/miss/coalesced counters
+    @GetMapping("/search-cache")
+    public Result<SearchCacheStatsDto> searchCache() {
+        return Result.success(crawler.getSearchCacheStats());
+    }
+
+    // 4. Course poll freshness cache: fresh hits, polls, refreshes that joined a poll in flight
+    @GetMapping("/refresh-cache")
+    public Result<RefreshCacheStatsDto> refreshCache() {
+        return Result.success(refreshCache.getStats());
+    }
+
+    // 5. Crawler session pool: health, quarantine, age and cookie names per session
+    @GetMapping("/sessions")
+    public Result<List<CrawlerSessionStatsDto>> sessions() {
+        return Result.success(sessionPool.getStats(System.currentTimeMillis()));
+    }
+
+    // 6. Inject cookies (e.g. {"aws-waf-token": "..."} from browser dev tools) into one session or all of them
+    @PostMapping("/sessions/cookies")
+    public Result<Integer> setCookies(@RequestParam(required = false) Integer sessionId,
+                                      @RequestBody Map<String, String> cookies) {
+        return Result.success(crawler.setCookies(sessionId, cookies));
+    }
+
+    // 7. Dump the always-on flight recording (poller JFR events) to a .jfr file on the server
+    @PostMapping("/recording/dump")
+    public Result<RecordingDumpDto> dumpRecording() {
+        return Result.success(flightRecorder.dump());
+    }
+}
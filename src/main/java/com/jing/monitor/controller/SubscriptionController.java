@@ -0,0 +1,39 @@
+package com.jing.monitor.controller;
+
+import com.jing.monitor.common.Result;
+import com.jing.monitor.model.dto.SubscribeReqDto;
+import com.jing.monitor.model.dto.SubscribeRespDto;
+import com.jing.monitor.model.dto.SubscriptionRespDto;
+import com.jing.monitor.service.SubscriptionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/subscriptions")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class SubscriptionController {
+
+    private final SubscriptionService subscriptionService;
+
+    // 1. Sections one subscriber is watching, with their last known status
+    @GetMapping
+    public Result<List<SubscriptionRespDto>> list(@RequestParam String email) {
+        return Result.success(subscriptionService.getSubscriptions(email));
+    }
+
+    // 2. Subscribe to tracked sections (creates the subscriber on first use)
+    @PostMapping
+    public Result<SubscribeRespDto> subscribe(@RequestBody SubscribeReqDto req) {
+        return Result.success(subscriptionService.subscribe(req));
+    }
+
+    // 3. Unsubscribe from one section
+    @DeleteMapping
+    public Result<Void> unsubscribe(@RequestParam String email, @RequestParam String sectionId) {
+        subscriptionService.unsubscribe(email, sectionId);
+        return Result.success();
+    }
+}
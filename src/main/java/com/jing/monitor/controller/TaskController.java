@@ -2,11 +2,25 @@ package com.jing.monitor.controller;
 
 import com.jing.monitor.common.Result;
 
+import com.jing.monitor.core.CourseFetchResult;
+import com.jing.monitor.model.dto.BulkAddReqDto;
+import com.jing.monitor.model.dto.BulkAddRespDto;
+import com.jing.monitor.model.dto.CourseRefreshRespDto;
+import com.jing.monitor.model.dto.PageRespDto;
 import com.jing.monitor.model.dto.TaskRespDto;
+import com.jing.monitor.service.CourseRefreshService;
+import com.jing.monitor.service.TaskEventStream;
 import com.jing.monitor.service.TaskService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -16,11 +30,19 @@ import java.util.List;
 public class TaskController {
 
     private final TaskService taskService;
+    private final TaskEventStream eventStream;
+    private final CourseRefreshService refreshService;
 
-    // 1. Get All Tasks (List)
+    // 1. Get Tasks (paged; optional filters: enabled, status, course = course id or display name)
     @GetMapping
-    public Result<List<TaskRespDto>> list() {
-        return Result.success(taskService.getAllTasks());
+    public Result<PageRespDto<TaskRespDto>> list(@RequestParam(required = false) Boolean enabled,
+                                                 @RequestParam(required = false) String status,
+                                                 @RequestParam(required = false) String course,
+                                                 @RequestParam(defaultValue = "0") int page,
+                                                 @RequestParam(defaultValue = "50") int size,
+                                                 @RequestParam(defaultValue = "courseDisplayName") String sort,
+                                                 @RequestParam(defaultValue = "asc") String order) {
+        return Result.success(taskService.getTasks(enabled, status, course, page, size, sort, order));
     }
 
     // 2. Toggle Enable/Disable Status (Update)
@@ -42,4 +64,46 @@ public class TaskController {
         taskService.deleteTask(courseDisplayName);
         return Result.success();
     }
+
+    // 5. Add many courses in one request. Runs in the background (searches wait for the request budget):
+    //    202 Accepted with a job id, then GET /bulk/{jobId} (9.) until its status is DONE.
+    @PostMapping("/bulk")
+    public ResponseEntity<Result<BulkAddRespDto>> bulkAdd(@RequestBody BulkAddReqDto req) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(Result.success(taskService.startBulkAdd(req.getCourseNames())));
+    }
+
+    // 6. Live updates (Server-Sent Events): a snapshot, then only deltas
+    // Browsers resume via the Last-Event-ID header; lastEventId is for clients that reconnect by hand.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader,
+                             @RequestParam(required = false) Long lastEventId) {
+        return eventStream.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId,
+                taskService::getAllTasks);
+    }
+
+    // 7. Full dump as CSV, streamed row by row
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"tasks.csv\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(taskService::exportCsv);
+    }
+
+    // 8. Poll one course now (a poll younger than monitor.refresh.freshness-ms is returned instead).
+    //    202 Accepted when the request budget was busy: the last synced statuses, polled again next cycle.
+    @PostMapping("/refresh")
+    public ResponseEntity<Result<CourseRefreshRespDto>> refresh(@RequestParam String courseId) {
+        CourseRefreshRespDto resp = refreshService.refresh(courseId);
+        HttpStatus status = resp.getOutcome().equals(CourseFetchResult.Outcome.DEFERRED.name())
+                ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status).body(Result.success(resp));
+    }
+
+    // 9. Progress of a bulk add: one result per course, PENDING until its search resolves
+    @GetMapping("/bulk/{jobId}")
+    public Result<BulkAddRespDto> bulkAddJob(@PathVariable String jobId) {
+        return Result.success(taskService.getBulkAddJob(jobId));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.jing.monitor.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request when no budget permit was available within the caller's wait limit.
+ */
+public class BudgetTimeoutException extends IOException {
+
+    public BudgetTimeoutException(long maxWaitMs) {
+        super("No request budget within " + maxWaitMs + " ms, request not sent");
+    }
+}
@@ -0,0 +1,13 @@
+package com.jing.monitor.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request while the host's circuit breaker is open.
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String host) {
+        super("Circuit open for " + host + ", request not sent");
+    }
+}
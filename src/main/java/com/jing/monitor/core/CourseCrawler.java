@@ -5,28 +5,57 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.jing.monitor.model.SectionInfo;
-import com.jing.monitor.model.StatusMapping;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
+import com.jing.monitor.model.StateSnapshot;
+import com.jing.monitor.model.dto.FetchCacheStatsDto;
+import com.jing.monitor.model.dto.SearchCacheStatsDto;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Core component responsible for fetching data from the UW-Madison Enrollment API.
  * * Strategy:
- * 1. Uses Jsoup for lightweight HTTP requests.
+ * 1. Sends through a {@link SessionPool} of JDK HttpClients (HTTP/2 with keep-alive connection pooling), each with
+ *    its own cookie jar; polls skip the TCP/TLS handshake and a flagged WAF token only takes out one session.
  * 2. Fetches at the COURSE level (api/search/v1/enrollmentPackages/{term}/{subject}/{courseId}).
- * 3. Returns a list of all sections to reduce API call frequency.
+ * 3. Returns a list of all sections to reduce API call frequency, parsed straight off the response stream.
+ * 4. Every outbound request draws a permit from the shared {@link RequestBudget}.
+ * 5. Polls are conditional (ETag / Last-Modified, else a body fingerprint) so unchanged payloads are never parsed.
+ * 6. WAF / rate-limit responses feed {@link HostRateController} (AIMD, Retry-After, circuit breaker).
+ * 7. Request latency, parse time and WAF blocks are recorded in {@link MonitorMetrics}; every course fetch is also
+ *    a JFR event (see {@link MonitorEvents.CourseFetch}).
+ * 8. Search results are cached per (term, normalized query) and concurrent identical searches share one request.
+ * 9. Validators and session cookies can be exported to and restored from the warm-restart snapshot.
+ * 10. A bulk status probe asks the search API which of many courses have OPEN / WAITLISTED packages (see StatusProbe).
+ * Thread-safe: the sessions and their cookie jars may be used from many polling threads at once.
  */
 @Component
 public class CourseCrawler {
 
+    // Overridable so load tests can point the crawler at a local stand-in server
+    @Value("${uw-api.base-url:https://public.enroll.wisc.edu}")
+    private String baseUrl;
+
     @Value("${uw-api.term-id}")
     private String termId;
 
@@ -36,11 +65,52 @@ public class CourseCrawler {
     @Value("${uw-api.user-agent}")
     private String userAgent;
 
+    // Token-level parsing of enrollmentPackages; set to false to fall back to the JsonNode tree path
+    @Value("${uw-api.streaming-parser:true}")
+    private boolean streamingParser;
+
+    private final RequestBudget budget;
+
+    private final HostRateController rateController;
+
+    // Independent cookie jars and clients; use setCookies() to inject 'aws-waf-token' if WAF blocks the first request
+    private final SessionPool sessions;
+
+    private final MonitorMetrics metrics;
+
     private final ObjectMapper mapper = new ObjectMapper();
 
-    // Persistent cookie store. Note: Will be empty on server restart.
-    // Consider adding a method to inject 'aws-waf-token' externally if WAF blocks the first request.
-    private Map<String, String> cookies = new HashMap<>();
+    private final EnrollmentPackageParser parser = new EnrollmentPackageParser(mapper.getFactory());
+
+    // Per-course cache validators of the last CHANGED payload
+    private record Validators(String etag, String lastModified, long fingerprint) {}
+
+    private final Map<String, Validators> validators = new ConcurrentHashMap<>();
+
+    private final AtomicLong notModifiedHits = new AtomicLong();
+    private final AtomicLong fingerprintHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private record SearchKey(String termId, String query) {}
+
+    private static final int SEARCH_PAGE_SIZE = 50;
+    // A probe that would need more pages gives up (null) rather than answer from a partial set
+    private static final int SEARCH_MAX_PAGES = 20;
+    // Most hits (courses) one status probe reads; StatusProbe keeps its batches within this
+    public static final int MAX_PROBE_HITS = SEARCH_MAX_PAGES * SEARCH_PAGE_SIZE;
+
+    private final SingleFlightCache<SearchKey, JsonNode> searchCache;
+
+    public CourseCrawler(RequestBudget budget, HostRateController rateController, SessionPool sessions,
+                         MonitorMetrics metrics,
+                         @Value("${uw-api.search-cache.max-entries:256}") int searchCacheMaxEntries,
+                         @Value("${uw-api.search-cache.ttl-ms:600000}") long searchCacheTtlMs) {
+        this.budget = budget;
+        this.rateController = rateController;
+        this.sessions = sessions;
+        this.metrics = metrics;
+        this.searchCache = new SingleFlightCache<>(searchCacheMaxEntries, searchCacheTtlMs);
+    }
 
     /**
      * Fetches the real-time status of ALL sections for a specific course ID.
@@ -49,139 +119,452 @@ public class CourseCrawler {
      * @return List of SectionInfo objects, or null if fetch fails.
      */
     public List<SectionInfo> fetchCourseStatus(String courseId) {
+        return fetch(courseId, false, -1).getSections();
+    }
+
+    /**
+     * Conditional variant used by the poller.
+     * Sends If-None-Match / If-Modified-Since when the server gave us validators last time,
+     * and otherwise compares a fingerprint of the body against the previous CHANGED payload.
+     *
+     * @param courseId The 6-digit course identifier (e.g. 004289).
+     * @return CHANGED with parsed sections, UNCHANGED without parsing, or FAILED.
+     */
+    public CourseFetchResult fetchCourseIfChanged(String courseId) {
+        return fetch(courseId, true, -1);
+    }
+
+    /**
+     * Like {@link #fetchCourseIfChanged(String)}, but for callers that must not queue behind the request budget
+     * (e.g. a servlet thread).
+     *
+     * @param maxPermitWaitMs Longest wait for a budget permit; DEFERRED (nothing sent) if none comes sooner.
+     */
+    public CourseFetchResult fetchCourseIfChanged(String courseId, long maxPermitWaitMs) {
+        return fetch(courseId, true, Math.max(0, maxPermitWaitMs));
+    }
+
+    /**
+     * Forgets the validators of one course so its next poll is treated as changed.
+     * Call this whenever the local state for the course may no longer match the last payload.
+     */
+    public void invalidate(String courseId) {
+        validators.remove(courseId);
+    }
+
+    public void invalidateAll() {
+        validators.clear();
+    }
+
+    // ==================== Warm restart ====================
+
+    /**
+     * @return API base url, term and subject; snapshots of another endpoint are not restored.
+     */
+    public String endpointKey() {
+        return baseUrl + "|" + termId + "|" + subjectId;
+    }
+
+    public List<StateSnapshot.Validator> exportValidators() {
+        List<StateSnapshot.Validator> result = new ArrayList<>(validators.size());
+        validators.forEach((courseId, v) ->
+                result.add(new StateSnapshot.Validator(courseId, v.etag(), v.lastModified(), v.fingerprint())));
+        return result;
+    }
+
+    /**
+     * Only valid together with the section states of the same snapshot: a restored validator
+     * tells the poller that the local state already reflects that payload.
+     */
+    public void restoreValidators(List<StateSnapshot.Validator> restored) {
+        for (StateSnapshot.Validator v : restored) {
+            validators.put(v.courseId(), new Validators(v.etag(), v.lastModified(), v.fingerprint()));
+        }
+    }
+
+    public List<StateSnapshot.Cookie> exportCookies(long now) {
+        return sessions.exportCookies(now);
+    }
+
+    /**
+     * Puts unexpired cookies back into the session jars, so the first requests after a restart carry the WAF tokens.
+     *
+     * @return Number of cookies restored.
+     */
+    public int restoreCookies(List<StateSnapshot.Cookie> restored, long now) {
+        return sessions.restoreCookies(restored, URI.create(baseUrl), now);
+    }
+
+    public FetchCacheStatsDto getCacheStats() {
+        FetchCacheStatsDto stats = new FetchCacheStatsDto();
+        stats.setNotModifiedHits(notModifiedHits.get());
+        stats.setFingerprintHits(fingerprintHits.get());
+        stats.setMisses(misses.get());
+        return stats;
+    }
+
+    public SearchCacheStatsDto getSearchCacheStats() {
+        SearchCacheStatsDto stats = new SearchCacheStatsDto();
+        stats.setEntries(searchCache.size());
+        stats.setHits(searchCache.hits());
+        stats.setMisses(searchCache.misses());
+        stats.setCoalesced(searchCache.coalesced());
+        return stats;
+    }
+
+    /**
+     * @param maxPermitWaitMs Longest wait for a budget permit, or -1 to wait as long as it takes.
+     */
+    private CourseFetchResult fetch(String courseId, boolean conditional, long maxPermitWaitMs) {
+        MonitorEvents.CourseFetch event = new MonitorEvents.CourseFetch();
+        event.begin();
+        CourseFetchResult result = fetch(courseId, conditional, maxPermitWaitMs, event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.courseId = courseId;
+            event.conditional = conditional;
+            event.outcome = result.getOutcome().name();
+            event.sections = result.getSections() == null ? 0 : result.getSections().size();
+            event.commit();
+        }
+        return result;
+    }
+
+    private CourseFetchResult fetch(String courseId, boolean conditional, long maxPermitWaitMs,
+                                    MonitorEvents.CourseFetch event) {
         // Construct the GET endpoint for course-level details
-        String url = String.format("https://public.enroll.wisc.edu/api/search/v1/enrollmentPackages/%s/%s/%s",
-                termId, subjectId, courseId);
+        String url = String.format("%s/api/search/v1/enrollmentPackages/%s/%s/%s",
+                baseUrl, termId, subjectId, courseId);
 
         try {
-            Connection conn = Jsoup.connect(url)
-                    .ignoreContentType(true)
-                    .header("User-Agent", userAgent)
-                    .header("Referer", "https://public.enroll.wisc.edu/")
+            HttpRequest.Builder builder = baseRequest(url, Duration.ofSeconds(15))
                     .header("Accept", "application/json, text/plain, */*")
-                    .header("Connection", "keep-alive")
-                    .method(Connection.Method.GET)
-                    .timeout(15000)
-                    .ignoreHttpErrors(true);
+                    .GET();
 
-            if (!cookies.isEmpty()) {
-                conn.cookies(cookies);
+            Validators previous = conditional ? validators.get(courseId) : null;
+            if (previous != null) {
+                if (previous.etag() != null) {
+                    builder.header("If-None-Match", previous.etag());
+                }
+                if (previous.lastModified() != null) {
+                    builder.header("If-Modified-Since", previous.lastModified());
+                }
             }
 
-            Connection.Response response = conn.execute();
-
-            // Refresh cookies (Maintain session)
-            cookies.putAll(response.cookies());
-
+            HttpResponse<InputStream> response = send(builder.build(), maxPermitWaitMs, event);
             int statusCode = response.statusCode();
 
+            if (statusCode == 304 && previous != null) {
+                discard(response);
+                notModifiedHits.incrementAndGet();
+                return CourseFetchResult.unchanged();
+            }
+
             if (statusCode == 200) {
-                String jsonBody = response.body();
-                JsonNode rootNode = mapper.readTree(jsonBody);
-                List<SectionInfo> sectionInfos = new ArrayList<>();
-
-                if (rootNode.isArray()) {
-                    for (JsonNode node : rootNode) {
-                        // Extract Data
-                        String subject = node.path("sections").path(0)
-                                .path("subject").path("shortDescription").asText();
-                        String catalogNumber = node.path("catalogNumber").asText();
-                        String sectionId = node.path("enrollmentClassNumber").asText();
-                        String statusStr = node.path("packageEnrollmentStatus").path("status").asText();
-
-                        StatusMapping status;
-                        try {
-                            status = StatusMapping.valueOf(statusStr);
-                        } catch (Exception e) {
-                            // Fallback for unknown status strings
-                            status = StatusMapping.CLOSED;
-                        }
-
-                        sectionInfos.add(new SectionInfo(subject, catalogNumber, sectionId, status, courseId));
+                byte[] body;
+                try (InputStream in = decodedBody(response)) {
+                    body = in.readAllBytes();
+                }
+                event.bytes = body.length;
+
+                long fingerprint = fingerprint(body);
+                if (previous != null && previous.fingerprint() == fingerprint) {
+                    fingerprintHits.incrementAndGet();
+                    return CourseFetchResult.unchanged();
+                }
+
+                long parseStart = System.nanoTime();
+                List<SectionInfo> sectionInfos = streamingParser
+                        ? parser.parse(body, courseId)
+                        : parser.parseTree(mapper.readTree(body), courseId);
+                event.parseTime = System.nanoTime() - parseStart;
+                metrics.recordParse(event.parseTime);
+
+                if (sectionInfos != null) {
+                    misses.incrementAndGet();
+                    // Only the poller's own fetches: the caller of an unconditional fetch does not sync the
+                    // payload, so remembering it would turn the poller's next fetch of this change into UNCHANGED
+                    if (conditional) {
+                        validators.put(courseId, new Validators(
+                                response.headers().firstValue("ETag").orElse(null),
+                                response.headers().firstValue("Last-Modified").orElse(null),
+                                fingerprint));
                     }
-                    return sectionInfos;
+                    return CourseFetchResult.changed(sectionInfos);
                 }
 
                 System.err.println("⚠️ API 200 OK but returned unexpected format for: " + courseId);
-                return null;
+                return CourseFetchResult.failed();
             }
 
-            // Handle WAF or Rate Limiting
-            if (statusCode == 202 || statusCode == 403 || statusCode == 429) {
-                System.out.println("⏳ API Status " + statusCode + " (Blocked/Rate Limited). Skipping cycle.");
-                return null;
+            // Handle WAF or Rate Limiting (HostRateController has already slowed us down)
+            if (HostRateController.isBlocked(statusCode)) {
+                discard(response);
+                System.out.println("⏳ API Status " + statusCode + " (Blocked/Rate Limited). Skipping course.");
+                return CourseFetchResult.failed();
             }
 
-            System.err.println("❌ API Error: " + statusCode + " | Body: " + response.body());
-            return null;
+            System.err.println("❌ API Error: " + statusCode + " | Body: " + bodyAsString(response));
+            return CourseFetchResult.failed();
 
+        } catch (CircuitOpenException e) {
+            System.out.println("⛔ " + e.getMessage() + " (course " + courseId + ").");
+        } catch (BudgetTimeoutException e) {
+            return CourseFetchResult.deferred();
         } catch (IOException e) {
             System.err.println("⚠️ Network Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
-        return null;
+        return CourseFetchResult.failed();
+    }
+
+    // CRC32C (hardware accelerated) in the high half, body length in the low half
+    private static long fingerprint(byte[] body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return (crc.getValue() << 32) | (body.length & 0xFFFFFFFFL);
     }
 
+    /**
+     * Searches the catalog, e.g. for "COMP SCI 577".
+     * Served from the search cache when possible; the returned tree is shared and must not be modified.
+     *
+     * @return The search response, or null if the request failed (failures are not cached).
+     */
     public JsonNode searchCourse(String userQueryString) {
-        String searchUrl = "https://public.enroll.wisc.edu/api/search/v1";
+        SearchKey key = new SearchKey(termId, normalizeQuery(userQueryString));
+        return searchCache.get(key, k -> search(userQueryString));
+    }
 
-        try {
-            ObjectNode root = mapper.createObjectNode();
-            root.put("selectedTerm", termId);
-            root.put("queryString", userQueryString); // "COMP SCI 571"
-            root.put("page", 1);
-            root.put("pageSize", 50);
-            root.put("sortOrder", "SCORE");
-
-            ArrayNode filters = root.putArray("filters");
-            ObjectNode hasChild = filters.addObject().putObject("has_child");
-            hasChild.put("type", "enrollmentPackage");
-
-            ObjectNode query = hasChild.putObject("query");
-            ObjectNode bool = query.putObject("bool");
-            ArrayNode must = bool.putArray("must");
-
-            // match 1: status
-            must.addObject().putObject("match")
-                    .put("packageEnrollmentStatus.status", "OPEN WAITLISTED CLOSED");
-
-            // match 2: published
-            must.addObject().putObject("match")
-                    .put("published", true);
-
-            // Convert to string and ready to be sent
-            String jsonPayload = mapper.writeValueAsString(root);
-
-            // System.out.println("Generated Payload: " + jsonPayload);
-
-
-            // POST Request
-            Connection.Response response = Jsoup.connect(searchUrl)
-                    .header("Content-Type", "application/json")
-                    .header("User-Agent", userAgent)
-                    .header("Referer", "https://public.enroll.wisc.edu/")
-                    .ignoreContentType(true)
-                    .timeout(10000)
-                    .method(Connection.Method.POST)
-                    .requestBody(jsonPayload)       // Put JSON into request body
-                    .execute();
-
-            // Handle response
-            if (response.statusCode() == 200) {
-                return mapper.readTree(response.body());
-            } else {
-                System.err.println("Search failed: " + response.statusCode());
-                return null;
-            }
+    // "  comp  sci 577 " and "COMP SCI 577" are the same search
+    public static String normalizeQuery(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+    }
 
+    private JsonNode search(String userQueryString) {
+        try {
+            ObjectNode root = searchRequest(userQueryString, "OPEN WAITLISTED CLOSED", 1); // "COMP SCI 571"
+            return postSearch(root);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
             System.err.println("Network error during search: " + e.getMessage());
             return null;
         }
     }
 
-    // Helper method to manually inject cookies (e.g. from browser dev tools) if needed
+    /**
+     * Bulk probe: one paged search restricted to the given courses and to packages that are OPEN or WAITLISTED.
+     * A course missing from the result has no open or waitlisted section (as far as the search index knows).
+     * Not cached: every call goes to the API.
+     *
+     * @return Ids of the given courses that have at least one OPEN / WAITLISTED package, or null if any page failed
+     * or the result has more than {@link #MAX_PROBE_HITS} hits (a course missing from a partial set may have seats).
+     */
+    public Set<String> findCoursesWithSeats(Collection<String> courseIds) {
+        Set<String> found = new HashSet<>();
+        boolean complete = false;
+        try {
+            for (int page = 1; page <= SEARCH_MAX_PAGES && !complete; page++) {
+                ObjectNode root = searchRequest("*", "OPEN WAITLISTED", page);
+                ArrayNode ids = root.withArray("filters").addObject().putObject("terms").putArray("courseId");
+                courseIds.forEach(ids::add);
+
+                JsonNode result = postSearch(root);
+                if (result == null) {
+                    return null;
+                }
+                JsonNode hits = result.path("hits");
+                for (JsonNode hit : hits) {
+                    found.add(hit.path("courseId").asText());
+                }
+                complete = hits.size() < SEARCH_PAGE_SIZE || page * SEARCH_PAGE_SIZE >= result.path("found").asInt();
+            }
+        } catch (CircuitOpenException e) {
+            System.out.println("⛔ " + e.getMessage() + " (status probe).");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            System.err.println("Network error during status probe: " + e.getMessage());
+            return null;
+        }
+        if (!complete) {
+            System.err.println("[Probe] More than " + MAX_PROBE_HITS + " hits for " + courseIds.size()
+                    + " courses; fetching them instead.");
+            return null;
+        }
+        // Only courses that were asked about; the index may return others if it ignores the filter
+        found.retainAll(new HashSet<>(courseIds));
+        return found;
+    }
+
+    private ObjectNode searchRequest(String queryString, String statuses, int page) {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("selectedTerm", termId);
+        root.put("queryString", queryString);
+        root.put("page", page);
+        root.put("pageSize", SEARCH_PAGE_SIZE);
+        root.put("sortOrder", "SCORE");
+
+        ArrayNode filters = root.putArray("filters");
+        ObjectNode hasChild = filters.addObject().putObject("has_child");
+        hasChild.put("type", "enrollmentPackage");
+
+        ObjectNode query = hasChild.putObject("query");
+        ObjectNode bool = query.putObject("bool");
+        ArrayNode must = bool.putArray("must");
+
+        // match 1: status
+        must.addObject().putObject("match")
+                .put("packageEnrollmentStatus.status", statuses);
+
+        // match 2: published
+        must.addObject().putObject("match")
+                .put("published", true);
+        return root;
+    }
+
+    /**
+     * @return The parsed response, or null for a non-200 status.
+     */
+    private JsonNode postSearch(ObjectNode root) throws IOException, InterruptedException {
+        // Convert to bytes and ready to be sent
+        byte[] jsonPayload = mapper.writeValueAsBytes(root);
+
+        // POST Request
+        HttpRequest request = baseRequest(baseUrl + "/api/search/v1", Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonPayload))   // Put JSON into request body
+                .build();
+
+        HttpResponse<InputStream> response = send(request, -1, null);
+
+        // Handle response
+        if (response.statusCode() == 200) {
+            try (InputStream body = decodedBody(response)) {
+                return mapper.readTree(body);
+            }
+        }
+        discard(response);
+        System.err.println("Search failed: " + response.statusCode());
+        return null;
+    }
+
+    // Helper method to manually inject cookies (e.g. from browser dev tools) into every session
     public void setCookies(Map<String, String> newCookies) {
-        this.cookies.putAll(newCookies);
+        setCookies(null, newCookies);
+    }
+
+    /**
+     * @param sessionId Target session, or null for every session.
+     * @return Number of sessions that got the cookies.
+     */
+    public int setCookies(Integer sessionId, Map<String, String> newCookies) {
+        return sessions.setCookies(sessionId, newCookies, URI.create(baseUrl));
+    }
+
+    private HttpRequest.Builder baseRequest(String url, Duration timeout) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("User-Agent", userAgent)
+                .header("Referer", baseUrl + "/")
+                .header("Accept-Encoding", "gzip");
+    }
+
+    /**
+     * Waits for a budget permit, sends the request and logs how long the round trip took.
+     * The host's rate controller may reject the request (open circuit) or push it past a Retry-After pause.
+     * The request goes out through the next session of the pool, which also hears about the response.
+     *
+     * @param maxPermitWaitMs Longest total wait for a permit, or -1 to wait as long as it takes.
+     * @param event           Receives the queue and response times, status and session; null if not traced.
+     * @throws BudgetTimeoutException if no permit came within maxPermitWaitMs.
+     */
+    private HttpResponse<InputStream> send(HttpRequest request, long maxPermitWaitMs,
+                                           MonitorEvents.CourseFetch event)
+            throws IOException, InterruptedException {
+        long queueStart = System.nanoTime();
+        String host = request.uri().getHost();
+        if (rateController.isRejecting(host)) {
+            throw new CircuitOpenException(host);
+        }
+
+        HostRateController.Admission admission;
+        do {
+            if (maxPermitWaitMs < 0) {
+                budget.acquire();
+            } else {
+                long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queueStart);
+                if (!budget.tryAcquire(maxPermitWaitMs - waitedMs)) {
+                    throw new BudgetTimeoutException(maxPermitWaitMs);
+                }
+            }
+            admission = rateController.admit(host);
+        } while (admission == HostRateController.Admission.RETRY_LATER);
+        if (admission == HostRateController.Admission.REJECT) {
+            throw new CircuitOpenException(host);
+        }
+
+        SessionPool.Lease lease = sessions.acquire(System.currentTimeMillis());
+        long start = System.nanoTime();
+        if (event != null) {
+            event.queueTime = start - queueStart;
+            event.session = lease.id();
+        }
+        HttpResponse<InputStream> response;
+        try {
+            response = lease.client().send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException | InterruptedException e) {
+            rateController.onError(host);
+            if (e instanceof IOException) {
+                metrics.recordFetch(-1, System.nanoTime() - start);
+            }
+            throw e;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long elapsedMs = elapsedNanos / 1_000_000;
+
+        int statusCode = response.statusCode();
+        if (event != null) {
+            event.responseTime = elapsedNanos;
+            event.statusCode = statusCode;
+        }
+        metrics.recordFetch(statusCode, elapsedNanos);
+        if (HostRateController.isBlocked(statusCode)) {
+            metrics.countWafBlock(statusCode);
+        }
+        rateController.onResponse(host, statusCode,
+                response.headers().firstValue("Retry-After").orElse(null));
+        sessions.onResponse(lease, statusCode, System.currentTimeMillis());
+
+        System.out.println("[Crawler] " + request.method() + " " + request.uri().getPath()
+                + " -> " + statusCode + " (" + response.version() + ", session " + lease.id() + ", " + elapsedMs + " ms)");
+        return response;
+    }
+
+    // The JDK client does not decompress on its own, so undo the gzip we asked for
+    private InputStream decodedBody(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(enc -> enc.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        return gzip ? new GZIPInputStream(response.body()) : response.body();
+    }
+
+    private String bodyAsString(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream body = decodedBody(response)) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Drain and close an unused body so the pooled connection can be reused
+    private void discard(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream body = response.body()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
     }
-}
\ No newline at end of file
+}
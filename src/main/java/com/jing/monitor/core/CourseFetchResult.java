@@ -0,0 +1,55 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.SectionInfo;
+
+import java.util.List;
+
+/**
+ * Outcome of a conditional course fetch.
+ * UNCHANGED means the server (304) or our body fingerprint says nothing moved since the last CHANGED result,
+ * so callers can skip parsing and DB synchronization entirely.
+ * DEFERRED means no request was sent because the budget had no permit within the caller's wait limit.
+ */
+public final class CourseFetchResult {
+
+    public enum Outcome { CHANGED, UNCHANGED, FAILED, DEFERRED }
+
+    private static final CourseFetchResult UNCHANGED = new CourseFetchResult(Outcome.UNCHANGED, null);
+    private static final CourseFetchResult FAILED = new CourseFetchResult(Outcome.FAILED, null);
+    private static final CourseFetchResult DEFERRED = new CourseFetchResult(Outcome.DEFERRED, null);
+
+    private final Outcome outcome;
+    private final List<SectionInfo> sections;
+
+    private CourseFetchResult(Outcome outcome, List<SectionInfo> sections) {
+        this.outcome = outcome;
+        this.sections = sections;
+    }
+
+    public static CourseFetchResult changed(List<SectionInfo> sections) {
+        return new CourseFetchResult(Outcome.CHANGED, sections);
+    }
+
+    public static CourseFetchResult unchanged() {
+        return UNCHANGED;
+    }
+
+    public static CourseFetchResult failed() {
+        return FAILED;
+    }
+
+    public static CourseFetchResult deferred() {
+        return DEFERRED;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return Parsed sections for CHANGED results, null otherwise.
+     */
+    public List<SectionInfo> getSections() {
+        return sections;
+    }
+}
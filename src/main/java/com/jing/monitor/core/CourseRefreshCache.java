@@ -0,0 +1,103 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.dto.RefreshCacheStatsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Freshness cache in front of the per-course poll, shared by the scheduler and on-demand refreshes.
+ * * Strategy:
+ * 1. A poll younger than freshness-ms is returned as is; nobody fetches the course again in that window.
+ * 2. Concurrent refreshes of one course (users hitting refresh, the scheduler reaching it) join the poll
+ *    already in flight and share its result (see {@link SingleFlightCache}).
+ * 3. Failed polls (network error, WAF block) and deferred ones (no budget permit in time) are never cached,
+ *    so the next caller tries again.
+ * 4. The last completed poll of each course is kept past its freshness, so a deferred refresh can still say
+ *    how old the state it returns is.
+ * 5. A caller with a deadline waits at most that long for a poll in flight; a cycle's poll may be queued behind
+ *    the request budget for minutes. Past the deadline the caller gets DEFERRED and the poll goes on.
+ * A refresh rush therefore costs at most one request per course per freshness window.
+ */
+@Component
+public class CourseRefreshCache {
+
+    /**
+     * @param outcome     CHANGED (parsed and synced), UNCHANGED, or DEFERRED (nothing fetched yet).
+     * @param fetchedAt   When the poll finished (epoch ms).
+     * @param transitions Status transitions the poll wrote.
+     */
+    public record Refresh(String courseId, CourseFetchResult.Outcome outcome, long fetchedAt, int transitions) {}
+
+    private final SingleFlightCache<String, Refresh> cache;
+
+    // Last completed poll per course, regardless of age. Access-ordered LRU, guarded by itself.
+    private final Map<String, Refresh> lastPolls;
+
+    public CourseRefreshCache(@Value("${monitor.refresh.freshness-ms:30000}") long freshnessMs,
+                              @Value("${monitor.refresh.max-entries:4096}") int maxEntries) {
+        this.cache = new SingleFlightCache<>(maxEntries, freshnessMs);
+        int maxPolls = Math.max(1, maxEntries);
+        this.lastPolls = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Refresh> eldest) {
+                return size() > maxPolls;
+            }
+        };
+    }
+
+    /**
+     * Returns a fresh poll of the course, joins the one in flight, or runs the poll on the calling thread.
+     *
+     * @param poll Polls the course; returns null if the poll failed.
+     * @return The shared poll result, or null if it failed.
+     */
+    public Refresh get(String courseId, Function<String, Refresh> poll) {
+        return get(courseId, poll, -1);
+    }
+
+    /**
+     * @param maxJoinWaitMs Longest wait for a poll already in flight, or -1 to wait as long as it takes.
+     * @return As {@link #get(String, Function)}; DEFERRED if the poll in flight did not finish in time.
+     */
+    public Refresh get(String courseId, Function<String, Refresh> poll, long maxJoinWaitMs) {
+        return cache.get(courseId, id -> {
+            Refresh refresh = poll.apply(id);
+            if (refresh != null && refresh.outcome() != CourseFetchResult.Outcome.DEFERRED) {
+                synchronized (lastPolls) {
+                    lastPolls.put(id, refresh);
+                }
+            }
+            return refresh;
+        }, refresh -> refresh.outcome() != CourseFetchResult.Outcome.DEFERRED, maxJoinWaitMs,
+                id -> new Refresh(id, CourseFetchResult.Outcome.DEFERRED, System.currentTimeMillis(), 0));
+    }
+
+    /**
+     * @return The last completed poll of the course, however old, or null if there was none.
+     */
+    public Refresh lastPoll(String courseId) {
+        synchronized (lastPolls) {
+            return lastPolls.get(courseId);
+        }
+    }
+
+    public void invalidate(String courseId) {
+        cache.invalidate(courseId);
+        synchronized (lastPolls) {
+            lastPolls.remove(courseId);
+        }
+    }
+
+    public RefreshCacheStatsDto getStats() {
+        RefreshCacheStatsDto stats = new RefreshCacheStatsDto();
+        stats.setEntries(cache.size());
+        stats.setHits(cache.hits());
+        stats.setMisses(cache.misses());
+        stats.setCoalesced(cache.coalesced());
+        return stats;
+    }
+}
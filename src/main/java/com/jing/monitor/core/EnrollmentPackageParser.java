@@ -0,0 +1,182 @@
+package com.jing.monitor.core;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jing.monitor.model.SectionInfo;
+import com.jing.monitor.model.StatusMapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns an enrollmentPackages response into SectionInfo objects.
+ * * Two paths with identical output:
+ * 1. Streaming (default): walks the token stream once and keeps only the four fields we need,
+ *    skipping every other subtree without building it. No body String, no JsonNode tree.
+ * 2. Tree: the original JsonNode based extraction, kept as a fallback (uw-api.streaming-parser=false).
+ */
+public class EnrollmentPackageParser {
+
+    private final JsonFactory factory;
+
+    public EnrollmentPackageParser(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Streaming path.
+     *
+     * @return Sections in response order, or null if the root is not a JSON array.
+     */
+    public List<SectionInfo> parse(InputStream in, String courseId) throws IOException {
+        try (JsonParser p = factory.createParser(in)) {
+            return parse(p, courseId);
+        }
+    }
+
+    public List<SectionInfo> parse(byte[] body, String courseId) throws IOException {
+        try (JsonParser p = factory.createParser(body)) {
+            return parse(p, courseId);
+        }
+    }
+
+    private List<SectionInfo> parse(JsonParser p, String courseId) throws IOException {
+        if (p.nextToken() != JsonToken.START_ARRAY) {
+            return null;
+        }
+
+        List<SectionInfo> sectionInfos = new ArrayList<>();
+        JsonToken token;
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.START_OBJECT) {
+                sectionInfos.add(readPackage(p, courseId));
+            } else {
+                // Not a package object; the tree path would yield an all-empty section for it too
+                p.skipChildren();
+                sectionInfos.add(new SectionInfo("", "", "", StatusMapping.CLOSED, courseId));
+            }
+        }
+        return sectionInfos;
+    }
+
+    // Positioned on START_OBJECT of one package; returns positioned on its END_OBJECT
+    private SectionInfo readPackage(JsonParser p, String courseId) throws IOException {
+        String subject = "";
+        String catalogNumber = "";
+        String sectionId = "";
+        String statusStr = "";
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "catalogNumber" -> catalogNumber = scalarText(p, value);
+                case "enrollmentClassNumber" -> sectionId = scalarText(p, value);
+                case "packageEnrollmentStatus" -> statusStr = readNestedText(p, value, "status");
+                case "sections" -> subject = readFirstSectionSubject(p, value);
+                default -> p.skipChildren();
+            }
+        }
+
+        return new SectionInfo(subject, catalogNumber, sectionId, toStatus(statusStr), courseId);
+    }
+
+    // sections[0].subject.shortDescription
+    private String readFirstSectionSubject(JsonParser p, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return "";
+        }
+
+        String subject = "";
+        JsonToken token = p.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken fieldValue = p.nextToken();
+                if (field.equals("subject")) {
+                    subject = readNestedText(p, fieldValue, "shortDescription");
+                } else {
+                    p.skipChildren();
+                }
+            }
+            token = p.nextToken();
+        }
+
+        // Skip the remaining sections
+        while (token != JsonToken.END_ARRAY && token != null) {
+            p.skipChildren();
+            token = p.nextToken();
+        }
+        return subject;
+    }
+
+    // Reads object.{name} as text; returns positioned on the END_OBJECT (or the scalar) of the value
+    private String readNestedText(JsonParser p, JsonToken value, String name) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return "";
+        }
+
+        String text = "";
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken fieldValue = p.nextToken();
+            if (field.equals(name)) {
+                text = scalarText(p, fieldValue);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return text;
+    }
+
+    // Mirrors JsonNode.asText(): scalars as text, containers as "", null as "null"
+    private String scalarText(JsonParser p, JsonToken value) throws IOException {
+        if (value.isStructStart()) {
+            p.skipChildren();
+            return "";
+        }
+        if (value == JsonToken.VALUE_NULL) {
+            return "null";
+        }
+        return p.getValueAsString("");
+    }
+
+    /**
+     * Tree path: the original JsonNode based extraction.
+     *
+     * @return Sections in response order, or null if the root is not a JSON array.
+     */
+    public List<SectionInfo> parseTree(JsonNode rootNode, String courseId) {
+        if (!rootNode.isArray()) {
+            return null;
+        }
+
+        List<SectionInfo> sectionInfos = new ArrayList<>();
+        for (JsonNode node : rootNode) {
+            // Extract Data
+            String subject = node.path("sections").path(0)
+                    .path("subject").path("shortDescription").asText();
+            String catalogNumber = node.path("catalogNumber").asText();
+            String sectionId = node.path("enrollmentClassNumber").asText();
+            String statusStr = node.path("packageEnrollmentStatus").path("status").asText();
+
+            sectionInfos.add(new SectionInfo(subject, catalogNumber, sectionId, toStatus(statusStr), courseId));
+        }
+        return sectionInfos;
+    }
+
+    private static StatusMapping toStatus(String statusStr) {
+        try {
+            return StatusMapping.valueOf(statusStr);
+        } catch (Exception e) {
+            // Fallback for unknown status strings
+            return StatusMapping.CLOSED;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.dto.HostRateStatsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-host reaction to WAF / rate-limit responses (202, 403, 429, 503).
+ * * Strategy:
+ * 1. AIMD: every block halves the RequestBudget rate (down to a floor); every success adds a small step back.
+ * 2. Retry-After: the budget is paused until the server says we may come back.
+ * 3. Circuit breaker: after N consecutive blocks the host is OPEN and requests fail fast for a cooldown.
+ *    Then exactly one probe request is let through (HALF_OPEN); success closes the circuit,
+ *    another block re-opens it with a doubled cooldown.
+ */
+@Component
+public class HostRateController {
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    public enum Admission { PROCEED, RETRY_LATER, REJECT }
+
+    private final RequestBudget budget;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long maxOpenNanos;
+    private final double minRateFactor;
+    private final double increaseStep;
+
+    private static final class HostState {
+        CircuitState circuit = CircuitState.CLOSED;
+        int consecutiveBlocks;
+        long openUntilNanos;
+        long currentOpenNanos;
+        long pausedUntilNanos;
+        boolean probeInFlight;
+        double rateFactor = 1.0;
+        long totalBlocks;
+    }
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public HostRateController(RequestBudget budget,
+                              @Value("${monitor.circuit.failure-threshold:3}") int failureThreshold,
+                              @Value("${monitor.circuit.open-ms:600000}") long openMs,
+                              @Value("${monitor.circuit.max-open-ms:3600000}") long maxOpenMs,
+                              @Value("${monitor.budget.min-rate-factor:0.125}") double minRateFactor,
+                              @Value("${monitor.budget.increase-step:0.05}") double increaseStep) {
+        this.budget = budget;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.maxOpenNanos = Math.max(openNanos, TimeUnit.MILLISECONDS.toNanos(maxOpenMs));
+        this.minRateFactor = Math.min(1, Math.max(0.01, minRateFactor));
+        this.increaseStep = increaseStep;
+    }
+
+    /**
+     * Cheap pre-check so callers do not queue for a budget permit they could never use.
+     */
+    public boolean isRejecting(String host) {
+        HostState state = hosts.get(host);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            return (state.circuit == CircuitState.OPEN && System.nanoTime() < state.openUntilNanos)
+                    || (state.circuit == CircuitState.HALF_OPEN && state.probeInFlight);
+        }
+    }
+
+    /**
+     * Called after a budget permit was obtained, right before the request goes out.
+     *
+     * @return PROCEED to send; RETRY_LATER if a Retry-After pause started while the caller was queued
+     *         (take another budget permit, which lands after the pause); REJECT if the circuit is open.
+     */
+    public Admission admit(String host) {
+        HostState state = hosts.computeIfAbsent(host, h -> new HostState());
+        synchronized (state) {
+            long now = System.nanoTime();
+            switch (state.circuit) {
+                case OPEN -> {
+                    if (now < state.openUntilNanos) {
+                        return Admission.REJECT;
+                    }
+                    // Cooldown over: this caller becomes the single probe
+                    state.circuit = CircuitState.HALF_OPEN;
+                    state.probeInFlight = true;
+                    System.out.println("[RateControl] " + host + " circuit HALF_OPEN, sending probe.");
+                    return Admission.PROCEED;
+                }
+                case HALF_OPEN -> {
+                    if (state.probeInFlight) {
+                        return Admission.REJECT;
+                    }
+                    state.probeInFlight = true;
+                    return Admission.PROCEED;
+                }
+                default -> {
+                    return now < state.pausedUntilNanos ? Admission.RETRY_LATER : Admission.PROCEED;
+                }
+            }
+        }
+    }
+
+    /**
+     * Feeds the HTTP outcome back into the controller.
+     *
+     * @param retryAfter Raw Retry-After header value (delta seconds or HTTP-date), may be null.
+     */
+    public void onResponse(String host, int statusCode, String retryAfter) {
+        HostState state = hosts.computeIfAbsent(host, h -> new HostState());
+        synchronized (state) {
+            state.probeInFlight = false;
+            if (isBlocked(statusCode)) {
+                onBlocked(host, state, statusCode, retryAfter);
+            } else if (statusCode < 500) {
+                onSuccess(host, state);
+            }
+        }
+    }
+
+    /**
+     * Network error or interruption: not a WAF signal, but a pending probe must be released.
+     */
+    public void onError(String host) {
+        HostState state = hosts.get(host);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.circuit == CircuitState.HALF_OPEN && state.probeInFlight) {
+                // Inconclusive probe: stay half-open so the next caller probes again
+                state.probeInFlight = false;
+            }
+        }
+    }
+
+    public static boolean isBlocked(int statusCode) {
+        return statusCode == 202 || statusCode == 403 || statusCode == 429 || statusCode == 503;
+    }
+
+    public List<HostRateStatsDto> getStats() {
+        List<HostRateStatsDto> stats = new ArrayList<>();
+        long now = System.nanoTime();
+        hosts.forEach((host, state) -> {
+            synchronized (state) {
+                HostRateStatsDto dto = new HostRateStatsDto();
+                dto.setHost(host);
+                dto.setCircuitState(state.circuit.name());
+                dto.setRateFactor(state.rateFactor);
+                dto.setConsecutiveBlocks(state.consecutiveBlocks);
+                dto.setTotalBlocks(state.totalBlocks);
+                dto.setOpenForMs(state.circuit == CircuitState.OPEN
+                        ? Math.max(0, TimeUnit.NANOSECONDS.toMillis(state.openUntilNanos - now)) : 0);
+                stats.add(dto);
+            }
+        });
+        return stats;
+    }
+
+    // Caller holds the state lock
+    private void onSuccess(String host, HostState state) {
+        if (state.circuit != CircuitState.CLOSED) {
+            System.out.println("[RateControl] " + host + " probe succeeded, circuit CLOSED.");
+        }
+        state.circuit = CircuitState.CLOSED;
+        state.consecutiveBlocks = 0;
+        state.currentOpenNanos = 0;
+
+        // Additive increase
+        if (state.rateFactor < 1.0) {
+            state.rateFactor = Math.min(1.0, state.rateFactor + increaseStep);
+            budget.setRateFactor(state.rateFactor);
+        }
+    }
+
+    // Caller holds the state lock
+    private void onBlocked(String host, HostState state, int statusCode, String retryAfter) {
+        long now = System.nanoTime();
+        state.consecutiveBlocks++;
+        state.totalBlocks++;
+
+        // Multiplicative decrease
+        state.rateFactor = Math.max(minRateFactor, state.rateFactor / 2);
+        budget.setRateFactor(state.rateFactor);
+
+        long retryAfterNanos = parseRetryAfter(retryAfter);
+        if (retryAfterNanos > 0) {
+            state.pausedUntilNanos = Math.max(state.pausedUntilNanos, now + retryAfterNanos);
+            budget.pauseUntil(state.pausedUntilNanos);
+        }
+
+        if (state.circuit == CircuitState.HALF_OPEN || state.consecutiveBlocks >= failureThreshold) {
+            state.currentOpenNanos = state.currentOpenNanos == 0
+                    ? openNanos : Math.min(maxOpenNanos, state.currentOpenNanos * 2);
+            state.circuit = CircuitState.OPEN;
+            state.openUntilNanos = now + Math.max(state.currentOpenNanos, retryAfterNanos);
+            System.out.println("[RateControl] " + host + " circuit OPEN for "
+                    + TimeUnit.NANOSECONDS.toSeconds(state.openUntilNanos - now) + " s after HTTP " + statusCode
+                    + " (" + state.consecutiveBlocks + " consecutive blocks).");
+        } else {
+            System.out.println("[RateControl] " + host + " blocked (HTTP " + statusCode + "), rate now "
+                    + Math.round(state.rateFactor * 100) + "% of budget.");
+        }
+    }
+
+    static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException ignored) {
+            // Not delta-seconds; try HTTP-date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toNanos());
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
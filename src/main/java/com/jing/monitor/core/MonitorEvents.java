@@ -0,0 +1,133 @@
+package com.jing.monitor.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of the monitoring pipeline, recorded by FlightRecorderService (see jfr/monitor.jfc).
+ * * Events (the event duration is the whole operation):
+ * 1. com.jing.monitor.PollCycle: one scheduler cycle, probe to last course.
+ * 2. com.jing.monitor.CourseProcess: one course of a cycle or refresh, fetch plus sync.
+ * 3. com.jing.monitor.CourseFetch: one enrollmentPackages request, split into budget wait, HTTP wait and parse.
+ * 4. com.jing.monitor.MailSend: one digest hand-off to SMTP.
+ * Nested in a CourseProcess on the same virtual thread, a CourseFetch shows whether a slow course waited on the
+ * budget, the API or the DB; JDK socket events in between (see the .jfc) attribute MySQL and SMTP time.
+ * While no recording is running, begin / commit reduce to a disabled check.
+ */
+public final class MonitorEvents {
+
+    private MonitorEvents() {}
+
+    @Name("com.jing.monitor.PollCycle")
+    @Label("Poll Cycle")
+    @Category({"Course Monitor", "Poller"})
+    @StackTrace(false)
+    public static final class PollCycle extends Event {
+        @Label("Tracked Courses")
+        public int trackedCourses;
+
+        @Label("Due Courses")
+        public int dueCourses;
+
+        @Label("Probe Skipped")
+        @Description("Due courses the bulk status probe showed unchanged")
+        public int probeSkipped;
+
+        @Label("Fetched Courses")
+        public int fetchedCourses;
+    }
+
+    @Name("com.jing.monitor.CourseProcess")
+    @Label("Course Process")
+    @Category({"Course Monitor", "Poller"})
+    @StackTrace(false)
+    public static final class CourseProcess extends Event {
+        @Label("Course Id")
+        public String courseId;
+
+        @Label("Outcome")
+        @Description("CHANGED, UNCHANGED, FAILED, DEFERRED (no budget permit within the wait; polled next cycle) or ERROR")
+        public String outcome;
+
+        @Label("Sections")
+        public int sections;
+
+        @Label("Transitions")
+        public int transitions;
+
+        @Label("Sync Time")
+        @Description("State diff, DB transaction and history append of a CHANGED payload")
+        @Timespan(Timespan.NANOSECONDS)
+        public long syncTime;
+    }
+
+    @Name("com.jing.monitor.CourseFetch")
+    @Label("Course Fetch")
+    @Category({"Course Monitor", "Crawler"})
+    @StackTrace(false)
+    public static final class CourseFetch extends Event {
+        @Label("Course Id")
+        public String courseId;
+
+        @Label("Conditional")
+        public boolean conditional;
+
+        @Label("Outcome")
+        @Description("CHANGED, UNCHANGED, FAILED or DEFERRED (no budget permit within the wait; nothing was sent)")
+        public String outcome;
+
+        @Label("Status Code")
+        @Description("HTTP status, 0 if no response arrived")
+        public int statusCode;
+
+        @Label("Session")
+        @Description("Crawler session the request went out on")
+        public int session;
+
+        @Label("Bytes")
+        @Description("Decoded body size of a 200 response")
+        @DataAmount
+        public long bytes;
+
+        @Label("Sections")
+        public int sections;
+
+        @Label("Queue Time")
+        @Description("Waiting for a request budget permit and the host rate controller")
+        @Timespan(Timespan.NANOSECONDS)
+        public long queueTime;
+
+        @Label("Response Time")
+        @Description("Connect (or pooled connection), request and wait for the response headers")
+        @Timespan(Timespan.NANOSECONDS)
+        public long responseTime;
+
+        @Label("Parse Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long parseTime;
+    }
+
+    @Name("com.jing.monitor.MailSend")
+    @Label("Mail Send")
+    @Category({"Course Monitor", "Alerts"})
+    @StackTrace(false)
+    public static final class MailSend extends Event {
+        @Label("Alerts")
+        public int alerts;
+
+        @Label("Recipients")
+        public int recipients;
+
+        @Label("Messages")
+        public int messages;
+
+        @Label("Success")
+        public boolean success;
+    }
+}
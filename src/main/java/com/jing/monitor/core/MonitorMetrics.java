@@ -0,0 +1,151 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.StatusMapping;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instruments for the monitoring pipeline, scraped at /actuator/prometheus.
+ * * Timers (all with percentile histograms, so Prometheus can aggregate quantiles across instances):
+ * 1. monitor.fetch.latency{status}: HTTP round trip per request, by status code ("error" for I/O failures).
+ * 2. monitor.parse.time: enrollmentPackages parsing of a CHANGED payload.
+ * 3. monitor.sync.time: the per-course DB transaction (only courses that actually changed).
+ * 4. monitor.cycle.duration: one full polling cycle, first fetch to last sync.
+ * 5. monitor.alert.send{outcome}: one digest hand-off to SMTP; monitor.alert.delivery: detection to email sent.
+ * * Counters: monitor.transitions{from,to}, monitor.waf.blocks{status} and monitor.probe.skipped.
+ * Hot-path meters are created up front or cached, so recording is a map lookup at most.
+ */
+@Component
+public class MonitorMetrics {
+
+    private static final StatusMapping[] STATUSES = StatusMapping.values();
+
+    private final MeterRegistry registry;
+
+    private final Timer parseTimer;
+    private final Timer syncTimer;
+    private final Timer cycleTimer;
+    private final Timer alertSendSuccess;
+    private final Timer alertSendFailure;
+    private final Timer alertDelivery;
+    private final Counter probeSkips;
+
+    private final Map<String, Timer> fetchTimers = new ConcurrentHashMap<>();
+    private final Map<Integer, Counter> wafBlocks = new ConcurrentHashMap<>();
+    // [from ordinal + 1 (0 = no previous status)][to ordinal]
+    private final Counter[][] transitions;
+
+    public MonitorMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.parseTimer = timer("monitor.parse.time", "Parsing of a changed enrollmentPackages payload",
+                Duration.ofMillis(1), Duration.ofSeconds(1));
+        this.syncTimer = timer("monitor.sync.time", "Per-course DB sync transaction",
+                Duration.ofMillis(1), Duration.ofSeconds(10));
+        this.cycleTimer = timer("monitor.cycle.duration", "One full polling cycle",
+                Duration.ofSeconds(1), Duration.ofHours(2));
+        this.alertSendSuccess = alertSendTimer("success");
+        this.alertSendFailure = alertSendTimer("failure");
+        this.alertDelivery = timer("monitor.alert.delivery", "Seat detection to email sent",
+                Duration.ofSeconds(1), Duration.ofMinutes(30));
+        this.probeSkips = Counter.builder("monitor.probe.skipped")
+                .description("Course fetches saved by the bulk status probe")
+                .register(registry);
+
+        this.transitions = new Counter[STATUSES.length + 1][STATUSES.length];
+        for (int from = 0; from <= STATUSES.length; from++) {
+            for (StatusMapping to : STATUSES) {
+                transitions[from][to.ordinal()] = Counter.builder("monitor.transitions")
+                        .description("Section status transitions")
+                        .tag("from", from == 0 ? "UNKNOWN" : STATUSES[from - 1].name())
+                        .tag("to", to.name())
+                        .register(registry);
+            }
+        }
+    }
+
+    // ==================== Crawler ====================
+
+    /**
+     * @param statusCode HTTP status, or -1 if the request failed with an I/O error.
+     */
+    public void recordFetch(int statusCode, long nanos) {
+        String status = statusCode < 0 ? "error" : String.valueOf(statusCode);
+        fetchTimers.computeIfAbsent(status, s -> Timer.builder("monitor.fetch.latency")
+                        .description("HTTP round trip to the enrollment API")
+                        .tag("status", s)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(10))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordParse(long nanos) {
+        parseTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countWafBlock(int statusCode) {
+        wafBlocks.computeIfAbsent(statusCode, code -> Counter.builder("monitor.waf.blocks")
+                        .description("WAF / rate-limit responses")
+                        .tag("status", String.valueOf(code))
+                        .register(registry))
+                .increment();
+    }
+
+    public void countProbeSkips(int courses) {
+        probeSkips.increment(courses);
+    }
+
+    // ==================== Scheduler ====================
+
+    public void recordSync(long nanos) {
+        syncTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCycle(long nanos) {
+        cycleTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param from Previous status, or null for a new section / a status never observed before.
+     */
+    public void countTransition(StatusMapping from, StatusMapping to) {
+        transitions[from == null ? 0 : from.ordinal() + 1][to.ordinal()].increment();
+    }
+
+    // ==================== Alerts ====================
+
+    public void recordAlertSend(boolean success, long nanos) {
+        (success ? alertSendSuccess : alertSendFailure).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAlertDelivery(long millis) {
+        alertDelivery.record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    private Timer timer(String name, String description, Duration min, Duration max) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(min)
+                .maximumExpectedValue(max)
+                .register(registry);
+    }
+
+    private Timer alertSendTimer(String outcome) {
+        return Timer.builder("monitor.alert.send")
+                .description("Digest hand-off to SMTP")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(registry);
+    }
+}
@@ -0,0 +1,218 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.StateSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides WHEN each course is polled next, so a fixed request budget is spent where seats actually move.
+ * * Inputs per course:
+ * 1. Volatility: an exponentially decaying count of observed status transitions. Busy courses poll faster.
+ * 2. Current status: a course whose sections are all OPEN has nothing left to alert on soon, so it backs off.
+ * 3. Hot windows: configured periods (e.g. enrollment-open days) during which every interval is divided.
+ * The result is clamped to [min, max] and jittered by +/-10% so polls never line up into bursts.
+ */
+@Component
+public class PollPlanner {
+
+    private final long minIntervalMs;
+    private final long baseIntervalMs;
+    private final long maxIntervalMs;
+    private final double halfLifeMs;
+    private final double allOpenFactor;
+    private final double hotWindowFactor;
+    private final List<HotWindow> hotWindows;
+
+    private record HotWindow(long startMs, long endMs) {}
+
+    private static final class CourseSchedule {
+        long nextPollAt;
+        double volatility;
+        long volatilityUpdatedAt;
+        boolean allOpen;
+    }
+
+    private final Map<String, CourseSchedule> schedules = new ConcurrentHashMap<>();
+
+    public PollPlanner(@Value("${monitor.adaptive.min-interval-ms:120000}") long minIntervalMs,
+                       @Value("${monitor.adaptive.base-interval-ms:600000}") long baseIntervalMs,
+                       @Value("${monitor.adaptive.max-interval-ms:3600000}") long maxIntervalMs,
+                       @Value("${monitor.adaptive.volatility-half-life-ms:21600000}") long halfLifeMs,
+                       @Value("${monitor.adaptive.all-open-factor:4}") double allOpenFactor,
+                       @Value("${monitor.adaptive.hot-window-factor:4}") double hotWindowFactor,
+                       @Value("${monitor.adaptive.hot-windows:}") String hotWindows) {
+        this.minIntervalMs = minIntervalMs;
+        this.baseIntervalMs = Math.max(minIntervalMs, baseIntervalMs);
+        this.maxIntervalMs = Math.max(this.baseIntervalMs, maxIntervalMs);
+        this.halfLifeMs = Math.max(1, halfLifeMs);
+        this.allOpenFactor = Math.max(1, allOpenFactor);
+        this.hotWindowFactor = Math.max(1, hotWindowFactor);
+        this.hotWindows = parseHotWindows(hotWindows);
+    }
+
+    /**
+     * Picks the courses whose next poll time has come, most overdue first.
+     * Courses never seen before are due immediately; courses no longer tracked are forgotten.
+     */
+    public List<String> dueCourses(Collection<String> trackedCourses, long now) {
+        schedules.keySet().retainAll(trackedCourses);
+
+        // Read each next-poll time once, under its lock: polls recorded concurrently by the cycle's
+        // virtual threads must not change the sort keys mid-sort
+        List<Due> due = new ArrayList<>();
+        for (String courseId : trackedCourses) {
+            long nextPollAt = nextPollAt(courseId);
+            if (nextPollAt <= now) {
+                due.add(new Due(courseId, nextPollAt));
+            }
+        }
+        due.sort(Comparator.comparingLong(Due::nextPollAt));
+        List<String> result = new ArrayList<>(due.size());
+        for (Due entry : due) {
+            result.add(entry.courseId());
+        }
+        return result;
+    }
+
+    private record Due(String courseId, long nextPollAt) {}
+
+    /**
+     * Records a completed poll and schedules the next one.
+     *
+     * @param transitions Status transitions seen in this poll (0 for unchanged payloads).
+     * @param allOpen     Whether every section is OPEN, or null if the payload was not parsed (keep last value).
+     */
+    public void recordPoll(String courseId, int transitions, Boolean allOpen, long now) {
+        CourseSchedule schedule = schedules.computeIfAbsent(courseId, id -> new CourseSchedule());
+        synchronized (schedule) {
+            schedule.volatility = decayedVolatility(schedule, now) + transitions;
+            schedule.volatilityUpdatedAt = now;
+            if (allOpen != null) {
+                schedule.allOpen = allOpen;
+            }
+            schedule.nextPollAt = now + jitter(intervalFor(schedule, now));
+        }
+    }
+
+    /**
+     * A failed poll (network error, WAF block) is retried after the minimum interval.
+     */
+    public void recordFailure(String courseId, long now) {
+        CourseSchedule schedule = schedules.computeIfAbsent(courseId, id -> new CourseSchedule());
+        synchronized (schedule) {
+            schedule.nextPollAt = now + jitter(minIntervalMs);
+        }
+    }
+
+    /**
+     * Makes the course due on the next cycle, e.g. for a refresh that could not be served right away.
+     */
+    public void pollNow(String courseId, long now) {
+        CourseSchedule schedule = schedules.computeIfAbsent(courseId, id -> new CourseSchedule());
+        synchronized (schedule) {
+            schedule.nextPollAt = Math.min(schedule.nextPollAt, now);
+        }
+    }
+
+    public long nextPollAt(String courseId) {
+        CourseSchedule schedule = schedules.get(courseId);
+        if (schedule == null) {
+            return 0;
+        }
+        synchronized (schedule) {
+            return schedule.nextPollAt;
+        }
+    }
+
+    /**
+     * @return The current plan of every tracked course, for the warm-restart snapshot.
+     */
+    public List<StateSnapshot.Schedule> exportSchedules() {
+        List<StateSnapshot.Schedule> result = new ArrayList<>(schedules.size());
+        schedules.forEach((courseId, schedule) -> {
+            synchronized (schedule) {
+                result.add(new StateSnapshot.Schedule(courseId, schedule.nextPollAt, schedule.volatility,
+                        schedule.volatilityUpdatedAt, schedule.allOpen));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reinstates plans from a snapshot. Overdue courses simply come up as due, most overdue first.
+     */
+    public void restoreSchedules(Collection<StateSnapshot.Schedule> restored) {
+        for (StateSnapshot.Schedule entry : restored) {
+            CourseSchedule schedule = schedules.computeIfAbsent(entry.courseId(), id -> new CourseSchedule());
+            synchronized (schedule) {
+                schedule.nextPollAt = entry.nextPollAt();
+                schedule.volatility = entry.volatility();
+                schedule.volatilityUpdatedAt = entry.volatilityUpdatedAt();
+                schedule.allOpen = entry.allOpen();
+            }
+        }
+    }
+
+    public boolean inHotWindow(long now) {
+        for (HotWindow window : hotWindows) {
+            if (now >= window.startMs() && now < window.endMs()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long intervalFor(CourseSchedule schedule, long now) {
+        // 1 recent transition -> base / 2, 3 recent transitions -> base / 4, ...
+        double interval = baseIntervalMs / (1 + schedule.volatility);
+        if (schedule.allOpen) {
+            interval *= allOpenFactor;
+        }
+        if (inHotWindow(now)) {
+            interval /= hotWindowFactor;
+        }
+        return Math.max(minIntervalMs, Math.min(maxIntervalMs, (long) interval));
+    }
+
+    private double decayedVolatility(CourseSchedule schedule, long now) {
+        if (schedule.volatility == 0) {
+            return 0;
+        }
+        long elapsed = Math.max(0, now - schedule.volatilityUpdatedAt);
+        return schedule.volatility * Math.pow(0.5, elapsed / halfLifeMs);
+    }
+
+    private static long jitter(long intervalMs) {
+        long spread = intervalMs / 10;
+        return spread <= 0 ? intervalMs : intervalMs - spread + ThreadLocalRandom.current().nextLong(2 * spread + 1);
+    }
+
+    // Format: 2026-11-03T07:00/2026-11-10T23:00,2027-04-06T07:00/2027-04-08T23:00 (server time zone)
+    private static List<HotWindow> parseHotWindows(String spec) {
+        List<HotWindow> windows = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            return windows;
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        for (String part : spec.split(",")) {
+            String[] range = part.trim().split("/");
+            if (range.length != 2) {
+                throw new IllegalArgumentException("Invalid monitor.adaptive.hot-windows entry: " + part);
+            }
+            long start = LocalDateTime.parse(range[0].trim()).atZone(zone).toInstant().toEpochMilli();
+            long end = LocalDateTime.parse(range[1].trim()).atZone(zone).toInstant().toEpochMilli();
+            windows.add(new HotWindow(start, end));
+        }
+        return windows;
+    }
+}
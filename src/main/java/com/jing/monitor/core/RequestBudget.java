@@ -0,0 +1,151 @@
+package com.jing.monitor.core;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Global outbound request budget shared by every caller of the UW API.
+ * * Strategy:
+ * 1. Token bucket: permits refill at a fixed rate, up to a small burst.
+ * 2. Reservation: callers that find the bucket empty reserve a future slot and sleep outside the lock,
+ *    so any number of virtual threads can queue up without holding a monitor.
+ * 3. Jitter: every wait is stretched by a random amount so the request spacing never looks machine-made.
+ *    A bounded wait (tryAcquire) is checked before the jitter, and the jitter only uses the slack left under it.
+ * 4. Throttling: HostRateController may scale the rate down (AIMD) or pause the bucket for a Retry-After.
+ */
+@Component
+public class RequestBudget {
+
+    private final double permitsPerMinute;
+    // Fraction of the configured rate currently allowed (1.0 = full speed), adjusted by HostRateController
+    private double rateFactor = 1.0;
+    private final double burst;
+    private final long maxJitterNanos;
+
+    // Permit count. May go negative (= debt owed to reservations that are still sleeping).
+    private double storedPermits;
+    private long lastRefillNanos;
+
+    public RequestBudget(@Value("${monitor.budget.permits-per-minute:0.5}") double permitsPerMinute,
+                         @Value("${monitor.budget.burst:1}") double burst,
+                         @Value("${monitor.budget.jitter-ms:10000}") long maxJitterMs) {
+        if (permitsPerMinute <= 0) {
+            throw new IllegalArgumentException("monitor.budget.permits-per-minute must be positive");
+        }
+        this.permitsPerMinute = permitsPerMinute;
+        this.burst = Math.max(1, burst);
+        this.maxJitterNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxJitterMs));
+        this.storedPermits = 1;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks the calling thread until one request may be sent.
+     *
+     * @throws InterruptedException if the caller is interrupted while waiting for its slot.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Like {@link #acquire()}, but gives up instead of queueing when the caller's slot is further out than
+     * the timeout. A caller that gives up takes no permit, so it does not delay anyone behind it.
+     *
+     * @return Whether a permit was taken.
+     * @throws InterruptedException if the caller is interrupted while waiting for its slot.
+     */
+    public boolean tryAcquire(long timeoutMs) throws InterruptedException {
+        long waitNanos = tryReserve(TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMs)));
+        if (waitNanos < 0) {
+            return false;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+
+    /**
+     * Takes one permit (possibly on credit) and returns how long the caller has to wait for it.
+     */
+    synchronized long reserve() {
+        return tryReserve(Long.MAX_VALUE);
+    }
+
+    /**
+     * Takes one permit if the caller would wait at most maxWaitNanos for it.
+     *
+     * The limit applies to the slot itself; jitter is added afterwards and never pushes the wait past the limit.
+     *
+     * @return How long the caller has to wait, or -1 if that is longer than maxWaitNanos (nothing taken).
+     */
+    synchronized long tryReserve(long maxWaitNanos) {
+        refill(System.nanoTime());
+        if (storedPermits >= 1) {
+            storedPermits -= 1;
+            return 0;
+        }
+
+        long waitNanos = (long) ((1 - storedPermits) * nanosPerPermit());
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        // Jitter only decides when a granted slot is used, never whether it is granted: capped at the slack
+        long maxJitter = Math.min(maxJitterNanos, maxWaitNanos - waitNanos);
+        if (maxJitter > 0) {
+            waitNanos += ThreadLocalRandom.current().nextLong(maxJitter);
+        }
+        storedPermits -= 1;
+        return waitNanos;
+    }
+
+    /**
+     * Scales the effective rate to permitsPerMinute * factor. Permits already stored are kept.
+     */
+    public synchronized void setRateFactor(double factor) {
+        if (factor <= 0 || factor > 1) {
+            throw new IllegalArgumentException("Rate factor must be in (0, 1]: " + factor);
+        }
+        refill(System.nanoTime());
+        this.rateFactor = factor;
+    }
+
+    public synchronized double getRateFactor() {
+        return rateFactor;
+    }
+
+    /**
+     * Hands out no permit before the given System.nanoTime() (e.g. to honour a Retry-After header).
+     * Queued reservations shift back by the same amount.
+     */
+    public synchronized void pauseUntil(long resumeAtNanos) {
+        long now = System.nanoTime();
+        refill(now);
+        long pauseNanos = resumeAtNanos - now;
+        if (pauseNanos <= 0) {
+            return;
+        }
+        // Express the pause as debt: zero credit left, plus the pause length worth of permits owed
+        storedPermits = Math.min(storedPermits, 0) - pauseNanos / nanosPerPermit();
+    }
+
+    private void refill(long now) {
+        storedPermits = Math.min(burst, storedPermits + (now - lastRefillNanos) / nanosPerPermit());
+        lastRefillNanos = now;
+    }
+
+    private double nanosPerPermit() {
+        return TimeUnit.MINUTES.toNanos(1) / (permitsPerMinute * rateFactor);
+    }
+
+    public double getPermitsPerMinute() {
+        return permitsPerMinute;
+    }
+}
@@ -0,0 +1,273 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.StatusMapping;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Compact in-memory copy of every section's last known state, keyed by the numeric section id.
+ * * Layout:
+ * 1. Open addressing with linear probing over two parallel primitive arrays (int keys, byte states).
+ *    No boxing and no per-entry objects: ~10 bytes per section at the maximum load factor of 0.5,
+ *    so 300k sections fit in about 3 MB.
+ * 2. Each state byte packs PRESENT | ENABLED | status code (0 = unknown, ordinal + 1 otherwise).
+ * 3. Reads use an optimistic StampedLock stamp and never block; writes and resizes take the write lock.
+ * The tasks table stays authoritative; this table is loaded at startup and written through on transitions.
+ */
+@Component
+public class SectionStateTable {
+
+    public static final byte ABSENT = 0;
+
+    private static final byte PRESENT = 0x40;
+    private static final byte ENABLED = 0x20;
+    private static final byte STATUS_MASK = 0x03;
+    private static final StatusMapping[] STATUSES = StatusMapping.values();
+
+    private static final int EMPTY_KEY = 0;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private byte[] states = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    // ==================== State byte helpers ====================
+
+    public static byte encode(StatusMapping status, boolean enabled) {
+        int code = status == null ? 0 : status.ordinal() + 1;
+        return (byte) (PRESENT | (enabled ? ENABLED : 0) | code);
+    }
+
+    public static boolean isPresent(byte state) {
+        return (state & PRESENT) != 0;
+    }
+
+    public static boolean isEnabled(byte state) {
+        return (state & ENABLED) != 0;
+    }
+
+    /**
+     * @return The stored status, or null if the section is absent or its status was never observed.
+     */
+    public static StatusMapping status(byte state) {
+        int code = state & STATUS_MASK;
+        return code == 0 ? null : STATUSES[code - 1];
+    }
+
+    /**
+     * Converts a section id such as "60035" into a table key.
+     *
+     * @return The key, or -1 if the id is not a positive int (such sections are simply not cached).
+     */
+    public static int key(String sectionId) {
+        if (sectionId == null || sectionId.isEmpty() || sectionId.length() > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < sectionId.length(); i++) {
+            char c = sectionId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value == EMPTY_KEY ? -1 : value;
+    }
+
+    // ==================== Table operations ====================
+
+    /**
+     * @return The packed state of the section, or {@link #ABSENT}.
+     */
+    public byte get(int key) {
+        long stamp = lock.tryOptimisticRead();
+        int[] k = keys;
+        byte[] s = states;
+        // A resize may be swapping the arrays; only trust the pair if it is consistent and the stamp holds
+        if (k.length == s.length) {
+            byte state = find(k, s, key);
+            if (lock.validate(stamp)) {
+                return state;
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return find(keys, states, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void put(int key, byte state) {
+        if (key <= 0 || !isPresent(state)) {
+            throw new IllegalArgumentException("Invalid entry: " + key + " -> " + state);
+        }
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != EMPTY_KEY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY_KEY) {
+                keys[i] = key;
+                size++;
+            }
+            states[i] = state;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Flips only the ENABLED bit of an existing entry. No-op for absent sections.
+     */
+    public void setEnabled(int key, boolean enabled) {
+        long stamp = lock.writeLock();
+        try {
+            int i = indexOf(key);
+            if (i >= 0) {
+                states[i] = (byte) (enabled ? states[i] | ENABLED : states[i] & ~ENABLED);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(int key) {
+        long stamp = lock.writeLock();
+        try {
+            int i = indexOf(key);
+            if (i < 0) {
+                return;
+            }
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            int mask = keys.length - 1;
+            int hole = i;
+            int j = (i + 1) & mask;
+            while (keys[j] != EMPTY_KEY) {
+                int home = slot(keys[j], mask);
+                // Move j into the hole if its home slot is not cyclically within (hole, j]
+                boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (movable) {
+                    keys[hole] = keys[j];
+                    states[hole] = states[j];
+                    hole = j;
+                }
+                j = (j + 1) & mask;
+            }
+            keys[hole] = EMPTY_KEY;
+            states[hole] = ABSENT;
+            size--;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            keys = new int[INITIAL_CAPACITY];
+            states = new byte[INITIAL_CAPACITY];
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Receives one table entry; see {@link #forEach(EntryVisitor)}.
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(int key, byte state);
+    }
+
+    /**
+     * Visits every entry under the read lock, so writers wait until it returns. Used for snapshots.
+     */
+    public void forEach(EntryVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY_KEY) {
+                    visitor.visit(keys[i], states[i]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private static byte find(int[] keys, byte[] states, int key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (int probes = 0; probes < keys.length; probes++) {
+            int k = keys[i];
+            if (k == key) {
+                return states[i];
+            }
+            if (k == EMPTY_KEY) {
+                return ABSENT;
+            }
+            i = (i + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    // Caller holds the write lock
+    private int indexOf(int key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY_KEY) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Caller holds the write lock
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        byte[] oldStates = states;
+        keys = new int[capacity];
+        states = new byte[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY_KEY) {
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != EMPTY_KEY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                states[i] = oldStates[j];
+            }
+        }
+    }
+
+    // Section ids are dense 5-digit numbers; mix the bits so neighbours do not cluster
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,317 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.StateSnapshot;
+import com.jing.monitor.model.dto.CrawlerSessionStatsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of independent crawler sessions, each with its own cookie jar (and so its own WAF token) and HTTP client.
+ * * Strategy:
+ * 1. Requests are spread round-robin over the healthy sessions, so no single token carries a whole cycle.
+ * 2. A session that gets block-threshold consecutive 202 / 403 answers is quarantined: its cookies are dropped
+ *    and it sits out quarantine-ms, doubled for every quarantine in a row (up to max-quarantine-ms).
+ *    It comes back with an empty jar and collects a fresh token; its first success clears the strikes.
+ *    Each request holds a lease on the identity it was sent with; answers for an identity that has since been
+ *    replaced are ignored, so a late 200 for the flagged token cannot lift the quarantine of the fresh one.
+ * 3. A session older than max-age-ms is refreshed the same way before its next request.
+ * 4. If every session is quarantined, the one due back first is used anyway; whether the request goes out
+ *    at all is up to {@link HostRateController}, which also handles 429 / 503 (a host problem, not a session one).
+ * 5. Cookies and session state are carried across restarts by the warm-restart snapshot.
+ * Thread-safe: session bookkeeping is guarded by the pool; a session swaps jar and client together.
+ */
+@Component
+public class SessionPool {
+
+    public enum SessionState { HEALTHY, QUARANTINED }
+
+    private record Identity(CookieManager cookies, HttpClient client) {}
+
+    public static final class Session {
+        private final int id;
+        private volatile Identity identity;
+        // Guarded by the pool
+        private long createdAt;
+        private long quarantinedUntil;
+        private int strikes;
+        private int consecutiveBlocks;
+        private long requests;
+        private long blocks;
+        private long refreshes;
+
+        private Session(int id, long now) {
+            this.id = id;
+            this.identity = newIdentity();
+            this.createdAt = now;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        private List<HttpCookie> cookies() {
+            return identity.cookies().getCookieStore().getCookies();
+        }
+    }
+
+    /**
+     * One request's hold on a session: the session and the identity (jar and client) the request is sent with.
+     */
+    public static final class Lease {
+        private final Session session;
+        private final Identity identity;
+
+        private Lease(Session session, Identity identity) {
+            this.session = session;
+            this.identity = identity;
+        }
+
+        public Session session() {
+            return session;
+        }
+
+        public int id() {
+            return session.id;
+        }
+
+        public HttpClient client() {
+            return identity.client();
+        }
+    }
+
+    private final Session[] sessions;
+    private final int blockThreshold;
+    private final long quarantineMs;
+    private final long maxQuarantineMs;
+    private final long maxAgeMs;
+    private int next;
+
+    public SessionPool(@Value("${uw-api.sessions.size:3}") int size,
+                       @Value("${uw-api.sessions.block-threshold:2}") int blockThreshold,
+                       @Value("${uw-api.sessions.quarantine-ms:900000}") long quarantineMs,
+                       @Value("${uw-api.sessions.max-quarantine-ms:14400000}") long maxQuarantineMs,
+                       @Value("${uw-api.sessions.max-age-ms:21600000}") long maxAgeMs) {
+        this.sessions = new Session[Math.max(1, size)];
+        this.blockThreshold = Math.max(1, blockThreshold);
+        this.quarantineMs = quarantineMs;
+        this.maxQuarantineMs = Math.max(quarantineMs, maxQuarantineMs);
+        this.maxAgeMs = maxAgeMs;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = new Session(i, now);
+        }
+    }
+
+    public int size() {
+        return sessions.length;
+    }
+
+    /**
+     * Picks the session for the next request.
+     *
+     * @return A lease on the next healthy session, or on the one due back first if all are quarantined.
+     */
+    public synchronized Lease acquire(long now) {
+        Session fallback = null;
+        for (int i = 0; i < sessions.length; i++) {
+            Session session = sessions[next];
+            next = (next + 1) % sessions.length;
+            if (session.quarantinedUntil > now) {
+                if (fallback == null || session.quarantinedUntil < fallback.quarantinedUntil) {
+                    fallback = session;
+                }
+                continue;
+            }
+            if (session.quarantinedUntil > 0) {
+                session.quarantinedUntil = 0;
+                System.out.println("[Sessions] Session " + session.id + " back from quarantine.");
+            } else if (maxAgeMs > 0 && now - session.createdAt >= maxAgeMs) {
+                refresh(session, now);
+                System.out.println("[Sessions] Session " + session.id + " expired, starting a fresh one.");
+            }
+            session.requests++;
+            return new Lease(session, session.identity);
+        }
+        fallback.requests++;
+        return new Lease(fallback, fallback.identity);
+    }
+
+    /**
+     * Feeds the HTTP status of a request sent under the lease back into the pool.
+     * Ignored if the session has replaced the leased identity since (quarantine or max-age).
+     */
+    public synchronized void onResponse(Lease lease, int statusCode, long now) {
+        Session session = lease.session;
+        if (lease.identity != session.identity) {
+            return;
+        }
+        if (statusCode == 202 || statusCode == 403) {
+            session.blocks++;
+            if (++session.consecutiveBlocks >= blockThreshold && session.quarantinedUntil <= now) {
+                quarantine(session, now);
+            }
+        } else if (statusCode < 500 && statusCode != 429) {
+            // Also lifts the quarantine of a fallback session that turned out to work
+            session.consecutiveBlocks = 0;
+            session.strikes = 0;
+            session.quarantinedUntil = 0;
+        }
+    }
+
+    /**
+     * Puts cookies (e.g. an 'aws-waf-token' copied from browser dev tools) into one session or all of them.
+     * The sessions are taken out of quarantine, on the assumption that the cookies make them usable again.
+     *
+     * @param sessionId Target session, or null for every session.
+     * @return Number of sessions that got the cookies.
+     */
+    public synchronized int setCookies(Integer sessionId, Map<String, String> newCookies, URI origin) {
+        if (sessionId != null && (sessionId < 0 || sessionId >= sessions.length)) {
+            throw new IllegalArgumentException("No crawler session " + sessionId);
+        }
+        int count = 0;
+        for (Session session : sessions) {
+            if (sessionId != null && session.id != sessionId) {
+                continue;
+            }
+            newCookies.forEach((name, value) -> {
+                HttpCookie cookie = new HttpCookie(name, value);
+                cookie.setPath("/");
+                cookie.setVersion(0);
+                session.identity.cookies().getCookieStore().add(origin, cookie);
+            });
+            session.quarantinedUntil = 0;
+            session.consecutiveBlocks = 0;
+            count++;
+        }
+        return count;
+    }
+
+    // ==================== Warm restart ====================
+
+    /**
+     * Max-Age is relative to when the cookie was received, which HttpCookie does not expose;
+     * the export counts it from now, so a restored cookie may be kept a little longer than the server asked.
+     */
+    public synchronized List<StateSnapshot.Cookie> exportCookies(long now) {
+        List<StateSnapshot.Cookie> result = new ArrayList<>();
+        for (Session session : sessions) {
+            for (HttpCookie cookie : session.cookies()) {
+                long expiresAt = cookie.getMaxAge() < 0 ? -1 : now + cookie.getMaxAge() * 1000;
+                result.add(new StateSnapshot.Cookie(session.id, cookie.getName(), cookie.getValue(),
+                        cookie.getDomain(), cookie.getPath(), expiresAt, cookie.getSecure(), cookie.isHttpOnly()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Puts unexpired cookies back into their session's jar. Cookies of sessions beyond the pool size are dropped.
+     *
+     * @return Number of cookies restored.
+     */
+    public synchronized int restoreCookies(List<StateSnapshot.Cookie> restored, URI origin, long now) {
+        int count = 0;
+        for (StateSnapshot.Cookie c : restored) {
+            if ((c.expiresAt() >= 0 && c.expiresAt() <= now) || c.session() < 0 || c.session() >= sessions.length) {
+                continue;
+            }
+            HttpCookie cookie = new HttpCookie(c.name(), c.value());
+            cookie.setDomain(c.domain());
+            cookie.setPath(c.path() == null ? "/" : c.path());
+            cookie.setVersion(0);
+            cookie.setSecure(c.secure());
+            cookie.setHttpOnly(c.httpOnly());
+            cookie.setMaxAge(c.expiresAt() < 0 ? -1 : (c.expiresAt() - now) / 1000);
+            sessions[c.session()].identity.cookies().getCookieStore().add(origin, cookie);
+            count++;
+        }
+        return count;
+    }
+
+    public synchronized List<StateSnapshot.Session> exportSessions() {
+        List<StateSnapshot.Session> result = new ArrayList<>(sessions.length);
+        for (Session session : sessions) {
+            result.add(new StateSnapshot.Session(session.id, session.createdAt, session.quarantinedUntil,
+                    session.strikes));
+        }
+        return result;
+    }
+
+    /**
+     * Restores session age and quarantine, so a restart neither reuses a flagged session early
+     * nor keeps an old token past max-age-ms.
+     */
+    public synchronized void restoreSessions(List<StateSnapshot.Session> restored) {
+        for (StateSnapshot.Session s : restored) {
+            if (s.id() < 0 || s.id() >= sessions.length) {
+                continue;
+            }
+            Session session = sessions[s.id()];
+            session.createdAt = s.createdAt();
+            session.quarantinedUntil = s.quarantinedUntil();
+            session.strikes = s.strikes();
+        }
+    }
+
+    public synchronized List<CrawlerSessionStatsDto> getStats(long now) {
+        List<CrawlerSessionStatsDto> stats = new ArrayList<>(sessions.length);
+        for (Session session : sessions) {
+            CrawlerSessionStatsDto dto = new CrawlerSessionStatsDto();
+            dto.setId(session.id);
+            boolean quarantined = session.quarantinedUntil > now;
+            dto.setState((quarantined ? SessionState.QUARANTINED : SessionState.HEALTHY).name());
+            dto.setQuarantinedForMs(quarantined ? session.quarantinedUntil - now : 0);
+            dto.setAgeMs(now - session.createdAt);
+            dto.setCookieNames(session.cookies().stream().map(HttpCookie::getName).sorted().toList());
+            dto.setConsecutiveBlocks(session.consecutiveBlocks);
+            dto.setStrikes(session.strikes);
+            dto.setRequests(session.requests);
+            dto.setBlocks(session.blocks);
+            dto.setRefreshes(session.refreshes);
+            stats.add(dto);
+        }
+        return stats;
+    }
+
+    // Caller holds the pool lock
+    private void quarantine(Session session, long now) {
+        long ms = Math.min(maxQuarantineMs, quarantineMs << Math.min(session.strikes, 20));
+        session.strikes++;
+        session.quarantinedUntil = now + ms;
+        session.consecutiveBlocks = 0;
+        // The token is flagged: drop it now so it is neither reused nor written to the snapshot
+        refresh(session, now);
+        System.out.println("[Sessions] Session " + session.id + " blocked, quarantined for " + (ms / 1000) + " s.");
+    }
+
+    // Caller holds the pool lock. Requests in flight finish on the old client.
+    private void refresh(Session session, long now) {
+        HttpClient old = session.identity.client();
+        session.identity = newIdentity();
+        session.createdAt = now;
+        session.refreshes++;
+        old.shutdown();
+    }
+
+    private static Identity newIdentity() {
+        CookieManager cookies = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .cookieHandler(cookies)
+                .build();
+        return new Identity(cookies, client);
+    }
+}
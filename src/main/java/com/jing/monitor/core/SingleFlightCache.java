@@ -0,0 +1,206 @@
+package com.jing.monitor.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Bounded TTL + LRU cache whose misses are single-flighted.
+ * * Strategy:
+ * 1. Fresh entries are served from memory; expired ones are dropped on access.
+ * 2. On a miss, the first caller becomes the leader and runs the loader. Concurrent callers for the same key
+ *    wait on the leader's future instead of issuing their own request.
+ * 3. The value is published to the cache before the in-flight slot is released, so a late caller
+ *    always finds either the cached value or the running load.
+ * 4. Null results (failed loads), and any the caller marks as not cacheable, are handed to the waiting callers
+ *    but never cached.
+ * 5. A caller may bound how long it waits for someone else's load; past that it gets a fallback value
+ *    and the load keeps running for the others.
+ * Values are shared between callers and must be treated as read-only.
+ */
+public class SingleFlightCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAtNanos) {}
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    // Access-ordered: iteration starts at the least recently used entry. Guarded by itself.
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public SingleFlightCache(int maxEntries, long ttlMs) {
+        this(maxEntries, ttlMs, System::nanoTime);
+    }
+
+    SingleFlightCache(int maxEntries, long ttlMs, LongSupplier clock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMs));
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > SingleFlightCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, joins a load already in flight, or loads it on the calling thread.
+     * If the loader throws, the leader and every waiting caller see the exception.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        return get(key, loader, value -> true);
+    }
+
+    /**
+     * @param cacheable Decides whether a non-null result is kept; rejected results still go to the waiting callers.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader, Predicate<? super V> cacheable) {
+        return get(key, loader, cacheable, -1, null);
+    }
+
+    /**
+     * @param maxJoinWaitMs Longest wait for a load already in flight, or -1 to wait as long as it takes.
+     *                      Does not bound the caller's own load.
+     * @param onTimeout     Value for a caller whose wait ran out (or was interrupted); never cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader, Predicate<? super V> cacheable,
+                 long maxJoinWaitMs, Function<? super K, ? extends V> onTimeout) {
+        V cached = getIfFresh(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return maxJoinWaitMs < 0 ? await(running) : await(running, key, maxJoinWaitMs, onTimeout);
+        }
+
+        try {
+            // The previous leader may have published between our cache check and putIfAbsent
+            cached = getIfFresh(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                mine.complete(cached);
+                return cached;
+            }
+
+            misses.incrementAndGet();
+            V value = loader.apply(key);
+            if (value != null && cacheable.test(value)) {
+                put(key, value);
+            }
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * @return The cached value if present and not expired, else null. Never loads.
+     */
+    public V getIfFresh(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (clock.getAsLong() - entry.expiresAtNanos() >= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, clock.getAsLong() + ttlNanos));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    private V await(CompletableFuture<V> future, K key, long maxWaitMs, Function<? super K, ? extends V> onTimeout) {
+        try {
+            return future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return onTimeout.apply(key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return onTimeout.apply(key);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.SectionInfo;
+import com.jing.monitor.model.StatusMapping;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which due courses actually need their own enrollmentPackages GET, using one bulk search per batch.
+ * * Strategy:
+ * 1. Most tracked courses are fully CLOSED and stay that way for hours. For those, one search restricted to
+ *    the tracked course ids and to OPEN / WAITLISTED packages answers "did anything open?" for up to
+ *    batch-size courses in a page or two, instead of one request per course.
+ * 2. A course is skipped only if its last parsed payload had no OPEN / WAITLISTED section AND it is absent
+ *    from the probe. Everything else is fetched: courses that appear in the probe, courses with seats
+ *    (the probe cannot see a change between OPEN and WAITLISTED, or a second section opening), and courses
+ *    never parsed since startup.
+ * 3. What is known about a course comes from parsed payloads only, never from the probe, so a probe taken just
+ *    before a fetch cannot hide a change the fetch did not see.
+ * 4. Every full-refresh-ms one cycle fetches every due course, to catch new sections and search index lag.
+ * 5. A failed probe (block, network error) falls back to fetching every due course.
+ * Disabled (the default), every due course is fetched as before.
+ */
+@Component
+public class StatusProbe {
+
+    /**
+     * @param fetch   Courses to fetch individually.
+     * @param skipped Courses the probe found unchanged; they count as an unchanged poll.
+     */
+    public record Selection(List<String> fetch, List<String> skipped) {}
+
+    private final CourseCrawler crawler;
+    private final MonitorMetrics metrics;
+    private final boolean enabled;
+    private final long fullRefreshMs;
+    private final int batchSize;
+
+    // courseId -> whether the last parsed payload had an OPEN / WAITLISTED section
+    private final Map<String, Boolean> hasSeats = new ConcurrentHashMap<>();
+    // Only touched by the scheduling thread
+    private long lastFullRefreshAt;
+
+    public StatusProbe(CourseCrawler crawler, MonitorMetrics metrics,
+                       @Value("${monitor.probe.enabled:false}") boolean enabled,
+                       @Value("${monitor.probe.full-refresh-ms:1800000}") long fullRefreshMs,
+                       @Value("${monitor.probe.batch-size:200}") int batchSize) {
+        this.crawler = crawler;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.fullRefreshMs = fullRefreshMs;
+        // A larger batch could have more hits than one probe reads, and would always fall back to fetching
+        this.batchSize = Math.min(Math.max(1, batchSize), CourseCrawler.MAX_PROBE_HITS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Splits the due courses into those to fetch and those the probe shows unchanged.
+     * Courses not parsed since startup lose their validators, so their first fetch is parsed and learned.
+     *
+     * @param trackedCourses Every course currently polled; what is known about other courses is dropped.
+     */
+    public Selection select(Collection<String> trackedCourses, List<String> due, long now) {
+        if (!enabled) {
+            return new Selection(due, List.of());
+        }
+        hasSeats.keySet().retainAll(trackedCourses);
+
+        List<String> fetch = new ArrayList<>();
+        List<String> probed = new ArrayList<>();
+        for (String courseId : due) {
+            Boolean seats = hasSeats.get(courseId);
+            if (seats == null) {
+                // A validator restored from a snapshot would make this fetch UNCHANGED and teach us nothing
+                crawler.invalidate(courseId);
+                fetch.add(courseId);
+            } else if (seats) {
+                fetch.add(courseId);
+            } else {
+                probed.add(courseId);
+            }
+        }
+
+        if (probed.isEmpty() || now - lastFullRefreshAt >= fullRefreshMs) {
+            lastFullRefreshAt = now;
+            return new Selection(due, List.of());
+        }
+
+        List<String> skipped = new ArrayList<>();
+        for (int from = 0; from < probed.size(); from += batchSize) {
+            List<String> batch = probed.subList(from, Math.min(probed.size(), from + batchSize));
+            Set<String> withSeats = crawler.findCoursesWithSeats(batch);
+            if (withSeats == null) {
+                fetch.addAll(batch);
+                continue;
+            }
+            for (String courseId : batch) {
+                (withSeats.contains(courseId) ? fetch : skipped).add(courseId);
+            }
+        }
+        metrics.countProbeSkips(skipped.size());
+        return new Selection(fetch, skipped);
+    }
+
+    /**
+     * Records what a parsed (CHANGED) payload says about the course.
+     */
+    public void recordSections(String courseId, List<SectionInfo> infos) {
+        if (!enabled) {
+            return;
+        }
+        boolean seats = false;
+        for (SectionInfo info : infos) {
+            seats |= info.getStatus() != StatusMapping.CLOSED;
+        }
+        hasSeats.put(courseId, seats);
+    }
+
+    /**
+     * Forgets the course, so its next due poll is a full fetch. Call whenever its local state may be stale.
+     */
+    public void forget(String courseId) {
+        hasSeats.remove(courseId);
+    }
+}
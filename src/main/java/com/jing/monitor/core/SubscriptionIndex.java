@@ -0,0 +1,131 @@
+package com.jing.monitor.core;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index from section id to the email addresses subscribed to it.
+ * * Strategy:
+ * 1. The poller looks up the subscribers of a changed section here, so fan-out is one map lookup per
+ *    transition no matter how many users there are. The DB is never read on the alert path.
+ * 2. Subscriber lists are immutable and replaced on change (copy-on-write): reads take no lock,
+ *    and an alert that captured a list keeps a consistent one.
+ * 3. Subscribed courses are reference-counted per section, so the poll set is the set of distinct courses;
+ *    ten users watching the same section still cost one fetch per cycle.
+ * The subscriptions table stays authoritative; the index is loaded at startup and updated after each commit.
+ */
+@Component
+public class SubscriptionIndex {
+
+    private record Entry(String courseId, List<String> emails) {}
+
+    private final Map<String, Entry> sections = new ConcurrentHashMap<>();
+    // courseId -> number of subscribed sections of that course; guarded by this
+    private final Map<String, Integer> courseRefs = new HashMap<>();
+    private volatile Set<String> courses = Set.of();
+
+    /**
+     * @return The subscribers of the section (never null; empty if none). The list must not be modified.
+     */
+    public List<String> subscribers(String sectionId) {
+        Entry entry = sections.get(sectionId);
+        return entry == null ? List.of() : entry.emails();
+    }
+
+    public boolean hasSubscribers(String sectionId) {
+        return sections.containsKey(sectionId);
+    }
+
+    /**
+     * @return Distinct courses with at least one subscribed section (an immutable snapshot).
+     */
+    public Set<String> courses() {
+        return courses;
+    }
+
+    /**
+     * @return false if the email was already subscribed to the section.
+     */
+    public synchronized boolean add(String sectionId, String courseId, String email) {
+        Entry entry = sections.get(sectionId);
+        if (entry == null) {
+            sections.put(sectionId, new Entry(courseId, List.of(email)));
+            courseRefs.merge(courseId, 1, Integer::sum);
+            courses = Set.copyOf(courseRefs.keySet());
+            return true;
+        }
+        if (entry.emails().contains(email)) {
+            return false;
+        }
+        List<String> emails = new ArrayList<>(entry.emails().size() + 1);
+        emails.addAll(entry.emails());
+        emails.add(email);
+        sections.put(sectionId, new Entry(entry.courseId(), List.copyOf(emails)));
+        return true;
+    }
+
+    /**
+     * @return false if the email was not subscribed to the section.
+     */
+    public synchronized boolean remove(String sectionId, String email) {
+        Entry entry = sections.get(sectionId);
+        if (entry == null || !entry.emails().contains(email)) {
+            return false;
+        }
+        if (entry.emails().size() > 1) {
+            List<String> emails = new ArrayList<>(entry.emails());
+            emails.remove(email);
+            sections.put(sectionId, new Entry(entry.courseId(), List.copyOf(emails)));
+            return true;
+        }
+        sections.remove(sectionId);
+        if (courseRefs.merge(entry.courseId(), -1, Integer::sum) <= 0) {
+            courseRefs.remove(entry.courseId());
+        }
+        courses = Set.copyOf(courseRefs.keySet());
+        return true;
+    }
+
+    /**
+     * Drops every subscriber of the given sections, e.g. when their course is deleted.
+     *
+     * @return Number of sections that had subscribers.
+     */
+    public synchronized int removeSections(Collection<String> sectionIds) {
+        int removed = 0;
+        for (String sectionId : sectionIds) {
+            Entry entry = sections.remove(sectionId);
+            if (entry == null) {
+                continue;
+            }
+            removed++;
+            if (courseRefs.merge(entry.courseId(), -1, Integer::sum) <= 0) {
+                courseRefs.remove(entry.courseId());
+            }
+        }
+        if (removed > 0) {
+            courses = Set.copyOf(courseRefs.keySet());
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        sections.clear();
+        courseRefs.clear();
+        courses = Set.of();
+    }
+
+    /**
+     * @return Number of sections with at least one subscriber.
+     */
+    public int size() {
+        return sections.size();
+    }
+}
@@ -0,0 +1,17 @@
+package com.jing.monitor.model;
+
+import java.util.List;
+
+/**
+ * One detected seat opening, queued for delivery.
+ *
+ * @param status      The status the section moved to (OPEN or WAITLISTED).
+ * @param section     The 5-digit section id.
+ * @param courseInfo  Human-readable course name, e.g. "COMP SCI 577".
+ * @param detectedAt  Epoch millis at which the poller saw the transition.
+ * @param notifyOwner Whether the configured app.mail.to receives it (the task is enabled, or newly discovered).
+ * @param subscribers Subscriber emails of the section (shared, immutable list from the SubscriptionIndex).
+ */
+public record AlertEvent(StatusMapping status, String section, String courseInfo, long detectedAt,
+                         boolean notifyOwner, List<String> subscribers) {
+}
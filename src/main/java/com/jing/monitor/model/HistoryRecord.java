@@ -0,0 +1,17 @@
+package com.jing.monitor.model;
+
+/**
+ * One entry of the binary status history log.
+ *
+ * @param timestamp Epoch millis of the poll that produced the record.
+ * @param sectionId Numeric section id, e.g. 60035.
+ * @param courseId  Numeric course id, e.g. 4289 for "004289".
+ * @param status    Status observed in this poll.
+ * @param previous  Status known before this poll, or null for a newly discovered section.
+ * @param kind      What the poll saw relative to the previous status.
+ */
+public record HistoryRecord(long timestamp, int sectionId, int courseId,
+                            StatusMapping status, StatusMapping previous, Kind kind) {
+
+    public enum Kind { OBSERVED, DISCOVERED, TRANSITION }
+}
@@ -0,0 +1,36 @@
+package com.jing.monitor.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One running monitor instance, kept alive by its own heartbeat.
+ * Maps to the "poller_nodes" table; a row whose heartbeat is older than the node timeout counts as dead.
+ */
+@Entity
+@Table(name = "poller_nodes")
+@Data
+@NoArgsConstructor
+public class PollerNode {
+
+    @Id
+    @Column(length = 128)
+    private String nodeId;
+
+    /**
+     * Epoch millis of the first heartbeat.
+     */
+    private long startedAt;
+
+    /**
+     * Epoch millis of the latest heartbeat.
+     */
+    private long lastHeartbeat;
+
+    public PollerNode(String nodeId, long startedAt) {
+        this.nodeId = nodeId;
+        this.startedAt = startedAt;
+        this.lastHeartbeat = startedAt;
+    }
+}
@@ -0,0 +1,41 @@
+package com.jing.monitor.model;
+
+import java.util.List;
+
+/**
+ * What the poller has learned that is expensive to relearn after a restart (see WarmStartService).
+ *
+ * @param writtenAt     Epoch millis when the snapshot was taken.
+ * @param clean         True only for the snapshot taken on a graceful shutdown with no poll cycle running:
+ *                      then the section states and validators match the tasks table exactly.
+ * @param endpoint      API base url, term and subject the crawler state belongs to.
+ * @param sectionKeys   Numeric section ids (see SectionStateTable.key), parallel to sectionStates.
+ * @param sectionStates Packed SectionStateTable state bytes.
+ * @param schedules     Adaptive poll plan per course.
+ * @param validators    Conditional-request validators per course.
+ * @param cookies       Cookie jars of the crawler sessions (e.g. their WAF tokens).
+ * @param sessions      Age and quarantine of each crawler session (see SessionPool).
+ */
+public record StateSnapshot(long writtenAt, boolean clean, String endpoint,
+                            int[] sectionKeys, byte[] sectionStates,
+                            List<Schedule> schedules, List<Validator> validators, List<Cookie> cookies,
+                            List<Session> sessions) {
+
+    public record Schedule(String courseId, long nextPollAt, double volatility, long volatilityUpdatedAt,
+                           boolean allOpen) {}
+
+    public record Validator(String courseId, String etag, String lastModified, long fingerprint) {}
+
+    /**
+     * @param session   Id of the crawler session whose jar holds the cookie.
+     * @param expiresAt Epoch millis, or -1 for a session cookie.
+     */
+    public record Cookie(int session, String name, String value, String domain, String path, long expiresAt,
+                         boolean secure, boolean httpOnly) {}
+
+    /**
+     * @param quarantinedUntil Epoch millis, or 0 if the session is not quarantined.
+     * @param strikes          Quarantines in a row.
+     */
+    public record Session(int id, long createdAt, long quarantinedUntil, int strikes) {}
+}
@@ -0,0 +1,38 @@
+package com.jing.monitor.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A person who receives seat alerts.
+ * Maps to the "subscribers" table.
+ */
+@Entity
+@Table(name = "subscribers")
+@Data
+@NoArgsConstructor
+public class Subscriber {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Alert address; also identifies the subscriber in the API.
+     */
+    @Column(nullable = false, unique = true)
+    private String email;
+
+    private String name;
+
+    /**
+     * Inactive subscribers keep their subscriptions but receive no alerts.
+     */
+    private boolean active = true;
+
+    public Subscriber(String email, String name) {
+        this.email = email;
+        this.name = name;
+    }
+}
@@ -0,0 +1,48 @@
+package com.jing.monitor.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One subscriber watching one section.
+ * Maps to the "subscriptions" table. The section itself is tracked (and fetched) once in "tasks",
+ * no matter how many subscribers watch it.
+ */
+@Entity
+@Table(name = "subscriptions",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"subscriber_id", "sectionId"}),
+        indexes = @Index(name = "idx_subscriptions_section_id", columnList = "sectionId"))
+@Data
+@NoArgsConstructor
+public class Subscription {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "subscriber_id")
+    private Subscriber subscriber;
+
+    /**
+     * The 5-digit section id (e.g., "60035").
+     */
+    @Column(nullable = false)
+    private String sectionId;
+
+    /**
+     * Course of the section, copied from the task; decides which course the poller has to fetch.
+     */
+    @Column(nullable = false)
+    private String courseId;
+
+    private String courseDisplayName;
+
+    public Subscription(Subscriber subscriber, String sectionId, String courseId, String courseDisplayName) {
+        this.subscriber = subscriber;
+        this.sectionId = sectionId;
+        this.courseId = courseId;
+        this.courseDisplayName = courseDisplayName;
+    }
+}
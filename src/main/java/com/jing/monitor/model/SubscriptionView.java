@@ -0,0 +1,13 @@
+package com.jing.monitor.model;
+
+/**
+ * Projection used to build the in-memory section -> subscribers index.
+ */
+public interface SubscriptionView {
+
+    String getSectionId();
+
+    String getCourseId();
+
+    String getEmail();
+}
@@ -9,7 +9,11 @@ import lombok.NoArgsConstructor;
  * Maps to the "tasks" table in the MySQL database.
  */
 @Entity
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        // Listing filters and the per-course delete
+        @Index(name = "idx_tasks_course_display_name", columnList = "courseDisplayName"),
+        @Index(name = "idx_tasks_course_id", columnList = "courseId")
+})
 @Data // Lombok: Generates Getters, Setters, toString, etc.
 @NoArgsConstructor
 public class Task {
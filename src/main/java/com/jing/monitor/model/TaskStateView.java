@@ -0,0 +1,14 @@
+package com.jing.monitor.model;
+
+/**
+ * Projection used to warm the in-memory section state table.
+ * Reads three columns instead of hydrating one managed Task entity per section.
+ */
+public interface TaskStateView {
+
+    String getSectionId();
+
+    StatusMapping getLastStatus();
+
+    boolean isEnabled();
+}
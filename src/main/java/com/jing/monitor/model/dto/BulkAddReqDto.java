@@ -0,0 +1,11 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkAddReqDto {
+    // e.g. ["COMP SCI 577", "MATH 521"]
+    private List<String> courseNames;
+}
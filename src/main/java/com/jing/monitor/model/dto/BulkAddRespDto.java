@@ -0,0 +1,22 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkAddRespDto {
+    // For GET /api/tasks/bulk/{jobId}
+    private String jobId;
+    // RUNNING while searches are outstanding, then DONE
+    private String status;
+    // Courses whose search has not resolved yet
+    private int pendingCourses;
+    // Courses that added at least one section
+    private int addedCourses;
+    private int addedSections;
+    // Courses that were not found or failed to resolve
+    private int failedCourses;
+    // One entry per distinct course name, in request order
+    private List<CourseAddResultDto> results;
+}
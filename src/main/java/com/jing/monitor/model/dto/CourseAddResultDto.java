@@ -0,0 +1,19 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CourseAddResultDto {
+    // As submitted
+    private String courseName;
+    // PENDING (search not resolved yet), then ADDED / ALREADY_TRACKED / NOT_FOUND / FAILED
+    private String outcome;
+    private String message;
+    private String courseId;
+    private String courseDisplayName;
+    // Newly created tasks (sections already tracked are skipped)
+    private List<TaskRespDto> added;
+    private int skippedSections;
+}
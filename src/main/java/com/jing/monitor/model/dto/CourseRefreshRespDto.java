@@ -0,0 +1,19 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CourseRefreshRespDto {
+    private String courseId;
+    // CHANGED (statuses were re-read from the API and synced), UNCHANGED, or DEFERRED (request budget busy:
+    // the sections are the last synced statuses and the next cycle polls the course)
+    private String outcome;
+    // When the poll behind this answer finished (epoch ms); 0 if DEFERRED before any poll
+    private long fetchedAt;
+    // How old that poll is; above zero when it was served from the freshness cache, -1 if there was none
+    private long ageMs;
+    private int transitions;
+    private List<TaskRespDto> sections;
+}
@@ -0,0 +1,24 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CrawlerSessionStatsDto {
+    private int id;
+    // HEALTHY / QUARANTINED
+    private String state;
+    // Remaining quarantine
+    private long quarantinedForMs;
+    // Time since the session's cookie jar was started
+    private long ageMs;
+    // Names only; values (tokens) are never exposed
+    private List<String> cookieNames;
+    private int consecutiveBlocks;
+    // Quarantines in a row; each one doubles the next quarantine
+    private int strikes;
+    private long requests;
+    private long blocks;
+    private long refreshes;
+}
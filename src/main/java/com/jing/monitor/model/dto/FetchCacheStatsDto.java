@@ -0,0 +1,13 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+@Data
+public class FetchCacheStatsDto {
+    // Server answered 304 Not Modified
+    private long notModifiedHits;
+    // 200 OK, but the body fingerprint matched the previous poll
+    private long fingerprintHits;
+    // Payload changed (or was never seen) and had to be parsed + synced
+    private long misses;
+}
@@ -0,0 +1,16 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+@Data
+public class HostRateStatsDto {
+    private String host;
+    // CLOSED / OPEN / HALF_OPEN
+    private String circuitState;
+    // Fraction of the configured request budget currently in use
+    private double rateFactor;
+    private int consecutiveBlocks;
+    private long totalBlocks;
+    // Remaining cooldown while OPEN
+    private long openForMs;
+}
@@ -0,0 +1,15 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PageRespDto<T> {
+    private List<T> items;
+    // Zero-based
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
@@ -0,0 +1,12 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+@Data
+public class RecordingDumpDto {
+    // Absolute path of the .jfr file on the server
+    private String path;
+    private long sizeBytes;
+    // Start of the always-on recording (epoch ms); the dump only holds the last max-age-ms of it
+    private long recordingSince;
+}
@@ -0,0 +1,15 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+@Data
+public class RefreshCacheStatsDto {
+    // Courses with a poll younger than the freshness threshold
+    private int entries;
+    // Refreshes answered with a fresh poll
+    private long hits;
+    // Refreshes that polled the API
+    private long misses;
+    // Refreshes that joined a poll already in flight
+    private long coalesced;
+}
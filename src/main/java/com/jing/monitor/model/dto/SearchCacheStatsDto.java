@@ -0,0 +1,15 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+@Data
+public class SearchCacheStatsDto {
+    // Cached (term, query) results
+    private int entries;
+    // Searches answered from the cache
+    private long hits;
+    // Searches that went to the API
+    private long misses;
+    // Searches that waited for an identical one already in flight
+    private long coalesced;
+}
@@ -0,0 +1,26 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+@Data
+public class SectionHistoryDto {
+    private String sectionId;
+    private String courseId;
+    // Last status seen by the poller
+    private String currentStatus;
+    // Epoch millis of the first / last record for this section
+    private long firstSeen;
+    private long lastSeen;
+    // Transitions into OPEN (discovering an already open section does not count)
+    private int openings;
+    // CLOSED -> WAITLISTED transitions
+    private int waitlistOpenings;
+    // Total time spent OPEN, including the current open period
+    private long totalOpenMs;
+    // Mean length of completed open periods (0 if none completed yet)
+    private long averageOpenMs;
+    // Hour of day (server time) with the most openings, or -1 if it never opened
+    private int typicalOpeningHour;
+    // Openings per hour of day, index 0..23
+    private int[] openingsByHour;
+}
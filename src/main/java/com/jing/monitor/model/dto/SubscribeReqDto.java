@@ -0,0 +1,14 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SubscribeReqDto {
+    // Alert address; creates the subscriber on first use
+    private String email;
+    private String name;
+    // Sections must already be tracked (add the course via /api/tasks first)
+    private List<String> sectionIds;
+}
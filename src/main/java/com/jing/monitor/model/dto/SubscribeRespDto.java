@@ -0,0 +1,13 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SubscribeRespDto {
+    private List<String> subscribed;
+    private List<String> alreadySubscribed;
+    // Not in the tasks table; nothing was stored for these
+    private List<String> unknownSections;
+}
@@ -0,0 +1,13 @@
+package com.jing.monitor.model.dto;
+
+import com.jing.monitor.model.StatusMapping;
+import lombok.Data;
+
+@Data
+public class SubscriptionRespDto {
+    private String sectionId;
+    private String courseId;
+    private String courseDisplayName;
+    // Last polled status (null until the first poll)
+    private StatusMapping status;
+}
@@ -0,0 +1,16 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+@Data
+public class TaskEventDto {
+    // Position in the stream; sent as the SSE id, so a reconnect resumes after it
+    private long seq;
+    // SECTION_ADDED / STATUS_CHANGED / TOGGLED / COURSE_REMOVED
+    private String type;
+    private long timestamp;
+    // Row after the change (null for COURSE_REMOVED)
+    private TaskRespDto task;
+    // Set for COURSE_REMOVED: every row of this course is gone
+    private String courseDisplayName;
+}
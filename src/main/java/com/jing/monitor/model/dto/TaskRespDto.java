@@ -1,13 +1,18 @@
 package com.jing.monitor.model.dto;
 
 import com.jing.monitor.model.StatusMapping;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class TaskRespDto {
     private Long id; // 🔥 Added for frontend operations
     private String sectionId;
+    private String courseId;
     private String courseDisplayName;
     private StatusMapping status;
     private boolean enabled;
-}
\ No newline at end of file
+}
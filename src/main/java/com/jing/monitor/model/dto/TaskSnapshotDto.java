@@ -0,0 +1,12 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TaskSnapshotDto {
+    // Every event up to and including this seq is reflected in tasks
+    private long seq;
+    private List<TaskRespDto> tasks;
+}
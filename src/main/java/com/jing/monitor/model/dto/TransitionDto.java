@@ -0,0 +1,12 @@
+package com.jing.monitor.model.dto;
+
+import lombok.Data;
+
+@Data
+public class TransitionDto {
+    // Epoch millis of the poll that saw the change
+    private long timestamp;
+    // Null when the section was first discovered
+    private String from;
+    private String to;
+}
@@ -0,0 +1,26 @@
+package com.jing.monitor.repository;
+
+import com.jing.monitor.model.PollerNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 集群成员表: 每个实例定时写心跳, 心跳未过期的节点参与课程分片
+ */
+@Repository
+public interface PollerNodeRepository extends JpaRepository<PollerNode, String> {
+
+    // 存活节点 ID, 按 ID 排序, 所有节点看到的顺序一致
+    @Query("select n.nodeId from PollerNode n where n.lastHeartbeat >= :cutoff order by n.nodeId")
+    List<String> findLiveNodeIds(@Param("cutoff") long cutoff);
+
+    // 清理早已失联的节点, 避免表无限增长
+    @Modifying
+    @Query("delete from PollerNode n where n.lastHeartbeat < :cutoff")
+    int deleteStale(@Param("cutoff") long cutoff);
+}
@@ -0,0 +1,209 @@
+package com.jing.monitor.repository;
+
+import com.jing.monitor.model.StateSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Single-file binary store for the warm-restart snapshot.
+ * * Layout:
+ * 1. Header: magic, version, writtenAt, clean flag, endpoint.
+ * 2. Sections as (int key, byte state) pairs: 5 bytes per section, ~1.5 MB for 300k sections.
+ * 3. Schedules, validators, cookies and crawler sessions as counted lists; optional strings carry a presence flag.
+ *    Version 1 files (one cookie jar, no sessions) are still read; their cookies go to session 0.
+ * 4. Trailer: CRC32 of everything before it.
+ * Written to a temporary file and moved over the previous snapshot, so a crash mid-write leaves the old one intact.
+ * A truncated or foreign file fails the magic, version or CRC check and is reported as corrupt.
+ */
+@Repository
+public class StateSnapshotFile {
+
+    private static final int MAGIC = 0x534E5031; // "SNP1"
+    private static final int VERSION = 2;
+
+    private final Path path;
+
+    public StateSnapshotFile(@Value("${monitor.snapshot.path:logs/state.snapshot}") String path) {
+        this.path = Path.of(path);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public void write(StateSnapshot snapshot) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = parent.resolve(path.getFileName() + ".tmp");
+
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshot.writtenAt());
+            out.writeBoolean(snapshot.clean());
+            out.writeUTF(snapshot.endpoint());
+
+            int[] keys = snapshot.sectionKeys();
+            byte[] states = snapshot.sectionStates();
+            out.writeInt(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                out.writeInt(keys[i]);
+                out.writeByte(states[i]);
+            }
+
+            out.writeInt(snapshot.schedules().size());
+            for (StateSnapshot.Schedule schedule : snapshot.schedules()) {
+                out.writeUTF(schedule.courseId());
+                out.writeLong(schedule.nextPollAt());
+                out.writeDouble(schedule.volatility());
+                out.writeLong(schedule.volatilityUpdatedAt());
+                out.writeBoolean(schedule.allOpen());
+            }
+
+            out.writeInt(snapshot.validators().size());
+            for (StateSnapshot.Validator validator : snapshot.validators()) {
+                out.writeUTF(validator.courseId());
+                writeOptional(out, validator.etag());
+                writeOptional(out, validator.lastModified());
+                out.writeLong(validator.fingerprint());
+            }
+
+            out.writeInt(snapshot.cookies().size());
+            for (StateSnapshot.Cookie cookie : snapshot.cookies()) {
+                out.writeInt(cookie.session());
+                out.writeUTF(cookie.name());
+                out.writeUTF(cookie.value());
+                writeOptional(out, cookie.domain());
+                writeOptional(out, cookie.path());
+                out.writeLong(cookie.expiresAt());
+                out.writeBoolean(cookie.secure());
+                out.writeBoolean(cookie.httpOnly());
+            }
+
+            out.writeInt(snapshot.sessions().size());
+            for (StateSnapshot.Session session : snapshot.sessions()) {
+                out.writeInt(session.id());
+                out.writeLong(session.createdAt());
+                out.writeLong(session.quarantinedUntil());
+                out.writeInt(session.strikes());
+            }
+
+            out.flush();
+            // The trailer itself is not part of the checksum
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return The snapshot, or null if there is none.
+     * @throws IOException If the file cannot be read or is corrupt.
+     */
+    public StateSnapshot read() throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(file, crc));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a state snapshot: " + path);
+            }
+            int version = in.readInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            long writtenAt = in.readLong();
+            boolean clean = in.readBoolean();
+            String endpoint = in.readUTF();
+
+            int sections = checkedCount(in.readInt());
+            int[] keys = new int[sections];
+            byte[] states = new byte[sections];
+            for (int i = 0; i < sections; i++) {
+                keys[i] = in.readInt();
+                states[i] = in.readByte();
+            }
+
+            int count = checkedCount(in.readInt());
+            List<StateSnapshot.Schedule> schedules = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                schedules.add(new StateSnapshot.Schedule(in.readUTF(), in.readLong(), in.readDouble(),
+                        in.readLong(), in.readBoolean()));
+            }
+
+            count = checkedCount(in.readInt());
+            List<StateSnapshot.Validator> validators = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                validators.add(new StateSnapshot.Validator(in.readUTF(), readOptional(in), readOptional(in),
+                        in.readLong()));
+            }
+
+            count = checkedCount(in.readInt());
+            List<StateSnapshot.Cookie> cookies = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int session = version == 1 ? 0 : in.readInt();
+                cookies.add(new StateSnapshot.Cookie(session, in.readUTF(), in.readUTF(), readOptional(in),
+                        readOptional(in), in.readLong(), in.readBoolean(), in.readBoolean()));
+            }
+
+            List<StateSnapshot.Session> sessions = new ArrayList<>();
+            if (version > 1) {
+                count = checkedCount(in.readInt());
+                for (int i = 0; i < count; i++) {
+                    sessions.add(new StateSnapshot.Session(in.readInt(), in.readLong(), in.readLong(), in.readInt()));
+                }
+            }
+
+            long expected = crc.getValue();
+            if (new DataInputStream(file).readLong() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+            return new StateSnapshot(writtenAt, clean, endpoint, keys, states, schedules, validators, cookies,
+                    sessions);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static void writeOptional(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readOptional(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // A corrupt count would otherwise turn into a huge allocation before the CRC check
+    private static int checkedCount(int count) throws IOException {
+        if (count < 0 || count > 50_000_000) {
+            throw new IOException("Corrupt snapshot: count " + count);
+        }
+        return count;
+    }
+}
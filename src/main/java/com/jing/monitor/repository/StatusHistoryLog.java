@@ -0,0 +1,423 @@
+package com.jing.monitor.repository;
+
+import com.jing.monitor.model.HistoryRecord;
+import com.jing.monitor.model.StatusMapping;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped binary log of section status history (replaces the per-line CSV writer).
+ * * Layout:
+ * 1. Segment files history-NNNNNN.seg of a fixed size, each starting with one header slot
+ *    (magic, version, record size), followed by 24-byte records:
+ *    timestamp long | section int | course int | status byte | previous byte | kind byte | reserved byte |
+ *    CRC32C int of the 20 bytes before it. Status bytes are 0 for unknown, ordinal + 1 otherwise.
+ * 2. The OS writes dirty pages back in no particular order, so after a crash the tail of a segment may hold
+ *    torn records, zeroed slots followed by written ones, or both. A record counts only if its checksum matches
+ *    and its kind and status bytes are in range; the data ends at the first one that does not.
+ *    On restart the newest segment is scanned up to that point and anything after it is zeroed,
+ *    so stale records from before the crash can never reappear behind new ones.
+ *    Version 1 segments (20-byte records without a checksum) are still replayed, but never appended to.
+ * 3. One long-lived mapping per segment: an append is a handful of stores into the page cache under a lock.
+ *    A full segment is forced to disk and the next one is mapped; the oldest segments beyond max-segments are deleted.
+ * 4. Group flush: a background thread forces the dirty range to disk every flush-interval-ms,
+ *    outside the append lock, so writers never wait for an msync.
+ */
+@Repository
+@Lazy(false)
+public class StatusHistoryLog {
+
+    public static final int RECORD_BYTES = 24;
+
+    private static final int MAGIC = 0x53484C31; // "SHL1"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = RECORD_BYTES;
+    // Bytes covered by the checksum, which follows them
+    private static final int PAYLOAD_BYTES = 20;
+    private static final int LEGACY_VERSION = 1;
+    private static final int LEGACY_RECORD_BYTES = 20;
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final StatusMapping[] STATUSES = StatusMapping.values();
+    private static final HistoryRecord.Kind[] KINDS = HistoryRecord.Kind.values();
+
+    private final Path directory;
+    private final boolean enabled;
+    private final int segmentBytes;
+    private final long flushIntervalMs;
+    private final int maxSegments;
+
+    // Guarded by this
+    private int segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private int flushedPosition;
+    private final byte[] scratch = new byte[PAYLOAD_BYTES];
+    private final CRC32C crc = new CRC32C();
+
+    private ScheduledExecutorService flusher;
+    private final AtomicLong appended = new AtomicLong();
+
+    public StatusHistoryLog(@Value("${monitor.history.dir:logs/history}") String directory,
+                            @Value("${monitor.history.enabled:true}") boolean enabled,
+                            @Value("${monitor.history.segment-records:3000000}") int segmentRecords,
+                            @Value("${monitor.history.flush-interval-ms:1000}") long flushIntervalMs,
+                            @Value("${monitor.history.max-segments:32}") int maxSegments) {
+        if (segmentRecords <= 0 || segmentRecords > (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES) {
+            throw new IllegalArgumentException("monitor.history.segment-records out of range: " + segmentRecords);
+        }
+        this.directory = Path.of(directory);
+        this.enabled = enabled;
+        this.segmentBytes = HEADER_BYTES + segmentRecords * RECORD_BYTES;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled) {
+            System.out.println("[History] Disabled.");
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments();
+            if (segments.isEmpty()) {
+                openSegment(1, true);
+            } else {
+                Path newest = segments.get(segments.size() - 1);
+                openSegment(segmentNumber(newest), false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open history log in " + directory.toAbsolutePath(), e);
+        }
+
+        if (flushIntervalMs > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r ->
+                    Thread.ofPlatform().name("history-flush").daemon(true).unstarted(r));
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        System.out.println("[History] Appending to " + segmentPath(segmentIndex).toAbsolutePath()
+                + " at record " + (position - HEADER_BYTES) / RECORD_BYTES + ".");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        synchronized (this) {
+            if (buffer == null) {
+                return;
+            }
+            buffer.force();
+            closeChannel();
+            buffer = null;
+        }
+    }
+
+    /**
+     * Appends one record. Never blocks on disk I/O.
+     *
+     * @param sectionId Numeric section id (see SectionStateTable.key).
+     * @param courseId  Numeric course id.
+     * @param previous  Status before this poll, or null if unknown.
+     * @return false if the log is disabled or closed.
+     */
+    public synchronized boolean append(long timestamp, int sectionId, int courseId,
+                                       StatusMapping status, StatusMapping previous, HistoryRecord.Kind kind) {
+        if (buffer == null) {
+            return false;
+        }
+        if (position + RECORD_BYTES > segmentBytes) {
+            roll();
+        }
+        ByteBuffer payload = ByteBuffer.wrap(scratch);
+        payload.putLong(timestamp).putInt(sectionId).putInt(courseId)
+                .put(code(status)).put(code(previous)).put((byte) kind.ordinal()).put((byte) 0);
+        int at = position;
+        buffer.put(at, scratch);
+        buffer.putInt(at + PAYLOAD_BYTES, checksum(crc, scratch));
+        position = at + RECORD_BYTES;
+        appended.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Forces everything appended so far to disk. Called by the flusher thread; safe to call at any time.
+     */
+    public void flush() {
+        MappedByteBuffer target;
+        int from;
+        int to;
+        synchronized (this) {
+            if (buffer == null || position == flushedPosition) {
+                return;
+            }
+            target = buffer;
+            from = flushedPosition;
+            to = position;
+            flushedPosition = position;
+        }
+        // The mapping stays valid even if the segment rolls meanwhile; roll() forces the old one in full
+        target.force(from, to - from);
+    }
+
+    /**
+     * A position in the log: everything appended before it.
+     */
+    public record Mark(int segment, int position) {}
+
+    /**
+     * @return The current end of the log; a replay up to it sees exactly the records appended so far.
+     */
+    public synchronized Mark mark() {
+        return new Mark(segmentIndex, position);
+    }
+
+    /**
+     * Reads every record in append order, oldest segment first.
+     * Records appended while the replay is running are not included.
+     */
+    public void replay(Consumer<HistoryRecord> consumer) {
+        replay(mark(), consumer);
+    }
+
+    /**
+     * Reads every record appended before the mark, in append order, oldest segment first.
+     */
+    public void replay(Mark upTo, Consumer<HistoryRecord> consumer) {
+        if (!enabled) {
+            return;
+        }
+        int lastSegment = upTo.segment();
+        int lastPosition = upTo.position();
+        byte[] payload = new byte[PAYLOAD_BYTES];
+        CRC32C check = new CRC32C();
+        try {
+            for (Path segment : segments()) {
+                int number = segmentNumber(segment);
+                if (number > lastSegment) {
+                    break;
+                }
+                try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                    int end = number == lastSegment ? Math.min(lastPosition, data.capacity()) : data.capacity();
+                    int recordBytes = recordBytes(data);
+                    if (recordBytes == 0) {
+                        System.err.println("[History] Skipping segment with bad header: " + segment);
+                        continue;
+                    }
+                    boolean legacy = recordBytes == LEGACY_RECORD_BYTES;
+                    int at = recordBytes;
+                    for (; at + recordBytes <= end; at += recordBytes) {
+                        if (!(legacy ? validLegacyRecord(data, at) : validRecord(data, at, payload, check))) {
+                            break;
+                        }
+                        consumer.accept(new HistoryRecord(data.getLong(at), data.getInt(at + 8), data.getInt(at + 12),
+                                status(data.get(at + 16)), status(data.get(at + 17)), KINDS[data.get(at + 18)]));
+                    }
+                    if (at + recordBytes <= end && !emptySlot(data, at, recordBytes)) {
+                        System.err.println("[History] Stopped at a damaged record in " + segment.getFileName()
+                                + " after " + (at - recordBytes) / recordBytes + " records.");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read history log in " + directory.toAbsolutePath(), e);
+        }
+    }
+
+    public long appendedRecords() {
+        return appended.get();
+    }
+
+    // ==================== Segments ====================
+
+    // Caller holds the lock
+    private void roll() {
+        buffer.force();
+        closeChannel();
+        try {
+            openSegment(segmentIndex + 1, true);
+            List<Path> segments = segments();
+            for (int i = 0; i < segments.size() - maxSegments; i++) {
+                Files.deleteIfExists(segments.get(i));
+                System.out.println("[History] Deleted old segment " + segments.get(i).getFileName() + ".");
+            }
+        } catch (IOException e) {
+            buffer = null;
+            throw new UncheckedIOException("Cannot roll history log in " + directory.toAbsolutePath(), e);
+        }
+    }
+
+    // Caller holds the lock
+    private void openSegment(int number, boolean create) throws IOException {
+        Path path = segmentPath(number);
+        if (!create && !currentFormat(path)) {
+            // Checked before mapping: mapping would grow a segment of another format to this size
+            System.err.println("[History] " + path.getFileName() + " has a bad header or an older format, "
+                    + "starting a new segment.");
+            openSegment(number + 1, true);
+            return;
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segmentIndex = number;
+
+        if (create) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_BYTES);
+            position = HEADER_BYTES;
+        } else {
+            position = findEnd(path, buffer);
+        }
+        flushedPosition = position;
+    }
+
+    // The data ends at the first invalid record; whatever lies beyond it is crash debris and is zeroed,
+    // or it would be read back once new appends reach it
+    private int findEnd(Path path, MappedByteBuffer data) {
+        byte[] payload = new byte[PAYLOAD_BYTES];
+        CRC32C check = new CRC32C();
+        int end = HEADER_BYTES;
+        while (end + RECORD_BYTES <= segmentBytes && validRecord(data, end, payload, check)) {
+            end += RECORD_BYTES;
+        }
+        int cleared = 0;
+        for (int at = end; at + Long.BYTES <= segmentBytes; at += Long.BYTES) {
+            if (data.getLong(at) != 0) {
+                data.putLong(at, 0);
+                cleared += Long.BYTES;
+            }
+        }
+        if (cleared > 0) {
+            data.force();
+            System.err.println("[History] Cleared " + cleared + " bytes of torn records after record "
+                    + (end - HEADER_BYTES) / RECORD_BYTES + " in " + path.getFileName() + ".");
+        }
+        return end;
+    }
+
+    private static boolean currentFormat(Path path) throws IOException {
+        byte[] bytes;
+        try (InputStream in = Files.newInputStream(path)) {
+            bytes = in.readNBytes(12);
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        return bytes.length == 12 && header.getInt(0) == MAGIC
+                && header.getInt(4) == VERSION && header.getInt(8) == RECORD_BYTES;
+    }
+
+    // Record (and header) size of the segment's format, or 0 if the header is not one this log wrote
+    private static int recordBytes(MappedByteBuffer data) {
+        if (data.capacity() < 12 || data.getInt(0) != MAGIC) {
+            return 0;
+        }
+        int version = data.getInt(4);
+        int recordBytes = data.getInt(8);
+        if (version == VERSION && recordBytes == RECORD_BYTES
+                || version == LEGACY_VERSION && recordBytes == LEGACY_RECORD_BYTES) {
+            return recordBytes;
+        }
+        return 0;
+    }
+
+    private static boolean validRecord(MappedByteBuffer data, int at, byte[] payload, CRC32C check) {
+        data.get(at, payload);
+        return data.getInt(at + PAYLOAD_BYTES) == checksum(check, payload) && validFields(data, at);
+    }
+
+    // Version 1 has no checksum: only an unwritten timestamp or an out-of-range byte is detectable
+    private static boolean validLegacyRecord(MappedByteBuffer data, int at) {
+        return data.getLong(at) != 0 && validFields(data, at);
+    }
+
+    private static boolean validFields(MappedByteBuffer data, int at) {
+        return validStatus(data.get(at + 16)) && validStatus(data.get(at + 17))
+                && data.get(at + 18) >= 0 && data.get(at + 18) < KINDS.length;
+    }
+
+    private static boolean emptySlot(MappedByteBuffer data, int at, int recordBytes) {
+        for (int i = 0; i < recordBytes; i++) {
+            if (data.get(at + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int checksum(CRC32C check, byte[] payload) {
+        check.reset();
+        check.update(payload, 0, PAYLOAD_BYTES);
+        return (int) check.getValue();
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[History] Failed to close segment: " + e.getMessage());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> segmentNumber(p) > 0).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static byte code(StatusMapping status) {
+        return (byte) (status == null ? 0 : status.ordinal() + 1);
+    }
+
+    private static boolean validStatus(byte code) {
+        return code >= 0 && code <= STATUSES.length;
+    }
+
+    private static StatusMapping status(byte code) {
+        return code <= 0 || code > STATUSES.length ? null : STATUSES[code - 1];
+    }
+}
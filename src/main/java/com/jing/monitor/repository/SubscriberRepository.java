@@ -0,0 +1,13 @@
+package com.jing.monitor.repository;
+
+import com.jing.monitor.model.Subscriber;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SubscriberRepository extends JpaRepository<Subscriber, Long> {
+
+    Optional<Subscriber> findByEmail(String email);
+}
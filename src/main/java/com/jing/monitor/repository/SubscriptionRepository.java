@@ -0,0 +1,30 @@
+package com.jing.monitor.repository;
+
+import com.jing.monitor.model.Subscription;
+import com.jing.monitor.model.SubscriptionView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SubscriptionRepository extends JpaRepository<Subscription, Long> {
+
+    List<Subscription> findBySubscriberIdOrderBySectionId(Long subscriberId);
+
+    long deleteBySubscriberIdAndSectionId(Long subscriberId, String sectionId);
+
+    // 删除课程时一并删除其 section 的订阅, 否则订阅会让已删除的课程继续留在轮询集合里
+    @Modifying
+    @Query("delete from Subscription s where s.sectionId in :sectionIds")
+    int deleteBySectionIdIn(@Param("sectionIds") Collection<String> sectionIds);
+
+    // 启动时构建内存索引: 只读三列, 跳过停用的订阅者
+    @Query("select s.sectionId as sectionId, s.courseId as courseId, s.subscriber.email as email"
+            + " from Subscription s where s.subscriber.active = true")
+    List<SubscriptionView> findAllActive();
+}
@@ -1,10 +1,23 @@
 package com.jing.monitor.repository;
 
+import com.jing.monitor.model.StatusMapping;
 import com.jing.monitor.model.Task;
+import com.jing.monitor.model.TaskStateView;
+import com.jing.monitor.model.dto.TaskRespDto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * TaskRepository
@@ -16,7 +29,66 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
 
     List<Task> findByEnabledTrue();
 
+    // 调度器每个 tick 只需要去重后的课程 ID, 不加载实体
+    @Query("select distinct t.courseId from Task t where t.enabled = true")
+    List<String> findEnabledCourseIds();
+
     Task findBySectionId(String sectionId);
 
+    // 批量查询: 一个课程的所有 section 只用一条 SELECT ... WHERE section_id IN (...)
+    List<Task> findBySectionIdIn(Collection<String> sectionIds);
+
+    List<Task> findByCourseDisplayName(String courseDisplayName);
+
     void deleteAllByCourseDisplayName(String courseDisplayName);
+
+    // 调度器同步前确认课程仍被跟踪 (删除后不应被自动发现重新插入)
+    boolean existsByCourseId(String courseId);
+
+    // 只读取三列, 用于启动时加载内存状态表
+    @Query("select t.sectionId as sectionId, t.lastStatus as lastStatus, t.enabled as enabled from Task t")
+    List<TaskStateView> findAllStates();
+
+    // 集群模式: 接管课程时从数据库刷新这些课程的内存状态 (其他节点可能已经写过)
+    @Query("select t.sectionId as sectionId, t.lastStatus as lastStatus, t.enabled as enabled"
+            + " from Task t where t.courseId in :courseIds")
+    List<TaskStateView> findStatesByCourseIdIn(@Param("courseIds") Collection<String> courseIds);
+
+    // 集群模式: 条件更新 (CAS), 只有状态仍为 expected 时才写入; 返回 0 表示其他节点已经处理了这次变化
+    @Modifying
+    @Query("update Task t set t.lastStatus = :next where t.sectionId = :sectionId"
+            + " and (t.lastStatus = :expected or (:expected is null and t.lastStatus is null))")
+    int compareAndSetStatus(@Param("sectionId") String sectionId,
+                            @Param("expected") StatusMapping expected,
+                            @Param("next") StatusMapping next);
+
+    // 列表接口: 直接构造 DTO, 只读 TaskRespDto 需要的六列, 不产生托管实体
+    String ROW = "select new com.jing.monitor.model.dto.TaskRespDto("
+            + "t.id, t.sectionId, t.courseId, t.courseDisplayName, t.lastStatus, t.enabled) from Task t";
+
+    // 可选过滤条件, 参数为 null 表示不过滤; course 同时匹配 courseId 和 courseDisplayName
+    String FILTER = " where (:enabled is null or t.enabled = :enabled)"
+            + " and (:status is null or t.lastStatus = :status)"
+            + " and (:course is null or t.courseId = :course or t.courseDisplayName = :course)";
+
+    @Query(value = ROW + FILTER, countQuery = "select count(t) from Task t" + FILTER)
+    Page<TaskRespDto> findRows(@Param("enabled") Boolean enabled,
+                               @Param("status") StatusMapping status,
+                               @Param("course") String course,
+                               Pageable pageable);
+
+    @Query(ROW)
+    List<TaskRespDto> findAllRows();
+
+    // 手动刷新接口: 一个课程的所有 section
+    @Query(ROW + " where t.courseId = :courseId order by t.sectionId")
+    List<TaskRespDto> findRowsByCourseId(@Param("courseId") String courseId);
+
+    // 全量导出: 逐行流式读取 (MySQL 驱动中 fetch size = Integer.MIN_VALUE 表示按行流式返回), 必须在事务内消费并关闭
+    @Query(ROW + " order by t.courseDisplayName, t.sectionId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<TaskRespDto> streamAllRows();
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.MonitorMetrics;
+import com.jing.monitor.model.AlertEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decouples seat detection from email delivery.
+ * * Strategy:
+ * 1. The poller only enqueues into a bounded queue (never blocks on SMTP).
+ * 2. A single sender thread waits for the first alert, then keeps collecting for a short coalescing window,
+ *    so 12 sections opening at once become one digest instead of 12 emails.
+ * 3. The whole batch is handed to MailService in one call, which reuses one SMTP connection.
+ * Send time and detection-to-delivery latency are recorded in MonitorMetrics.
+ */
+@Service
+@Lazy(false)
+public class AlertDispatcher {
+
+    private final MailService mailService;
+    private final MonitorMetrics metrics;
+    private final BlockingQueue<AlertEvent> queue;
+    private final long coalesceWindowMs;
+
+    private Thread sender;
+    private volatile boolean running;
+
+    public AlertDispatcher(MailService mailService,
+                           MonitorMetrics metrics,
+                           @Value("${monitor.alerts.queue-capacity:1000}") int queueCapacity,
+                           @Value("${monitor.alerts.coalesce-window-ms:5000}") long coalesceWindowMs) {
+        this.mailService = mailService;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.coalesceWindowMs = coalesceWindowMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        sender = Thread.ofPlatform().name("alert-sender").daemon(true).start(this::senderLoop);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        sender.interrupt();
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queues an alert for delivery. Never blocks; if the queue is full the alert is dropped and logged.
+     *
+     * @return false if the alert was dropped.
+     */
+    public boolean enqueue(AlertEvent alert) {
+        if (queue.offer(alert)) {
+            return true;
+        }
+        System.err.println("[Alert] Queue full (" + queue.size() + "), dropping alert for section " + alert.section());
+        return false;
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    private void senderLoop() {
+        while (running) {
+            List<AlertEvent> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+
+                // Coalescing window: everything that arrives shortly after the first alert rides along
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(coalesceWindowMs);
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    AlertEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: flush whatever is already queued instead of losing it
+                queue.drainTo(batch);
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        }
+    }
+
+    private void send(List<AlertEvent> batch) {
+        long start = System.nanoTime();
+        boolean sent = mailService.sendDigest(batch);
+        metrics.recordAlertSend(sent, System.nanoTime() - start);
+        if (sent) {
+            long now = System.currentTimeMillis();
+            for (AlertEvent alert : batch) {
+                metrics.recordAlertDelivery(now - alert.detectedAt());
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.model.PollerNode;
+import com.jing.monitor.repository.PollerNodeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Splits the polled courses between the running instances, using the existing datasource as the registry.
+ * * Strategy:
+ * 1. Every node upserts its row in poller_nodes every heartbeat-ms on its own thread (a long poll cycle
+ *    cannot delay it). Rows older than node-timeout-ms are dead.
+ * 2. Each course belongs to the live node with the highest hash(node, course) (rendezvous hashing).
+ *    Every node computes the same owner from the same sorted node list; no locks or leases per course.
+ * 3. When a node joins or dies only the courses it gains or loses move; the rest keep their owner,
+ *    their fingerprints and their poll plans.
+ * 4. A node whose own heartbeat has not succeeded within the node timeout owns nothing: the others
+ *    already consider it dead and have taken over its courses.
+ * Ownership only prevents duplicate polling. During a rebalance two nodes may briefly poll the same
+ * course; SchedulerService makes the alert itself at-most-once with a conditional status update.
+ * Disabled (the default), the single instance owns every course and never touches the table.
+ */
+@Service
+@Lazy(false)
+public class ClusterMembership {
+
+    // Dead rows are kept for a while for inspection, then removed by whichever node heartbeats
+    private static final int STALE_ROW_TIMEOUTS = 10;
+
+    private final PollerNodeRepository nodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long heartbeatMs;
+    private final long nodeTimeoutMs;
+    private final LongSupplier clock;
+    private final long startedAt;
+
+    private volatile List<String> liveNodes;
+    private volatile long lastBeatAt;
+    private Thread heartbeat;
+    private volatile boolean running;
+
+    @Autowired
+    public ClusterMembership(PollerNodeRepository nodeRepository,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${monitor.cluster.enabled:false}") boolean enabled,
+                             @Value("${monitor.cluster.node-id:}") String nodeId,
+                             @Value("${monitor.cluster.heartbeat-ms:10000}") long heartbeatMs,
+                             @Value("${monitor.cluster.node-timeout-ms:30000}") long nodeTimeoutMs) {
+        this(nodeRepository, transactionTemplate, enabled, nodeId, heartbeatMs, nodeTimeoutMs, System::currentTimeMillis);
+    }
+
+    ClusterMembership(PollerNodeRepository nodeRepository, TransactionTemplate transactionTemplate, boolean enabled,
+                      String nodeId, long heartbeatMs, long nodeTimeoutMs, LongSupplier clock) {
+        this.nodeRepository = nodeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId.trim();
+        this.heartbeatMs = Math.max(100, heartbeatMs);
+        // A node must miss at least two heartbeats before it is declared dead
+        this.nodeTimeoutMs = Math.max(2 * this.heartbeatMs, nodeTimeoutMs);
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+        this.liveNodes = List.of(this.nodeId);
+    }
+
+    /**
+     * A membership for a single instance: owns every course, no registry.
+     */
+    public static ClusterMembership standalone() {
+        return new ClusterMembership(null, null, false, "standalone", 10000, 30000);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        heartbeat();
+        running = true;
+        heartbeat = Thread.ofPlatform().name("cluster-heartbeat").daemon(true).start(this::heartbeatLoop);
+        System.out.println("[Cluster] Node " + nodeId + " joined; live nodes: " + liveNodes + ".");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        if (heartbeat != null) {
+            heartbeat.interrupt();
+            heartbeat.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        leave();
+    }
+
+    /**
+     * Removes this node's row, so the others take over its courses right away instead of after the timeout.
+     */
+    public void leave() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> nodeRepository.deleteById(nodeId));
+            System.out.println("[Cluster] Node " + nodeId + " left.");
+        } catch (RuntimeException e) {
+            System.err.println("[Cluster] Could not deregister " + nodeId + ": " + e.getMessage());
+        }
+    }
+
+    private void heartbeatLoop() {
+        while (running) {
+            try {
+                Thread.sleep(heartbeatMs);
+                heartbeat();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Keep the previous view; if this lasts past the timeout, owns() stops claiming courses
+                System.err.println("[Cluster] Heartbeat failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes this node's heartbeat and refreshes the list of live nodes.
+     */
+    public void heartbeat() {
+        long now = clock.getAsLong();
+        List<String> nodes = transactionTemplate.execute(status -> {
+            PollerNode node = nodeRepository.findById(nodeId).orElseGet(() -> new PollerNode(nodeId, startedAt));
+            node.setLastHeartbeat(now);
+            nodeRepository.save(node);
+            nodeRepository.deleteStale(now - STALE_ROW_TIMEOUTS * nodeTimeoutMs);
+            return nodeRepository.findLiveNodeIds(now - nodeTimeoutMs);
+        });
+        if (!nodes.equals(liveNodes)) {
+            System.out.println("[Cluster] Live nodes changed: " + liveNodes + " -> " + nodes + ".");
+        }
+        liveNodes = List.copyOf(nodes);
+        lastBeatAt = now;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return Live nodes as of the last heartbeat, sorted by id.
+     */
+    public List<String> liveNodes() {
+        return liveNodes;
+    }
+
+    public boolean owns(String courseId) {
+        if (!enabled) {
+            return true;
+        }
+        if (clock.getAsLong() - lastBeatAt > nodeTimeoutMs) {
+            return false;
+        }
+        return nodeId.equals(owner(courseId, liveNodes));
+    }
+
+    /**
+     * @return The subset of courses this node should poll (all of them when clustering is disabled).
+     */
+    public Set<String> ownedCourses(Collection<String> courses) {
+        if (!enabled) {
+            return new HashSet<>(courses);
+        }
+        Set<String> owned = new HashSet<>();
+        if (clock.getAsLong() - lastBeatAt > nodeTimeoutMs) {
+            return owned;
+        }
+        List<String> nodes = liveNodes;
+        for (String courseId : courses) {
+            if (nodeId.equals(owner(courseId, nodes))) {
+                owned.add(courseId);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Rendezvous hashing: the node with the highest score for the course wins, ties go to the smaller id.
+     *
+     * @return The owning node, or null if there are no nodes.
+     */
+    static String owner(String courseId, List<String> nodes) {
+        String best = null;
+        long bestScore = 0;
+        int course = courseId.hashCode();
+        for (String node : nodes) {
+            long score = mix(((long) node.hashCode() << 32) ^ (course & 0xffffffffL));
+            if (best == null || score > bestScore || (score == bestScore && node.compareTo(best) < 0)) {
+                best = node;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    // MurmurHash3 finalizer: spreads the combined hash so similar ids get unrelated scores
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
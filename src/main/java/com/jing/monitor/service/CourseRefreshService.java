@@ -0,0 +1,73 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.CourseFetchResult;
+import com.jing.monitor.core.CourseRefreshCache;
+import com.jing.monitor.model.dto.CourseRefreshRespDto;
+import com.jing.monitor.model.dto.TaskRespDto;
+import com.jing.monitor.repository.TaskRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * "Refresh now" for one tracked course, without waiting for its next scheduled poll.
+ * Goes through the scheduler's freshness cache: a recent poll is returned as is, and a poll already in flight
+ * (another user's refresh or the cycle itself) is joined, so a refresh rush never multiplies API traffic.
+ * The caller's thread waits at most max-permit-wait-ms for the request budget, or for the poll it joined. If either
+ * takes longer, the last synced statuses are returned as DEFERRED (with their age) and the next cycle (or the poll
+ * in flight) updates the course.
+ */
+@Service
+public class CourseRefreshService {
+
+    private final SchedulerService scheduler;
+    private final TaskRepository taskRepository;
+    private final CourseRefreshCache refreshCache;
+    private final long maxPermitWaitMs;
+
+    public CourseRefreshService(SchedulerService scheduler, TaskRepository taskRepository,
+                                CourseRefreshCache refreshCache,
+                                @Value("${monitor.refresh.max-permit-wait-ms:2000}") long maxPermitWaitMs) {
+        this.scheduler = scheduler;
+        this.taskRepository = taskRepository;
+        this.refreshCache = refreshCache;
+        this.maxPermitWaitMs = maxPermitWaitMs;
+    }
+
+    /**
+     * @throws RuntimeException if the course is not tracked, or the poll failed (blocked, network error).
+     */
+    public CourseRefreshRespDto refresh(String courseId) {
+        // Only tracked courses: the endpoint must not turn into an open proxy to the enrollment API
+        List<TaskRespDto> sections = taskRepository.findRowsByCourseId(courseId);
+        if (sections.isEmpty()) {
+            throw new RuntimeException("Course not tracked: " + courseId);
+        }
+
+        CourseRefreshCache.Refresh refresh = scheduler.refreshCourse(courseId, maxPermitWaitMs);
+        if (refresh == null) {
+            throw new RuntimeException("Refresh failed or blocked for course: " + courseId + ". Try again later.");
+        }
+        if (refresh.outcome() == CourseFetchResult.Outcome.CHANGED) {
+            // The poll may have committed after the read above
+            sections = taskRepository.findRowsByCourseId(courseId);
+        }
+
+        CourseRefreshRespDto resp = new CourseRefreshRespDto();
+        resp.setCourseId(courseId);
+        resp.setOutcome(refresh.outcome().name());
+        resp.setTransitions(refresh.transitions());
+        resp.setSections(sections);
+        if (refresh.outcome() == CourseFetchResult.Outcome.DEFERRED) {
+            // The sections are as of the last completed poll, if this node has made one
+            CourseRefreshCache.Refresh last = refreshCache.lastPoll(courseId);
+            resp.setFetchedAt(last == null ? 0 : last.fetchedAt());
+            resp.setAgeMs(last == null ? -1 : Math.max(0, System.currentTimeMillis() - last.fetchedAt()));
+            return resp;
+        }
+        resp.setFetchedAt(refresh.fetchedAt());
+        resp.setAgeMs(Math.max(0, System.currentTimeMillis() - refresh.fetchedAt()));
+        return resp;
+    }
+}
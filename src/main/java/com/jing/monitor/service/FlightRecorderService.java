@@ -0,0 +1,120 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.model.dto.RecordingDumpDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Always-on Java Flight Recorder recording of the poller (see MonitorEvents).
+ * * Strategy:
+ * 1. Started with the application: the JDK "default" settings (the low-overhead continuous profile)
+ *    plus the overrides of jfr/monitor.jfc, which enable the poller events and finer socket thresholds.
+ * 2. Kept in a disk-backed ring bounded by max-age-ms and max-size-mb, so it can run for months.
+ * 3. dump() copies what is in the ring to dump-dir, to open in JDK Mission Control or `jfr print`.
+ *    The recording keeps running.
+ * A JVM started with -XX:StartFlightRecording is unaffected: both recordings see the same events.
+ */
+@Service
+@Lazy(false)
+public class FlightRecorderService {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final boolean enabled;
+    private final Resource settings;
+    private final long maxAgeMs;
+    private final long maxSizeMb;
+    private final Path dumpDir;
+
+    private Recording recording;
+
+    public FlightRecorderService(@Value("${monitor.jfr.enabled:true}") boolean enabled,
+                                 @Value("${monitor.jfr.settings:classpath:jfr/monitor.jfc}") Resource settings,
+                                 @Value("${monitor.jfr.max-age-ms:3600000}") long maxAgeMs,
+                                 @Value("${monitor.jfr.max-size-mb:64}") long maxSizeMb,
+                                 @Value("${monitor.jfr.dump-dir:logs/jfr}") String dumpDir) {
+        this.enabled = enabled;
+        this.settings = settings;
+        this.maxAgeMs = maxAgeMs;
+        this.maxSizeMb = maxSizeMb;
+        this.dumpDir = Path.of(dumpDir);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || recording != null) {
+            return;
+        }
+        try {
+            Map<String, String> values = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+            try (Reader reader = new InputStreamReader(settings.getInputStream(), StandardCharsets.UTF_8)) {
+                values.putAll(Configuration.create(reader).getSettings());
+            }
+            Recording r = new Recording(values);
+            r.setName("course-monitor");
+            r.setToDisk(true);
+            r.setMaxAge(Duration.ofMillis(maxAgeMs));
+            r.setMaxSize(maxSizeMb * 1024 * 1024);
+            r.start();
+            recording = r;
+            System.out.println("[JFR] Recording started (" + settings.getFilename() + ", last "
+                    + (maxAgeMs / 60_000) + " min / " + maxSizeMb + " MB kept).");
+        } catch (IOException | ParseException | RuntimeException e) {
+            // Profiling is optional: never keep the poller from starting
+            System.err.println("[JFR] Could not start the recording: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Writes the recording so far to a new file in dump-dir.
+     */
+    public synchronized RecordingDumpDto dump() {
+        if (recording == null) {
+            throw new RuntimeException("Flight recording is not running (monitor.jfr.enabled=false?)");
+        }
+        try {
+            Files.createDirectories(dumpDir);
+            Path file = dumpDir.resolve("monitor-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+            recording.dump(file);
+
+            RecordingDumpDto dto = new RecordingDumpDto();
+            dto.setPath(file.toAbsolutePath().toString());
+            dto.setSizeBytes(Files.size(file));
+            dto.setRecordingSince(recording.getStartTime().toEpochMilli());
+            return dto;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not dump the flight recording: " + e.getMessage(), e);
+        }
+    }
+}
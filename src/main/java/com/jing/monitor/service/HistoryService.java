@@ -0,0 +1,289 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.SectionStateTable;
+import com.jing.monitor.model.HistoryRecord;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.model.dto.SectionHistoryDto;
+import com.jing.monitor.model.dto.TransitionDto;
+import com.jing.monitor.repository.StatusHistoryLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Query side of the status history.
+ * * Strategy:
+ * 1. Every record goes to the StatusHistoryLog (durable) and is folded into a per-section aggregate (in memory).
+ * 2. Aggregates are updated incrementally: an opening bumps a counter and an hour bucket, a close adds the
+ *    finished open period to the running total. Queries never scan the log.
+ * 3. Once the application is up the aggregates are rebuilt by replaying the log on a background thread:
+ *    a large log takes tens of seconds to read and the poller must not wait for it. Records written meanwhile go to the
+ *    log at once and are folded in after the replay, which stops at the end of the log as of its start.
+ *    Queries are refused until the rebuild is done (see {@link #isReady()}).
+ * 4. Each section keeps its most recent transitions (timeline-limit) for the timeline endpoint.
+ * Aggregates follow their own last status rather than the record's "previous" field,
+ * so a replay and the live path always agree.
+ */
+@Service
+public class HistoryService {
+
+    private static final int HOURS = 24;
+
+    private final StatusHistoryLog historyLog;
+    private final int timelineLimit;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Map<Integer, SectionAggregate> sections = new ConcurrentHashMap<>();
+
+    // Serializes live records with a rebuild's start and catch-up: each record is appended and then either
+    // buffered (while a rebuild replays the log) or applied, with no rebuild starting in between
+    private final Object rebuildLock = new Object();
+    // Records written while a rebuild is running, in append order; null when no rebuild is running
+    private List<HistoryRecord> pending;
+    private volatile boolean ready;
+
+    private record Transition(long timestamp, StatusMapping from, StatusMapping to) {}
+
+    private static final class SectionAggregate {
+        int courseId;
+        StatusMapping status;
+        long firstSeen;
+        long lastSeen;
+        long openSince;
+        int openings;
+        int waitlistOpenings;
+        int completedOpenPeriods;
+        long completedOpenMs;
+        // Allocated on the first transition; most sections never change
+        int[] openingsByHour;
+        ArrayDeque<Transition> timeline;
+    }
+
+    public HistoryService(StatusHistoryLog historyLog,
+                          @Value("${monitor.history.timeline-limit:500}") int timelineLimit) {
+        this.historyLog = historyLog;
+        this.timelineLimit = Math.max(1, timelineLimit);
+    }
+
+    /**
+     * Starts the rebuild on its own thread once the application is up, so neither startup nor the first
+     * poll cycle waits for the replay or competes with it for CPU and disk.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread.ofPlatform().name("history-rebuild").daemon(true).start(this::rebuild);
+    }
+
+    /**
+     * Rebuilds every aggregate from the log on the calling thread. Live records may keep coming in meanwhile.
+     */
+    public void rebuild() {
+        StatusHistoryLog.Mark end;
+        synchronized (rebuildLock) {
+            ready = false;
+            sections.clear();
+            pending = new ArrayList<>();
+            end = historyLog.mark();
+        }
+        long start = System.currentTimeMillis();
+        long[] records = new long[1];
+        try {
+            historyLog.replay(end, record -> {
+                apply(record.timestamp(), record.sectionId(), record.courseId(), record.status());
+                records[0]++;
+            });
+        } finally {
+            int caughtUp;
+            synchronized (rebuildLock) {
+                caughtUp = pending.size();
+                for (HistoryRecord record : pending) {
+                    apply(record.timestamp(), record.sectionId(), record.courseId(), record.status());
+                }
+                pending = null;
+                ready = true;
+            }
+            System.out.println("[History] Rebuilt " + sections.size() + " section aggregates from " + records[0]
+                    + " records (+" + caughtUp + " written meanwhile) in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        }
+    }
+
+    /**
+     * @return Whether the startup rebuild is done; until then the aggregates are incomplete.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Appends one observation to the log and folds it into the section's aggregate. Both happen under the
+     * rebuild lock, so a rebuild starts either before the record (which is buffered and applied after the
+     * replay) or after it was applied (the clear drops it and the replay applies it, exactly once).
+     */
+    public void record(long timestamp, int sectionId, int courseId,
+                       StatusMapping status, StatusMapping previous, HistoryRecord.Kind kind) {
+        synchronized (rebuildLock) {
+            historyLog.append(timestamp, sectionId, courseId, status, previous, kind);
+            if (pending != null) {
+                // After the rebuild's end mark: the replay will not see it, so apply it once the replay is done
+                pending.add(new HistoryRecord(timestamp, sectionId, courseId, status, previous, kind));
+                return;
+            }
+            apply(timestamp, sectionId, courseId, status);
+        }
+    }
+
+    /**
+     * @return Aggregates of one section, or null if it has no history.
+     */
+    public SectionHistoryDto getSectionStats(String sectionId) {
+        SectionAggregate aggregate = aggregateOf(sectionId);
+        if (aggregate == null) {
+            return null;
+        }
+        return toDto(SectionStateTable.key(sectionId), aggregate, System.currentTimeMillis());
+    }
+
+    /**
+     * @return Aggregates of every section of the course, ordered by section id (empty if none).
+     */
+    public List<SectionHistoryDto> getCourseStats(String courseId) {
+        int course = SectionStateTable.key(courseId);
+        List<SectionHistoryDto> result = new ArrayList<>();
+        if (course <= 0) {
+            return result;
+        }
+        long now = System.currentTimeMillis();
+        sections.forEach((section, aggregate) -> {
+            synchronized (aggregate) {
+                if (aggregate.courseId == course) {
+                    result.add(toDto(section, aggregate, now));
+                }
+            }
+        });
+        result.sort(Comparator.comparing(SectionHistoryDto::getSectionId));
+        return result;
+    }
+
+    /**
+     * @return Up to limit transitions of the section, newest first, or null if it has no history.
+     */
+    public List<TransitionDto> getTimeline(String sectionId, int limit) {
+        SectionAggregate aggregate = aggregateOf(sectionId);
+        if (aggregate == null) {
+            return null;
+        }
+        List<TransitionDto> result = new ArrayList<>();
+        synchronized (aggregate) {
+            if (aggregate.timeline == null) {
+                return result;
+            }
+            Iterator<Transition> newestFirst = aggregate.timeline.descendingIterator();
+            while (newestFirst.hasNext() && result.size() < limit) {
+                Transition transition = newestFirst.next();
+                TransitionDto dto = new TransitionDto();
+                dto.setTimestamp(transition.timestamp());
+                dto.setFrom(transition.from() == null ? null : transition.from().name());
+                dto.setTo(transition.to().name());
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    // ==================== Incremental aggregation ====================
+
+    private void apply(long timestamp, int sectionId, int courseId, StatusMapping status) {
+        if (status == null) {
+            return;
+        }
+        SectionAggregate aggregate = sections.computeIfAbsent(sectionId, id -> new SectionAggregate());
+        synchronized (aggregate) {
+            aggregate.courseId = courseId;
+            if (aggregate.firstSeen == 0) {
+                aggregate.firstSeen = timestamp;
+            }
+            aggregate.lastSeen = Math.max(aggregate.lastSeen, timestamp);
+
+            StatusMapping previous = aggregate.status;
+            if (previous == status) {
+                return;
+            }
+
+            if (previous == StatusMapping.OPEN) {
+                aggregate.completedOpenMs += Math.max(0, timestamp - aggregate.openSince);
+                aggregate.completedOpenPeriods++;
+            }
+            if (status == StatusMapping.OPEN) {
+                aggregate.openSince = timestamp;
+            }
+
+            // A first sighting is not an event: the section may have been open for days already
+            if (previous != null) {
+                if (aggregate.openingsByHour == null) {
+                    aggregate.openingsByHour = new int[HOURS];
+                }
+                if (status == StatusMapping.OPEN) {
+                    aggregate.openings++;
+                    aggregate.openingsByHour[Instant.ofEpochMilli(timestamp).atZone(zone).getHour()]++;
+                } else if (status == StatusMapping.WAITLISTED && previous == StatusMapping.CLOSED) {
+                    aggregate.waitlistOpenings++;
+                }
+            }
+
+            if (aggregate.timeline == null) {
+                aggregate.timeline = new ArrayDeque<>();
+            }
+            aggregate.timeline.addLast(new Transition(timestamp, previous, status));
+            if (aggregate.timeline.size() > timelineLimit) {
+                aggregate.timeline.removeFirst();
+            }
+            aggregate.status = status;
+        }
+    }
+
+    private SectionAggregate aggregateOf(String sectionId) {
+        int key = SectionStateTable.key(sectionId);
+        return key > 0 ? sections.get(key) : null;
+    }
+
+    private SectionHistoryDto toDto(int sectionId, SectionAggregate aggregate, long now) {
+        SectionHistoryDto dto = new SectionHistoryDto();
+        synchronized (aggregate) {
+            dto.setSectionId(String.valueOf(sectionId));
+            dto.setCourseId(String.format("%06d", aggregate.courseId));
+            dto.setCurrentStatus(aggregate.status == null ? null : aggregate.status.name());
+            dto.setFirstSeen(aggregate.firstSeen);
+            dto.setLastSeen(aggregate.lastSeen);
+            dto.setOpenings(aggregate.openings);
+            dto.setWaitlistOpenings(aggregate.waitlistOpenings);
+
+            long currentOpenMs = aggregate.status == StatusMapping.OPEN ? Math.max(0, now - aggregate.openSince) : 0;
+            dto.setTotalOpenMs(aggregate.completedOpenMs + currentOpenMs);
+            dto.setAverageOpenMs(aggregate.completedOpenPeriods == 0 ? 0
+                    : aggregate.completedOpenMs / aggregate.completedOpenPeriods);
+
+            int[] byHour = aggregate.openingsByHour == null ? new int[HOURS] : aggregate.openingsByHour.clone();
+            int typicalHour = -1;
+            for (int hour = 0; hour < HOURS; hour++) {
+                if (byHour[hour] > 0 && (typicalHour < 0 || byHour[hour] > byHour[typicalHour])) {
+                    typicalHour = hour;
+                }
+            }
+            dto.setTypicalOpeningHour(typicalHour);
+            dto.setOpeningsByHour(byHour);
+        }
+        return dto;
+    }
+}
@@ -1,10 +1,19 @@
 package com.jing.monitor.service;
 
+import com.jing.monitor.core.MonitorEvents;
+import com.jing.monitor.model.AlertEvent;
+import com.jing.monitor.model.StatusMapping;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 @Service
 public class MailService {
 
@@ -16,45 +25,109 @@ public class MailService {
     @Value("${app.mail.to}")
     private String toEmail;
 
+    // Alerts per digest email; larger batches are split but still sent over one SMTP connection
+    @Value("${monitor.alerts.max-per-digest:50}")
+    private int maxPerDigest;
+
     // Construct function injects JavaMailSender
     public MailService(JavaMailSender mailSender) {
         this.mailSender = mailSender;
     }
 
     /**
-     * Sending text mail
+     * Sends a batch of alerts as digest email(s), one digest per recipient.
+     * A single alert keeps the classic one-section subject line. All messages of the batch go through
+     * one JavaMailSender.send(...) call, i.e. one SMTP connect / login / quit, traced as one MailSend JFR event.
+     *
+     * @return false if sending failed (the failure is logged, not thrown).
      */
-    public void sendCourseOpenAlert(String section, String courseInfo) {
-        System.out.println("[Mail] Preparing to send alert for section: " + section);
+    public boolean sendDigest(List<AlertEvent> alerts) {
+        if (alerts.isEmpty()) {
+            return true;
+        }
+        Map<String, List<AlertEvent>> byRecipient = groupByRecipient(alerts);
+        System.out.println("[Mail] Preparing digests for " + alerts.size() + " alert(s), "
+                + byRecipient.size() + " recipient(s).");
 
+        MonitorEvents.MailSend event = new MonitorEvents.MailSend();
+        event.begin();
+        event.alerts = alerts.size();
+        event.recipients = byRecipient.size();
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("🔥 Alert: Section " + section + " IS OPEN! 🔥");
-            message.setText("Go to Enroll!\n\nCourse Info: " + courseInfo + "\n\n(This email is sent automatically by UW-Course-Monitor)");
-
-            mailSender.send(message);
-            System.out.println("[Mail] Email sent successfully!");
+            List<SimpleMailMessage> messages = new ArrayList<>();
+            byRecipient.forEach((recipient, own) -> {
+                for (int from = 0; from < own.size(); from += maxPerDigest) {
+                    List<AlertEvent> chunk = own.subList(from, Math.min(own.size(), from + maxPerDigest));
+                    messages.add(buildMessage(recipient, chunk));
+                }
+            });
+            if (messages.isEmpty()) {
+                return true;
+            }
+
+            event.messages = messages.size();
+            mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+            event.success = true;
+            System.out.println("[Mail] " + messages.size() + " email(s) sent successfully!");
+            return true;
         } catch (Exception e) {
             System.err.println("[Mail] Failed to send email: " + e.getMessage());
+            return false;
+        } finally {
+            event.commit();
         }
     }
 
-    public void sendCourseWaitlistedAlert(String section, String courseInfo) {
-        System.out.println("[Mail] Preparing to send alert for section: " + section);
+    // Recipient -> their alerts, in detection order. The owner address and subscriber lists are merged,
+    // so someone who is both still gets each section once.
+    Map<String, List<AlertEvent>> groupByRecipient(List<AlertEvent> alerts) {
+        Map<String, List<AlertEvent>> byRecipient = new LinkedHashMap<>();
+        for (AlertEvent alert : alerts) {
+            if (alert.notifyOwner() && toEmail != null && !toEmail.isBlank()) {
+                addTo(byRecipient, toEmail.trim().toLowerCase(Locale.ROOT), alert);
+            }
+            for (String subscriber : alert.subscribers()) {
+                addTo(byRecipient, subscriber, alert);
+            }
+        }
+        return byRecipient;
+    }
 
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("🔥 ALERT: Section " + section + " HAS WAITLIST SEATS! 🔥");
-            message.setText("Go to Enroll!\n\nCourse Info: " + courseInfo + "\n\n(This email is sent automatically by UW-Course-Monitor)");
-
-            mailSender.send(message);
-            System.out.println("[Mail] Email sent successfully!");
-        } catch (Exception e) {
-            System.err.println("[Mail] Failed to send email: " + e.getMessage());
+    private static void addTo(Map<String, List<AlertEvent>> byRecipient, String recipient, AlertEvent alert) {
+        List<AlertEvent> own = byRecipient.computeIfAbsent(recipient, r -> new ArrayList<>());
+        if (own.isEmpty() || own.get(own.size() - 1) != alert) {
+            own.add(alert);
+        }
+    }
+
+    private SimpleMailMessage buildMessage(String recipient, List<AlertEvent> alerts) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(recipient);
+
+        if (alerts.size() == 1) {
+            AlertEvent alert = alerts.get(0);
+            message.setSubject(alert.status() == StatusMapping.OPEN
+                    ? "🔥 Alert: Section " + alert.section() + " IS OPEN! 🔥"
+                    : "🔥 ALERT: Section " + alert.section() + " HAS WAITLIST SEATS! 🔥");
+            message.setText("Go to Enroll!\n\nCourse Info: " + alert.courseInfo()
+                    + "\n\n(This email is sent automatically by UW-Course-Monitor)");
+            return message;
+        }
+
+        long open = alerts.stream().filter(a -> a.status() == StatusMapping.OPEN).count();
+        message.setSubject("🔥 Alert: " + alerts.size() + " sections changed (" + open + " OPEN, "
+                + (alerts.size() - open) + " WAITLISTED) 🔥");
+
+        StringBuilder text = new StringBuilder("Go to Enroll!\n\n");
+        for (AlertEvent alert : alerts) {
+            text.append(alert.status() == StatusMapping.OPEN ? "[OPEN]       " : "[WAITLISTED] ")
+                    .append("Section ").append(alert.section())
+                    .append(" - ").append(alert.courseInfo())
+                    .append('\n');
         }
+        text.append("\n(This email is sent automatically by UW-Course-Monitor)");
+        message.setText(text.toString());
+        return message;
     }
-}
\ No newline at end of file
+}
@@ -1,134 +1,512 @@
 package com.jing.monitor.service;
 
 import com.jing.monitor.core.CourseCrawler;
+import com.jing.monitor.core.CourseFetchResult;
+import com.jing.monitor.core.CourseRefreshCache;
+import com.jing.monitor.core.MonitorEvents;
+import com.jing.monitor.core.MonitorMetrics;
+import com.jing.monitor.core.PollPlanner;
+import com.jing.monitor.core.SectionStateTable;
+import com.jing.monitor.core.StatusProbe;
+import com.jing.monitor.core.SubscriptionIndex;
+import com.jing.monitor.model.AlertEvent;
+import com.jing.monitor.model.HistoryRecord;
 import com.jing.monitor.model.SectionInfo;
 import com.jing.monitor.model.StatusMapping;
 import com.jing.monitor.model.Task;
+import com.jing.monitor.model.TaskStateView;
 import com.jing.monitor.repository.TaskRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service responsible for scheduling course monitoring tasks.
  * Refactored V1.0: Implements Course-Level batch fetching to reduce API request frequency.
+ * Refactored V1.1: Courses are polled concurrently on virtual threads under a global request budget.
+ * Refactored V1.2: Transition checks run against the in-memory SectionStateTable; the DB only sees writes.
+ * Refactored V1.3: Each course has its own adaptive next-poll time (see PollPlanner).
+ * Refactored V1.4: Cycle duration, DB sync time and status transitions are exported via MonitorMetrics.
+ * Refactored V1.5: Every parsed section is recorded in the status history (see HistoryService).
+ * Refactored V1.6: Committed changes are pushed to open dashboards (see TaskEventStream).
+ * Refactored V1.7: Alerts fan out to every subscriber of a section (see SubscriptionIndex); fetches stay per course.
+ * Refactored V1.8: Instances split the courses between them (see ClusterMembership); alerts are gated by a
+ *                  conditional status update, so each transition is alerted by at most one node.
+ * Refactored V1.9: After a clean shutdown the state table is restored from a snapshot instead of the DB
+ *                  (see WarmStartService).
+ * Refactored V2.0: Optionally, one bulk search probe per batch replaces the GETs of courses that stayed CLOSED
+ *                  (see StatusProbe).
+ * Refactored V2.1: Polls go through a freshness cache shared with on-demand refreshes, so a course refreshed by
+ *                  a user is not fetched again by the cycle, and concurrent refreshes share one fetch.
+ * Refactored V2.2: Cycles and per-course processing are traced as JFR events (see MonitorEvents).
  */
 @Service
+@Lazy(false)
 @RequiredArgsConstructor
 public class SchedulerService {
 
     private final CourseCrawler crawler;
-    private final MailService mailService;
+    private final AlertDispatcher alertDispatcher;
     private final TaskRepository taskRepository;
-    private final Random random = new Random();
+    private final TransactionTemplate transactionTemplate;
+    private final SectionStateTable stateTable;
+    private final PollPlanner pollPlanner;
+    private final MonitorMetrics metrics;
+    private final HistoryService historyService;
+    private final TaskEventStream eventStream;
+    private final SubscriptionIndex subscriptions;
+    private final ClusterMembership cluster;
+    private final StatusProbe statusProbe;
+    private final CourseRefreshCache refreshCache;
+
+    // Courses owned in the previous cycle; only read and written by the (single) scheduling thread
+    private Set<String> ownedCourses = Set.of();
+    // Polls between fetch and commit, from the cycle and from on-demand refreshes alike
+    private final AtomicInteger pollsInFlight = new AtomicInteger();
 
     // Define alert actions
     enum AlertAction { NONE, SEND_OPEN_EMAIL, SEND_WAITLIST_EMAIL }
 
+    private record PendingAlert(AlertAction action, SectionInfo info, boolean notifyOwner, List<String> subscribers) {}
+
+    private record SyncOutcome(List<PendingAlert> alerts, List<Task> synced, int transitions, int conflicts,
+                               boolean untracked) {}
+
+    // The course has no task rows (deleted while still in the poll set): nothing is written or alerted
+    private static final SyncOutcome UNTRACKED = new SyncOutcome(List.of(), List.of(), 0, 0, true);
+
+    /**
+     * Warms the in-memory state table from the tasks table (three columns per row, no entities).
+     * Called by WarmStartService at startup unless a clean snapshot was restored.
+     */
+    public void loadSectionStates() {
+        stateTable.clear();
+        int skipped = 0;
+        for (TaskStateView view : taskRepository.findAllStates()) {
+            int key = SectionStateTable.key(view.getSectionId());
+            if (key > 0) {
+                stateTable.put(key, SectionStateTable.encode(view.getLastStatus(), view.isEnabled()));
+            } else {
+                skipped++;
+            }
+        }
+        System.out.println("[Scheduler] Loaded " + stateTable.size() + " section states into memory"
+                + (skipped > 0 ? " (" + skipped + " non-numeric ids stay DB-backed)." : "."));
+    }
+
     /**
      * Main Monitoring Loop.
-     * Frequency should be set conservatively (e.g., 3-5 minutes) to avoid WAF blocking.
+     * Runs every monitor.poll-interval-ms as a scheduling tick; PollPlanner decides which courses are due.
+     * Every due course gets its own virtual thread; pacing is enforced by the crawler's global RequestBudget,
+     * so a cycle takes as long as the budget needs for N requests instead of N x 2 minutes.
      */
     @Scheduled(fixedDelayString = "${monitor.poll-interval-ms}")
     public void monitorTask() {
-        // 1. Aggregation: Fetch all tasks and deduplicate by Course ID
-        List<Task> tasks = taskRepository.findByEnabledTrue();
-        Set<String> courseSet = new HashSet<>();
-        for(Task task : tasks){
-            courseSet.add(task.getCourseId());
-        }
+        // 1. Aggregation: distinct courses of enabled tasks plus courses with subscribed sections.
+        // However many users watch a section, its course appears here once.
+        Set<String> courseSet = new HashSet<>(taskRepository.findEnabledCourseIds());
+        courseSet.addAll(subscriptions.courses());
 
         if (courseSet.isEmpty()) {
             System.out.println("[Scheduler] No active tasks. Idle.");
             return;
         }
 
-        System.out.println("[Scheduler] Starting cycle. Monitoring " + courseSet.size() + " unique courses.");
+        // Clustered: only this node's share of the courses
+        if (cluster.isEnabled()) {
+            courseSet = cluster.ownedCourses(courseSet);
+            adoptCourses(courseSet);
+            if (courseSet.isEmpty()) {
+                System.out.println("[Scheduler] No courses assigned to node " + cluster.nodeId() + ". Idle.");
+                return;
+            }
+        }
+
+        // Only courses whose adaptive next-poll time has come, most overdue first
+        List<String> courses = pollPlanner.dueCourses(courseSet, System.currentTimeMillis());
+        if (courses.isEmpty()) {
+            return;
+        }
+
+        System.out.println("[Scheduler] Starting cycle. Polling " + courses.size() + " of " + courseSet.size()
+                + " unique courses" + (pollPlanner.inHotWindow(System.currentTimeMillis()) ? " (hot window)." : "."));
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        MonitorEvents.PollCycle event = new MonitorEvents.PollCycle();
+        event.begin();
+        int due = courses.size();
 
-        int cnt = courseSet.size();
-        // 2. Batch Processing: Fetch data per Course (1 Request = N Sections)
-        for (String courseId : courseSet) {
-            processSingleCourse(courseId);
-            cnt--;
-            if(cnt == 0){
-                break;
+        // Courses that stayed CLOSED per the bulk probe count as unchanged polls without their own request
+        if (statusProbe.isEnabled()) {
+            StatusProbe.Selection selection = statusProbe.select(courseSet, courses, start);
+            long now = System.currentTimeMillis();
+            for (String courseId : selection.skipped()) {
+                pollPlanner.recordPoll(courseId, 0, null, now);
             }
-            try {
-                long sleepTime = 120000 + random.nextInt(10000);
-                Thread.sleep(sleepTime);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            if (!selection.skipped().isEmpty()) {
+                System.out.println("[Scheduler] Status probe: " + selection.skipped().size()
+                        + " course(s) unchanged, fetching " + selection.fetch().size() + ".");
+            }
+            courses = selection.fetch();
+        }
+
+        // 2. Batch Processing: Fetch data per Course (1 Request = N Sections), fanned out on virtual threads.
+        // close() blocks until every course is done, so fixedDelay still measures from the end of a full cycle.
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String courseId : courses) {
+                executor.submit(() -> refreshCourse(courseId));
             }
         }
+
+        metrics.recordCycle(System.nanoTime() - startNanos);
+        event.end();
+        if (event.shouldCommit()) {
+            event.trackedCourses = courseSet.size();
+            event.dueCourses = due;
+            event.probeSkipped = due - courses.size();
+            event.fetchedCourses = courses.size();
+            event.commit();
+        }
+        System.out.println("[Scheduler] Cycle finished in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    /**
+     * @return Whether any poll is in flight, from the cycle or from a refresh (validators may then be ahead of
+     * the state table).
+     */
+    public boolean isPollInFlight() {
+        return pollsInFlight.get() > 0;
+    }
+
+    /**
+     * Refreshes the memory of courses this node did not own in the previous cycle.
+     * Another node polled them meanwhile, so the state table and the payload fingerprint may both be stale.
+     */
+    private void adoptCourses(Set<String> owned) {
+        Set<String> acquired = new HashSet<>(owned);
+        acquired.removeAll(ownedCourses);
+        int released = ownedCourses.size() - (owned.size() - acquired.size());
+        ownedCourses = owned;
+        if (acquired.isEmpty()) {
+            return;
+        }
+        for (TaskStateView view : taskRepository.findStatesByCourseIdIn(acquired)) {
+            int key = SectionStateTable.key(view.getSectionId());
+            if (key > 0) {
+                stateTable.put(key, SectionStateTable.encode(view.getLastStatus(), view.isEnabled()));
+            }
+        }
+        for (String courseId : acquired) {
+            crawler.invalidate(courseId);
+            statusProbe.forget(courseId);
+            refreshCache.invalidate(courseId);
+        }
+        System.out.println("[Cluster] Node " + cluster.nodeId() + " took over " + acquired.size()
+                + " course(s)" + (released > 0 ? " and released " + released + "." : "."));
+    }
+
+    /**
+     * Polls one course now, unless a poll younger than the freshness threshold exists or one is in flight,
+     * in which case that poll's result is returned. Used by the cycle and by on-demand refreshes.
+     *
+     * @param courseId The 6-digit course identifier (e.g., "004289")
+     * @return The poll that answered this call, or null if it failed.
+     */
+    public CourseRefreshCache.Refresh refreshCourse(String courseId) {
+        return refreshCache.get(courseId, id -> processSingleCourse(id, -1));
+    }
+
+    /**
+     * Like {@link #refreshCourse(String)}, for callers that must not queue behind the request budget.
+     * If no budget permit comes within the wait limit, nothing is fetched: the result is DEFERRED and the course
+     * is made due on the next cycle, which then does the poll. A poll already in flight (e.g. the cycle's, which
+     * waits for its permit as long as it takes) is only waited for that long too, then the result is DEFERRED.
+     *
+     * @param maxPermitWaitMs Longest wait for a budget permit, or for a poll in flight.
+     */
+    public CourseRefreshCache.Refresh refreshCourse(String courseId, long maxPermitWaitMs) {
+        long maxWaitMs = Math.max(0, maxPermitWaitMs);
+        return refreshCache.get(courseId, id -> processSingleCourse(id, maxWaitMs), maxWaitMs);
     }
 
     /**
      * Fetches all sections for a given course and updates local Task states.
      * @param courseId The 6-digit course identifier (e.g., "004289")
+     * @param maxPermitWaitMs Longest wait for a budget permit, or -1 to wait as long as it takes.
+     * @return What the poll did, or null if the fetch or the sync failed.
      */
-    private void processSingleCourse(String courseId) {
+    private CourseRefreshCache.Refresh processSingleCourse(String courseId, long maxPermitWaitMs) {
+        MonitorEvents.CourseProcess event = new MonitorEvents.CourseProcess();
+        event.begin();
+        event.courseId = courseId;
+        event.outcome = "ERROR";
+        pollsInFlight.incrementAndGet();
+        try {
+            return processSingleCourse(courseId, maxPermitWaitMs, event);
+        } finally {
+            pollsInFlight.decrementAndGet();
+            event.commit();
+        }
+    }
+
+    private CourseRefreshCache.Refresh processSingleCourse(String courseId, long maxPermitWaitMs,
+                                                           MonitorEvents.CourseProcess event) {
         try {
-            // Step 1: Network I/O - Fetch course data
-            List<SectionInfo> infos = crawler.fetchCourseStatus(courseId);
+            // Step 1: Network I/O - Fetch course data (conditional: unchanged payloads skip parse + sync)
+            CourseFetchResult result = maxPermitWaitMs < 0
+                    ? crawler.fetchCourseIfChanged(courseId)
+                    : crawler.fetchCourseIfChanged(courseId, maxPermitWaitMs);
 
-            if (infos == null) {
+            event.outcome = result.getOutcome().name();
+            if (result.getOutcome() == CourseFetchResult.Outcome.DEFERRED) {
+                long now = System.currentTimeMillis();
+                pollPlanner.pollNow(courseId, now);
+                return new CourseRefreshCache.Refresh(courseId, CourseFetchResult.Outcome.DEFERRED, now, 0);
+            }
+            if (result.getOutcome() == CourseFetchResult.Outcome.UNCHANGED) {
+                long now = System.currentTimeMillis();
+                pollPlanner.recordPoll(courseId, 0, null, now);
+                return new CourseRefreshCache.Refresh(courseId, CourseFetchResult.Outcome.UNCHANGED, now, 0);
+            }
+            if (result.getOutcome() == CourseFetchResult.Outcome.FAILED) {
                 System.err.println("[Error] Fetch failed or blocked for course: " + courseId);
-                return;
+                pollPlanner.recordFailure(courseId, System.currentTimeMillis());
+                return null;
             }
-
-            // Step 2: Synchronization - Update Database
+            List<SectionInfo> infos = result.getSections();
+            boolean allOpen = !infos.isEmpty();
             for (SectionInfo info : infos) {
-                StatusMapping currentStatus = info.getStatus();
-                StatusMapping previousStatus = null;
-                String sectionId = info.getSection();
-
-                // Find existing task for this specific section
-                Task task = taskRepository.findBySectionId(sectionId);
-
-                // Logic: Auto-Discovery vs Update
-                if (task == null) {
-                    // Scenario A: New Section Discovered (Auto-add to DB)
-                    // Note: This will monitor ALL sections. If this is spammy, add filtering logic here.
-                    task = new Task(info.getSubject(), info.getCatalogNumber(), sectionId, courseId, info.getStatus());
-                    System.out.println("[New Section] Found " + info.getSection() + ". Adding to DB.");
-
-                    // TODO: Optional: Send alert on discovery?
-                    AlertAction action = determineAction(null, currentStatus);
-                    Mail(action, info);
-                } else {
-                    // Scenario B: Existing Task Update
-                    previousStatus = task.getLastStatus();
-
-                    // Logging state only on changes or verbose debug can go here
-                    // System.out.println("[Checking] " + task.getCourseDisplayName() + " [" + currentStatus + "]");
-
-                    if (task.isEnabled()) {
-                        AlertAction action = determineAction(previousStatus, currentStatus);
-                        Mail(action, info);
-                    }
-                }
-
-                // Step 3: Persistence
-                if (previousStatus != currentStatus || task.getId() == null) {
-                    if (task.getId() != null) {
-                        System.out.println("🔄 State changed: " + previousStatus + " -> " + currentStatus + " for " + sectionId);
-                    }
-                    task.setLastStatus(currentStatus);
-                    taskRepository.save(task);
-                }
+                allOpen &= info.getStatus() == StatusMapping.OPEN;
             }
+
+            long syncStart = System.nanoTime();
+            int transitions = syncCourse(courseId, infos);
+            event.syncTime = System.nanoTime() - syncStart;
+            event.sections = infos.size();
+            event.transitions = transitions;
+            long now = System.currentTimeMillis();
+            pollPlanner.recordPoll(courseId, transitions, allOpen, now);
+            return new CourseRefreshCache.Refresh(courseId, CourseFetchResult.Outcome.CHANGED, now, transitions);
         } catch (Exception e) {
+            event.outcome = "ERROR";
+            // DB may now lag behind the payload we just fingerprinted; force a full sync next time
+            crawler.invalidate(courseId);
+            statusProbe.forget(courseId);
+            pollPlanner.recordFailure(courseId, System.currentTimeMillis());
             System.err.println("Error processing course " + courseId + ": " + e.getMessage());
             e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Per-course synchronization of a freshly parsed payload (everything after the network fetch).
+     *
+     * @return Number of status transitions of already known sections.
+     */
+    int syncCourse(String courseId, List<SectionInfo> infos) {
+        // Step 2: Memory-local diff against the state table; unchanged sections never touch the DB
+        byte[] previousStates = new byte[infos.size()];
+        List<SectionInfo> candidates = new ArrayList<>();
+        for (int i = 0; i < infos.size(); i++) {
+            SectionInfo info = infos.get(i);
+            byte state = stateOf(info.getSection());
+            previousStates[i] = state;
+            if (!SectionStateTable.isPresent(state) || SectionStateTable.status(state) != info.getStatus()) {
+                candidates.add(info);
+            }
+        }
+        if (candidates.isEmpty()) {
+            recordHistory(courseId, infos, previousStates);
+            statusProbe.recordSections(courseId, infos);
+            return 0;
+        }
+
+        // Step 3: Write-through - one read, one batched write, all in one transaction
+        long syncStart = System.nanoTime();
+        SyncOutcome outcome = transactionTemplate.execute(status -> syncSections(courseId, candidates));
+        metrics.recordSync(System.nanoTime() - syncStart);
+        if (outcome.untracked()) {
+            crawler.invalidate(courseId);
+            statusProbe.forget(courseId);
+            System.out.println("[Scheduler] Course " + courseId + " is no longer tracked; skipping its "
+                    + infos.size() + " section(s).");
+            return 0;
+        }
+        if (outcome.conflicts() > 0) {
+            // Another node wrote these sections first; re-read the course on the next poll
+            crawler.invalidate(courseId);
+            statusProbe.forget(courseId);
+            System.out.println("[Cluster] " + outcome.conflicts() + " section(s) of course " + courseId
+                    + " were already updated by another node; their alerts are skipped.");
+        }
+
+        // Step 4: Publish the committed state to memory and to dashboards, then alert
+        for (Task task : outcome.synced()) {
+            int key = SectionStateTable.key(task.getSectionId());
+            boolean discovered = false;
+            if (key > 0) {
+                discovered = !SectionStateTable.isPresent(stateTable.get(key));
+                stateTable.put(key, SectionStateTable.encode(task.getLastStatus(), task.isEnabled()));
+            }
+            eventStream.publish(discovered ? TaskEventStream.SECTION_ADDED : TaskEventStream.STATUS_CHANGED, task);
+        }
+        recordHistory(courseId, infos, previousStates);
+        if (outcome.conflicts() == 0) {
+            statusProbe.recordSections(courseId, infos);
+        }
+        for (PendingAlert alert : outcome.alerts()) {
+            Mail(alert);
+        }
+        return outcome.transitions();
+    }
+
+    /**
+     * Step 5: One history record per parsed section, classified against the state before this poll.
+     * Runs after commit, so a failed sync (retried next poll) does not leave phantom transitions behind.
+     * Unchanged payloads are never parsed and write nothing; the previous record still describes them.
+     */
+    private void recordHistory(String courseId, List<SectionInfo> infos, byte[] previousStates) {
+        int course = SectionStateTable.key(courseId);
+        if (course <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < infos.size(); i++) {
+            SectionInfo info = infos.get(i);
+            int section = SectionStateTable.key(info.getSection());
+            if (section <= 0) {
+                continue;
+            }
+            byte state = previousStates[i];
+            StatusMapping previous = SectionStateTable.status(state);
+            HistoryRecord.Kind kind = !SectionStateTable.isPresent(state) ? HistoryRecord.Kind.DISCOVERED
+                    : previous != info.getStatus() ? HistoryRecord.Kind.TRANSITION
+                    : HistoryRecord.Kind.OBSERVED;
+            historyService.record(now, section, course, info.getStatus(), previous, kind);
         }
     }
 
-    private AlertAction determineAction(StatusMapping prev, StatusMapping curr) {
+    /**
+     * Writes new sections and status transitions through to the tasks table.
+     * Alert decisions use the in-memory state; the DB is only read to obtain the entities to update.
+     * Issues exactly one SELECT (findBySectionIdIn) and one batched saveAll. Must run inside a transaction.
+     * If none of the sections has a row, a second SELECT checks that the course still has any: sections are
+     * only auto-discovered for tracked courses, so a deleted course is not re-inserted or alerted on.
+     * Clustered, the row is the previous state, and a transition is written with a conditional UPDATE first:
+     * only the node whose update matched alerts. A duplicate insert fails on the unique section id and
+     * rolls back the whole sync, alerts included.
+     *
+     * @param candidates Sections that are new or whose status differs from the state table.
+     * @return Alerts to send and the tasks whose state should be published to the table after commit.
+     */
+    private SyncOutcome syncSections(String courseId, List<SectionInfo> candidates) {
+        Set<String> sectionIds = new HashSet<>();
+        for (SectionInfo info : candidates) {
+            sectionIds.add(info.getSection());
+        }
+
+        Map<String, Task> existing = new HashMap<>();
+        for (Task task : taskRepository.findBySectionIdIn(sectionIds)) {
+            existing.put(task.getSectionId(), task);
+        }
+        if (existing.isEmpty() && !taskRepository.existsByCourseId(courseId)) {
+            // Auto-discovery adds sections to tracked courses only; a deleted course must not come back
+            return UNTRACKED;
+        }
+
+        List<Task> synced = new ArrayList<>();
+        List<Task> dirty = new ArrayList<>();
+        List<PendingAlert> alerts = new ArrayList<>();
+        int transitions = 0;
+        int conflicts = 0;
+
+        for (SectionInfo info : candidates) {
+            StatusMapping currentStatus = info.getStatus();
+            String sectionId = info.getSection();
+            Task task = existing.get(sectionId);
+
+            // Memory first; the entity is only consulted for sections the table does not know (non-numeric ids)
+            byte state = stateOf(sectionId);
+            boolean known = SectionStateTable.isPresent(state);
+            StatusMapping previousStatus = known ? SectionStateTable.status(state)
+                    : (task == null ? null : task.getLastStatus());
+            boolean enabled = known ? SectionStateTable.isEnabled(state) : (task != null && task.isEnabled());
+            if (cluster.isEnabled() && task != null) {
+                // Another node may have written this row since our state table last saw it
+                previousStatus = task.getLastStatus();
+                enabled = task.isEnabled();
+            }
+            List<String> subscribers = subscriptions.subscribers(sectionId);
+
+            // Logic: Auto-Discovery vs Update
+            AlertAction action = AlertAction.NONE;
+            boolean discovered = task == null;
+            if (discovered) {
+                // Scenario A: New Section Discovered (Auto-add to DB)
+                // Note: This will monitor ALL sections. If this is spammy, add filtering logic here.
+                task = new Task(info.getSubject(), info.getCatalogNumber(), sectionId, courseId, info.getStatus());
+                existing.put(sectionId, task);
+                System.out.println("[New Section] Found " + info.getSection() + ". Adding to DB.");
+
+                // TODO: Optional: Send alert on discovery?
+                action = determineAction(null, currentStatus);
+                previousStatus = null;
+            } else if (enabled || !subscribers.isEmpty()) {
+                // Scenario B: Existing Task Update (watched by the owner and/or subscribers)
+                action = determineAction(previousStatus, currentStatus);
+            }
+
+            if (cluster.isEnabled() && task.getId() != null && previousStatus != currentStatus
+                    && taskRepository.compareAndSetStatus(sectionId, previousStatus, currentStatus) == 0) {
+                // Lost the race: the other node alerts for this transition
+                conflicts++;
+                continue;
+            }
+
+            if (action != AlertAction.NONE) {
+                alerts.add(new PendingAlert(action, info, discovered || enabled, subscribers));
+            }
+
+            // Persistence is deferred to the single saveAll below
+            if (previousStatus != currentStatus || task.getId() == null) {
+                if (previousStatus != currentStatus) {
+                    metrics.countTransition(previousStatus, currentStatus);
+                }
+                if (task.getId() != null) {
+                    transitions++;
+                    System.out.println("🔄 State changed: " + previousStatus + " -> " + currentStatus + " for " + sectionId);
+                }
+                task.setLastStatus(currentStatus);
+                dirty.add(task);
+            }
+            synced.add(task);
+        }
+
+        if (!dirty.isEmpty()) {
+            taskRepository.saveAll(dirty);
+        }
+        return new SyncOutcome(alerts, synced, transitions, conflicts, false);
+    }
+
+    private byte stateOf(String sectionId) {
+        int key = SectionStateTable.key(sectionId);
+        return key > 0 ? stateTable.get(key) : SectionStateTable.ABSENT;
+    }
+
+    static AlertAction determineAction(StatusMapping prev, StatusMapping curr) {
         if (prev == null) {
             // Logic for newly discovered tasks (prevent spam on restart)
             // return AlertAction.NONE; // Uncomment to silent new task alerts
@@ -147,13 +525,23 @@ public class SchedulerService {
         }
     }
 
-    private void Mail(AlertAction action, SectionInfo info) {
-        if (action == AlertAction.SEND_OPEN_EMAIL) {
-            System.out.println("🔥 ALERT: OPEN detected for " + info.getSection());
-            mailService.sendCourseOpenAlert(info.getSection(), info.getSubject() + " " + info.getCatalogNumber());
-        } else if (action == AlertAction.SEND_WAITLIST_EMAIL) {
-            System.out.println("⚠️ ALERT: WAITLIST detected for " + info.getSection());
-            mailService.sendCourseWaitlistedAlert(info.getSection(), info.getSubject() + " " + info.getCatalogNumber());
+    private void Mail(PendingAlert alert) {
+        // Only enqueues; AlertDispatcher coalesces and sends on its own thread.
+        // One event per section: the recipients travel with it and MailService builds one digest per recipient.
+        SectionInfo info = alert.info();
+        String courseInfo = info.getSubject() + " " + info.getCatalogNumber();
+        if (alert.action() == AlertAction.SEND_OPEN_EMAIL) {
+            System.out.println("🔥 ALERT: OPEN detected for " + info.getSection() + recipientsNote(alert));
+            alertDispatcher.enqueue(new AlertEvent(StatusMapping.OPEN, info.getSection(), courseInfo,
+                    System.currentTimeMillis(), alert.notifyOwner(), alert.subscribers()));
+        } else if (alert.action() == AlertAction.SEND_WAITLIST_EMAIL) {
+            System.out.println("⚠️ ALERT: WAITLIST detected for " + info.getSection() + recipientsNote(alert));
+            alertDispatcher.enqueue(new AlertEvent(StatusMapping.WAITLISTED, info.getSection(), courseInfo,
+                    System.currentTimeMillis(), alert.notifyOwner(), alert.subscribers()));
         }
     }
+
+    private static String recipientsNote(PendingAlert alert) {
+        return alert.subscribers().isEmpty() ? "" : " (" + alert.subscribers().size() + " subscriber(s))";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.SectionStateTable;
+import com.jing.monitor.core.SubscriptionIndex;
+import com.jing.monitor.model.Subscriber;
+import com.jing.monitor.model.Subscription;
+import com.jing.monitor.model.SubscriptionView;
+import com.jing.monitor.model.Task;
+import com.jing.monitor.model.dto.SubscribeReqDto;
+import com.jing.monitor.model.dto.SubscribeRespDto;
+import com.jing.monitor.model.dto.SubscriptionRespDto;
+import com.jing.monitor.repository.SubscriberRepository;
+import com.jing.monitor.repository.SubscriptionRepository;
+import com.jing.monitor.repository.TaskRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Subscriber -> section subscriptions, so one instance can alert a whole group.
+ * Sections stay in the tasks table (one row, one fetch per course); subscriptions only add recipients.
+ * Every change is committed first and then applied to the SubscriptionIndex the poller reads.
+ */
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+public class SubscriptionService {
+
+    private final SubscriberRepository subscriberRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final TaskRepository taskRepository;
+    private final SubscriptionIndex index;
+    private final SectionStateTable stateTable;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Loads every active subscription into the index (three columns per row, no entities).
+     */
+    @PostConstruct
+    public void loadIndex() {
+        index.clear();
+        int subscriptions = 0;
+        for (SubscriptionView view : subscriptionRepository.findAllActive()) {
+            index.add(view.getSectionId(), view.getCourseId(), view.getEmail());
+            subscriptions++;
+        }
+        System.out.println("[Subscriptions] Loaded " + subscriptions + " subscriptions on " + index.size()
+                + " sections (" + index.courses().size() + " courses).");
+    }
+
+    // 1. Subscribe to sections
+    public SubscribeRespDto subscribe(SubscribeReqDto req) {
+        String email = normalizeEmail(req.getEmail());
+        if (req.getSectionIds() == null || req.getSectionIds().isEmpty()) {
+            throw new RuntimeException("No sections given");
+        }
+        Set<String> sectionIds = new LinkedHashSet<>();
+        for (String sectionId : req.getSectionIds()) {
+            if (sectionId != null && !sectionId.isBlank()) {
+                sectionIds.add(sectionId.trim());
+            }
+        }
+
+        SubscribeRespDto resp = new SubscribeRespDto();
+        resp.setSubscribed(new ArrayList<>());
+        resp.setAlreadySubscribed(new ArrayList<>());
+        resp.setUnknownSections(new ArrayList<>());
+
+        List<Subscription> created = transactionTemplate.execute(status -> {
+            Subscriber subscriber = subscriberRepository.findByEmail(email)
+                    .orElseGet(() -> subscriberRepository.save(new Subscriber(email, req.getName())));
+            if (!subscriber.isActive()) {
+                throw new RuntimeException("Subscriber is inactive: " + email);
+            }
+
+            Map<String, Task> tasks = new HashMap<>();
+            for (Task task : taskRepository.findBySectionIdIn(sectionIds)) {
+                tasks.put(task.getSectionId(), task);
+            }
+            Set<String> existing = new HashSet<>();
+            for (Subscription subscription : subscriptionRepository.findBySubscriberIdOrderBySectionId(subscriber.getId())) {
+                existing.add(subscription.getSectionId());
+            }
+
+            List<Subscription> fresh = new ArrayList<>();
+            for (String sectionId : sectionIds) {
+                Task task = tasks.get(sectionId);
+                if (task == null) {
+                    resp.getUnknownSections().add(sectionId);
+                } else if (existing.contains(sectionId)) {
+                    resp.getAlreadySubscribed().add(sectionId);
+                } else {
+                    fresh.add(new Subscription(subscriber, sectionId, task.getCourseId(), task.getCourseDisplayName()));
+                }
+            }
+            return fresh.isEmpty() ? fresh : subscriptionRepository.saveAll(fresh);
+        });
+
+        for (Subscription subscription : created) {
+            index.add(subscription.getSectionId(), subscription.getCourseId(), email);
+            resp.getSubscribed().add(subscription.getSectionId());
+        }
+        System.out.println("[Subscriptions] " + email + " subscribed to " + created.size() + " section(s).");
+        return resp;
+    }
+
+    // 2. Subscriptions of one subscriber
+    public List<SubscriptionRespDto> getSubscriptions(String email) {
+        Subscriber subscriber = subscriberRepository.findByEmail(normalizeEmail(email))
+                .orElseThrow(() -> new RuntimeException("Subscriber not found: " + email));
+        List<SubscriptionRespDto> result = new ArrayList<>();
+        for (Subscription subscription : subscriptionRepository.findBySubscriberIdOrderBySectionId(subscriber.getId())) {
+            SubscriptionRespDto dto = new SubscriptionRespDto();
+            dto.setSectionId(subscription.getSectionId());
+            dto.setCourseId(subscription.getCourseId());
+            dto.setCourseDisplayName(subscription.getCourseDisplayName());
+            int key = SectionStateTable.key(subscription.getSectionId());
+            dto.setStatus(key > 0 ? SectionStateTable.status(stateTable.get(key)) : null);
+            result.add(dto);
+        }
+        return result;
+    }
+
+    // 3. Unsubscribe from one section
+    public void unsubscribe(String email, String sectionId) {
+        String normalized = normalizeEmail(email);
+        long deleted = transactionTemplate.execute(status -> subscriberRepository.findByEmail(normalized)
+                .map(subscriber -> subscriptionRepository.deleteBySubscriberIdAndSectionId(subscriber.getId(), sectionId))
+                .orElse(0L));
+        if (deleted == 0) {
+            throw new RuntimeException("No subscription of " + email + " to section " + sectionId);
+        }
+        index.remove(sectionId, normalized);
+    }
+
+    private static String normalizeEmail(String email) {
+        if (email == null || email.isBlank() || email.indexOf('@') <= 0) {
+            throw new RuntimeException("Invalid email: " + email);
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
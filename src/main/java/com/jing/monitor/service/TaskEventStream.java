@@ -0,0 +1,228 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.model.Task;
+import com.jing.monitor.model.dto.TaskEventDto;
+import com.jing.monitor.model.dto.TaskRespDto;
+import com.jing.monitor.model.dto.TaskSnapshotDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Server-Sent Events feed of task changes for the dashboard (GET /api/tasks/stream).
+ * * Strategy:
+ * 1. Writers (poller, task API) append deltas to a fixed-size ring; every event gets the next sequence number.
+ *    Publishing is O(1) and never touches the network or the DB.
+ * 2. Each client has its own virtual thread that waits on the ring and sends everything after its cursor.
+ *    A slow client only delays itself.
+ * 3. A client that connects without a cursor, or whose cursor has already been overwritten, first gets a
+ *    "snapshot" event (one findAll); after that it only receives deltas. A browser reconnect sends
+ *    Last-Event-ID and resumes from memory, so open dashboards cost no DB reads.
+ * 4. Sequence numbers start at the boot time in microseconds, so a cursor from before a restart is
+ *    always recognized as stale instead of silently skipping events.
+ * Deltas carry the full row after the change, so replaying one twice is harmless.
+ */
+@Service
+public class TaskEventStream {
+
+    public static final String SECTION_ADDED = "SECTION_ADDED";
+    public static final String STATUS_CHANGED = "STATUS_CHANGED";
+    public static final String TOGGLED = "TOGGLED";
+    public static final String COURSE_REMOVED = "COURSE_REMOVED";
+
+    private static final int MAX_BATCH = 256;
+    private static final long RECONNECT_MS = 3000;
+
+    private final TaskEventDto[] ring;
+    private final long heartbeatMs;
+    private final long timeoutMs;
+    private final long firstSeq;
+
+    // Not synchronized/wait: waiting in a monitor would pin the carrier thread of every waiting client
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    // Guarded by lock; seq of the newest event (firstSeq - 1 while empty)
+    private long head;
+
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger clients = new AtomicInteger();
+
+    public TaskEventStream(@Value("${monitor.stream.buffer-size:4096}") int bufferSize,
+                           @Value("${monitor.stream.heartbeat-ms:15000}") long heartbeatMs,
+                           @Value("${monitor.stream.timeout-ms:1800000}") long timeoutMs) {
+        this.ring = new TaskEventDto[Math.max(16, bufferSize)];
+        this.heartbeatMs = Math.max(100, heartbeatMs);
+        this.timeoutMs = timeoutMs;
+        this.firstSeq = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.head = firstSeq - 1;
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+    }
+
+    // ==================== Publishing ====================
+
+    /**
+     * Publishes the current state of one row.
+     *
+     * @param type SECTION_ADDED, STATUS_CHANGED or TOGGLED.
+     */
+    public void publish(String type, Task task) {
+        TaskEventDto event = new TaskEventDto();
+        event.setType(type);
+        event.setCourseDisplayName(task.getCourseDisplayName());
+        event.setTask(new TaskRespDto(task.getId(), task.getSectionId(), task.getCourseId(),
+                task.getCourseDisplayName(), task.getLastStatus(), task.isEnabled()));
+        append(event);
+    }
+
+    public void publishCourseRemoved(String courseDisplayName) {
+        TaskEventDto event = new TaskEventDto();
+        event.setType(COURSE_REMOVED);
+        event.setCourseDisplayName(courseDisplayName);
+        append(event);
+    }
+
+    private void append(TaskEventDto event) {
+        event.setTimestamp(System.currentTimeMillis());
+        lock.lock();
+        try {
+            event.setSeq(++head);
+            ring[(int) (head % ring.length)] = event;
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== Reading ====================
+
+    /**
+     * @return Sequence number of the newest event; a snapshot taken now reflects everything up to it.
+     */
+    public long lastSeq() {
+        lock.lock();
+        try {
+            return head;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the events after the cursor, waiting up to waitMs if there are none yet.
+     *
+     * @return Up to MAX_BATCH events in order (empty on timeout), or null if the cursor is unknown
+     *         or its successors were already overwritten; the caller must start over from a snapshot.
+     */
+    List<TaskEventDto> eventsAfter(long cursor, long waitMs) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(waitMs);
+            while (head == cursor && nanos > 0) {
+                nanos = published.awaitNanos(nanos);
+            }
+            long oldest = Math.max(firstSeq, head - ring.length + 1);
+            if (cursor < oldest - 1 || cursor > head) {
+                return null;
+            }
+            List<TaskEventDto> events = new ArrayList<>((int) Math.min(MAX_BATCH, head - cursor));
+            for (long seq = cursor + 1; seq <= head && events.size() < MAX_BATCH; seq++) {
+                events.add(ring[(int) (seq % ring.length)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int clients() {
+        return clients.get();
+    }
+
+    // ==================== Clients ====================
+
+    /**
+     * Opens a stream for one client.
+     *
+     * @param lastEventId Cursor from the Last-Event-ID header, or null for a fresh connection.
+     * @param snapshot    Loads the full task list; only called when the client cannot resume from the ring.
+     */
+    public SseEmitter subscribe(Long lastEventId, Supplier<List<TaskRespDto>> snapshot) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(e -> open.set(false));
+
+        senders.submit(() -> {
+            int connected = clients.incrementAndGet();
+            System.out.println("[Stream] Client connected (" + connected + " open)"
+                    + (lastEventId == null ? "." : ", resuming after " + lastEventId + "."));
+            try {
+                long cursor = lastEventId == null ? -1 : lastEventId;
+                boolean first = true;
+                while (open.get()) {
+                    List<TaskEventDto> events = cursor < 0 ? null : eventsAfter(cursor, first ? 0 : heartbeatMs);
+                    if (events == null) {
+                        cursor = sendSnapshot(emitter, snapshot);
+                    } else if (events.isEmpty()) {
+                        if (!first) {
+                            emitter.send(SseEmitter.event().comment("keep-alive"));
+                        }
+                    } else {
+                        for (TaskEventDto event : events) {
+                            emitter.send(SseEmitter.event()
+                                    .id(String.valueOf(event.getSeq()))
+                                    .name("task")
+                                    .data(event, MediaType.APPLICATION_JSON));
+                        }
+                        cursor = events.get(events.size() - 1).getSeq();
+                    }
+                    first = false;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the emitter already completed
+                emitter.complete();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            } catch (RuntimeException e) {
+                System.err.println("[Stream] Client stream failed: " + e.getMessage());
+                emitter.completeWithError(e);
+            } finally {
+                clients.decrementAndGet();
+            }
+        });
+        return emitter;
+    }
+
+    private long sendSnapshot(SseEmitter emitter, Supplier<List<TaskRespDto>> snapshot) throws IOException {
+        // Cursor first: events racing with the load are re-sent afterwards, which deltas tolerate
+        TaskSnapshotDto dto = new TaskSnapshotDto();
+        dto.setSeq(lastSeq());
+        dto.setTasks(snapshot.get());
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(dto.getSeq()))
+                .name("snapshot")
+                .reconnectTime(RECONNECT_MS)
+                .data(dto, MediaType.APPLICATION_JSON));
+        return dto.getSeq();
+    }
+}
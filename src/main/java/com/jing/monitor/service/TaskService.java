@@ -2,32 +2,158 @@ package com.jing.monitor.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.jing.monitor.core.CourseCrawler;
+import com.jing.monitor.core.SectionStateTable;
+import com.jing.monitor.core.SubscriptionIndex;
+import com.jing.monitor.model.StatusMapping;
 import com.jing.monitor.model.Task;
+import com.jing.monitor.model.dto.BulkAddRespDto;
+import com.jing.monitor.model.dto.CourseAddResultDto;
+import com.jing.monitor.model.dto.PageRespDto;
 import com.jing.monitor.model.dto.TaskReqDto;
 import com.jing.monitor.model.dto.TaskRespDto;
+import com.jing.monitor.repository.SubscriptionRepository;
 import com.jing.monitor.repository.TaskRepository;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class TaskService {
 
+    // Upper bound for one bulk request; each distinct name costs one search request
+    static final int MAX_BULK_COURSES = 200;
+    // Bulk add jobs kept for status requests; the oldest is dropped first
+    static final int MAX_BULK_JOBS = 64;
+    static final int MAX_PAGE_SIZE = 500;
+
+    // Sort parameter -> entity property
+    private static final Map<String, String> SORT_FIELDS = Map.of(
+            "id", "id",
+            "sectionId", "sectionId",
+            "courseId", "courseId",
+            "courseDisplayName", "courseDisplayName",
+            "status", "lastStatus",
+            "enabled", "enabled");
+
     private final CourseCrawler crawler;
     private final TaskRepository taskRepository;
+    private final SectionStateTable stateTable;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskEventStream eventStream;
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionIndex subscriptions;
+
+    // Search result of one course name: the sections to track
+    private record ResolvedCourse(String courseId, String displayName, List<TaskReqDto> sections) {}
+
+    // Job id -> bulk add job, oldest first. Guarded by itself.
+    private final Map<String, BulkAddJob> bulkJobs = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BulkAddJob> eldest) {
+            return size() > MAX_BULK_JOBS;
+        }
+    };
 
     // 1. Get List
+    /**
+     * Every task as a DTO projection (no entities). Used for the dashboard snapshot.
+     */
     public List<TaskRespDto> getAllTasks() {
-        return taskRepository.findAll().stream()
-                .map(this::convertToResp)
-                .collect(Collectors.toList());
+        return taskRepository.findAllRows();
+    }
+
+    /**
+     * One page of tasks, filtered in the database and read as a DTO projection.
+     *
+     * @param enabled Only enabled / disabled tasks, or null for both.
+     * @param status  OPEN / WAITLISTED / CLOSED, or null for any.
+     * @param course  Course id ("004289") or display name ("COMP SCI 577"), or null for all courses.
+     * @param sort    One of SORT_FIELDS; ties are broken by section id so pages are stable.
+     */
+    public PageRespDto<TaskRespDto> getTasks(Boolean enabled, String status, String course,
+                                             int page, int size, String sort, String order) {
+        String property = SORT_FIELDS.get(sort);
+        if (property == null) {
+            throw new RuntimeException("Cannot sort by: " + sort + " (use one of " + SORT_FIELDS.keySet() + ")");
+        }
+        StatusMapping statusFilter = null;
+        if (status != null && !status.isBlank()) {
+            try {
+                statusFilter = StatusMapping.valueOf(status.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unknown status: " + status);
+            }
+        }
+        String courseFilter = course == null || course.isBlank() ? null : course.trim();
+
+        Sort.Direction direction = "desc".equalsIgnoreCase(order) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sortBy = Sort.by(direction, property);
+        if (!property.equals("sectionId")) {
+            sortBy = sortBy.and(Sort.by("sectionId"));
+        }
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.clamp(size, 1, MAX_PAGE_SIZE), sortBy);
+        Page<TaskRespDto> rows = taskRepository.findRows(enabled, statusFilter, courseFilter, pageable);
+
+        PageRespDto<TaskRespDto> resp = new PageRespDto<>();
+        resp.setItems(rows.getContent());
+        resp.setPage(rows.getNumber());
+        resp.setSize(rows.getSize());
+        resp.setTotalElements(rows.getTotalElements());
+        resp.setTotalPages(rows.getTotalPages());
+        return resp;
+    }
+
+    /**
+     * Writes every task as CSV, streaming rows from the database as they arrive.
+     * Memory use is independent of the table size: rows are DTOs, never entities, and are not collected.
+     */
+    public void exportCsv(OutputStream out) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            try (Stream<TaskRespDto> rows = taskRepository.streamAllRows()) {
+                writer.write("id,sectionId,courseId,courseDisplayName,status,enabled\n");
+                Iterator<TaskRespDto> it = rows.iterator();
+                while (it.hasNext()) {
+                    TaskRespDto row = it.next();
+                    writer.write(row.getId() + "," + csv(row.getSectionId()) + "," + csv(row.getCourseId()) + ","
+                            + csv(row.getCourseDisplayName()) + "," + (row.getStatus() == null ? "" : row.getStatus())
+                            + "," + row.isEnabled() + "\n");
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Task export aborted", e);
+            }
+        });
     }
 
     // 2. Toggle Status Logic
@@ -39,10 +165,286 @@ public class TaskService {
         task.setEnabled(!task.isEnabled());
 
         Task saved = taskRepository.save(task);
+        int key = SectionStateTable.key(saved.getSectionId());
+        if (key > 0) {
+            stateTable.setEnabled(key, saved.isEnabled());
+        }
+        eventStream.publish(TaskEventStream.TOGGLED, saved);
         return convertToResp(saved);
     }
 
     public List<TaskRespDto> SearchAndAdd(String courseName) {
+        ResolvedCourse course = resolveCourse(courseName);
+        List<TaskRespDto> added = addCourse(course.sections());
+        // New rows have no status yet; make sure the next poll syncs them even if the payload is unchanged
+        crawler.invalidate(course.courseId());
+        return added;
+    }
+
+    /**
+     * Starts adding many courses at once and returns the job right away; poll {@link #getBulkAddJob} for progress.
+     * * Strategy:
+     * 1. Names are de-duplicated by their normalized search query, so "comp sci 577" and "COMP SCI 577" cost one search.
+     * 2. Searches run concurrently on virtual threads; the crawler's RequestBudget paces them, so a large
+     *    import never exceeds the configured request rate. At the default budget that takes hours, which is why
+     *    no request thread waits for it.
+     * 3. Each course is inserted as soon as its search resolves, in its own transaction (one SELECT ... IN for the
+     *    sections already tracked, then one saveAll), so its sections are polled without waiting for the rest.
+     *    Inserts run one at a time on the job's thread; a course found by two names is credited to the first.
+     * 4. A course that cannot be resolved or inserted only fails its own entry; the others are still added.
+     *
+     * @return The job: RUNNING, every course PENDING.
+     */
+    public BulkAddRespDto startBulkAdd(List<String> courseNames) {
+        if (courseNames == null || courseNames.isEmpty()) {
+            throw new RuntimeException("No course names given");
+        }
+
+        // normalized query -> name as submitted, in request order
+        Map<String, String> distinct = new LinkedHashMap<>();
+        for (String name : courseNames) {
+            String query = CourseCrawler.normalizeQuery(name);
+            if (!query.isEmpty()) {
+                distinct.putIfAbsent(query, name.trim());
+            }
+        }
+        if (distinct.isEmpty()) {
+            throw new RuntimeException("No course names given");
+        }
+        if (distinct.size() > MAX_BULK_COURSES) {
+            throw new RuntimeException("Too many courses in one request: " + distinct.size()
+                    + " (max " + MAX_BULK_COURSES + ")");
+        }
+
+        List<String> names = new ArrayList<>(distinct.values());
+        BulkAddJob job = new BulkAddJob(UUID.randomUUID().toString(), names);
+        synchronized (bulkJobs) {
+            bulkJobs.put(job.id, job);
+        }
+        Thread.ofVirtual().name("bulk-add-" + job.id).start(() -> runBulkAdd(job, names));
+        return job.snapshot();
+    }
+
+    /**
+     * @throws RuntimeException if there is no such job (unknown, or one of the oldest after MAX_BULK_JOBS newer ones).
+     */
+    public BulkAddRespDto getBulkAddJob(String jobId) {
+        BulkAddJob job;
+        synchronized (bulkJobs) {
+            job = bulkJobs.get(jobId);
+        }
+        if (job == null) {
+            throw new RuntimeException("Bulk add job not found: " + jobId);
+        }
+        return job.snapshot();
+    }
+
+    private void runBulkAdd(BulkAddJob job, List<String> names) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<Resolution> searches = new ExecutorCompletionService<>(executor);
+            for (String name : names) {
+                searches.submit(() -> {
+                    try {
+                        return new Resolution(name, resolveCourse(name), null);
+                    } catch (RuntimeException e) {
+                        return new Resolution(name, null, e.getMessage());
+                    }
+                });
+            }
+
+            for (int i = 0; i < names.size(); i++) {
+                Resolution resolution = searches.take().get();
+                if (resolution.course() == null) {
+                    job.fail(resolution.name(), "NOT_FOUND", resolution.error());
+                    continue;
+                }
+                ResolvedCourse course = resolution.course();
+                try {
+                    List<TaskRespDto> added = addCourse(course.sections());
+                    job.resolve(resolution.name(), course, added);
+                } catch (RuntimeException e) {
+                    System.err.println("[Tasks] Bulk insert of " + course.displayName() + " failed: " + e.getMessage());
+                    job.fail(resolution.name(), "FAILED", e.getMessage());
+                }
+                // New rows have no status yet; make sure the next poll syncs them even if the payload is unchanged
+                crawler.invalidate(course.courseId());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Resolution tasks catch their own failures; this is a bug, not a bad course name
+            System.err.println("[Tasks] Bulk add " + job.id + " aborted: " + e.getCause());
+        } finally {
+            BulkAddRespDto done = job.finish();
+            System.out.println("[Tasks] Bulk add " + job.id + ": " + done.getResults().size() + " courses, "
+                    + done.getAddedSections() + " sections added, " + done.getFailedCourses() + " failed.");
+        }
+    }
+
+    // Search outcome of one submitted name: the course, or why it could not be resolved
+    private record Resolution(String name, ResolvedCourse course, String error) {}
+
+    /**
+     * Progress of one bulk add. Written by the job's thread, read by status requests; guarded by itself.
+     */
+    private static final class BulkAddJob {
+
+        private final String id;
+        // Course name as submitted -> its result, in request order
+        private final Map<String, CourseAddResultDto> results = new LinkedHashMap<>();
+        private final Set<String> claimedCourses = new HashSet<>();
+        private int pending;
+        private boolean done;
+
+        BulkAddJob(String id, List<String> names) {
+            this.id = id;
+            for (String name : names) {
+                CourseAddResultDto result = new CourseAddResultDto();
+                result.setCourseName(name);
+                result.setOutcome("PENDING");
+                results.put(name, result);
+            }
+            this.pending = names.size();
+        }
+
+        synchronized void resolve(String name, ResolvedCourse course, List<TaskRespDto> added) {
+            CourseAddResultDto result = results.get(name);
+            result.setCourseId(course.courseId());
+            result.setCourseDisplayName(course.displayName());
+            // Another name may have resolved to the same course first; it keeps the credit
+            List<TaskRespDto> credited = claimedCourses.add(course.courseId()) ? added : List.of();
+            result.setAdded(credited);
+            result.setSkippedSections(course.sections().size() - credited.size());
+            result.setOutcome(credited.isEmpty() ? "ALREADY_TRACKED" : "ADDED");
+            pending--;
+        }
+
+        synchronized void fail(String name, String outcome, String message) {
+            CourseAddResultDto result = results.get(name);
+            result.setOutcome(outcome);
+            result.setMessage(message);
+            pending--;
+        }
+
+        /**
+         * Marks the job DONE; courses still PENDING (the job was interrupted) become FAILED.
+         */
+        synchronized BulkAddRespDto finish() {
+            for (CourseAddResultDto result : results.values()) {
+                if (result.getOutcome().equals("PENDING")) {
+                    result.setOutcome("FAILED");
+                    result.setMessage("Bulk add was interrupted");
+                }
+            }
+            pending = 0;
+            done = true;
+            return snapshot();
+        }
+
+        synchronized BulkAddRespDto snapshot() {
+            BulkAddRespDto resp = new BulkAddRespDto();
+            resp.setJobId(id);
+            resp.setStatus(done ? "DONE" : "RUNNING");
+            resp.setPendingCourses(pending);
+            List<CourseAddResultDto> copies = new ArrayList<>(results.size());
+            for (CourseAddResultDto result : results.values()) {
+                CourseAddResultDto copy = new CourseAddResultDto();
+                copy.setCourseName(result.getCourseName());
+                copy.setOutcome(result.getOutcome());
+                copy.setMessage(result.getMessage());
+                copy.setCourseId(result.getCourseId());
+                copy.setCourseDisplayName(result.getCourseDisplayName());
+                copy.setAdded(result.getAdded());
+                copy.setSkippedSections(result.getSkippedSections());
+                copies.add(copy);
+                switch (result.getOutcome()) {
+                    case "ADDED" -> {
+                        resp.setAddedCourses(resp.getAddedCourses() + 1);
+                        resp.setAddedSections(resp.getAddedSections() + result.getAdded().size());
+                    }
+                    case "NOT_FOUND", "FAILED" -> resp.setFailedCourses(resp.getFailedCourses() + 1);
+                    default -> { }
+                }
+            }
+            resp.setResults(copies);
+            return resp;
+        }
+    }
+
+    // 3. Add new course
+    /**
+     * Inserts the sections that are not tracked yet in one transaction and returns the new tasks.
+     * Sections already in the table are skipped instead of failing on the unique constraint.
+     */
+    public List<TaskRespDto> addCourse(List<TaskReqDto> reqDtos) {
+        if (reqDtos.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Task> saved = transactionTemplate.execute(status -> {
+            Set<String> existing = new HashSet<>();
+            for (Task task : taskRepository.findBySectionIdIn(
+                    reqDtos.stream().map(TaskReqDto::getSectionId).toList())) {
+                existing.add(task.getSectionId());
+            }
+
+            List<Task> tasks = new ArrayList<>(reqDtos.size());
+            for (TaskReqDto req : reqDtos) {
+                if (existing.add(req.getSectionId())) {
+                    tasks.add(toEntity(req));
+                }
+            }
+            return tasks.isEmpty() ? tasks : taskRepository.saveAll(tasks);
+        });
+
+        // Only after the commit: the poller must never see a section that was rolled back
+        List<TaskRespDto> respDtos = new ArrayList<>(saved.size());
+        for (Task task : saved) {
+            int key = SectionStateTable.key(task.getSectionId());
+            if (key > 0) {
+                stateTable.put(key, SectionStateTable.encode(task.getLastStatus(), task.isEnabled()));
+            }
+            eventStream.publish(TaskEventStream.SECTION_ADDED, task);
+            respDtos.add(convertToResp(task));
+        }
+        return respDtos;
+    }
+
+    // 4. Delete course
+    public void deleteTask(String courseDisplayName) {
+        List<Task> removed = transactionTemplate.execute(status -> {
+            List<Task> tasks = taskRepository.findByCourseDisplayName(courseDisplayName);
+            if (!tasks.isEmpty()) {
+                // Subscriptions would otherwise keep the deleted course in the poll set
+                subscriptionRepository.deleteBySectionIdIn(tasks.stream().map(Task::getSectionId).toList());
+            }
+            taskRepository.deleteAllByCourseDisplayName(courseDisplayName);
+            return tasks;
+        });
+        // Memory and listeners only learn about the delete once it is committed
+        List<String> sectionIds = new ArrayList<>(removed.size());
+        for (Task task : removed) {
+            sectionIds.add(task.getSectionId());
+            int key = SectionStateTable.key(task.getSectionId());
+            if (key > 0) {
+                stateTable.remove(key);
+            }
+        }
+        int unsubscribed = subscriptions.removeSections(sectionIds);
+        if (unsubscribed > 0) {
+            System.out.println("[Subscriptions] Dropped the subscriptions of " + unsubscribed
+                    + " section(s) of deleted course " + courseDisplayName + ".");
+        }
+        // Re-adding the course later must not be short-circuited by stale fingerprints
+        crawler.invalidateAll();
+        eventStream.publishCourseRemoved(courseDisplayName);
+    }
+
+    /**
+     * Searches for the course and lists its sections as (disabled) tasks.
+     *
+     * @throws RuntimeException if the search fails or its first hit is a different course.
+     */
+    private ResolvedCourse resolveCourse(String courseName) {
         JsonNode root = crawler.searchCourse(courseName);
 
         if (root == null || root.path("found").asInt() == 0) {
@@ -55,6 +457,7 @@ public class TaskService {
             throw new RuntimeException("Wrong input / Course not found: " + courseName);
         }
 
+        String courseId = firstHit.path("courseId").asText();
         JsonNode reqs = firstHit.path("courseRequirements");
         Iterator<String> fieldNames = reqs.fieldNames();
         List<TaskReqDto> reqDtoList = new ArrayList<>();
@@ -69,41 +472,40 @@ public class TaskService {
                 System.out.println("Found Section ID: " + sectionId);
                 reqDto.setCourseDisplayName(foundName);
                 reqDto.setSectionId(sectionId);
-                reqDto.setCourseId(firstHit.path("courseId").asText());
+                reqDto.setCourseId(courseId);
                 reqDto.setEnabled(false);
                 reqDtoList.add(reqDto);
             }
         }
-
-        return addCourse(reqDtoList);
+        return new ResolvedCourse(courseId, foundName, reqDtoList);
     }
 
-    // 3. Add new course
-    public List<TaskRespDto> addCourse(List<TaskReqDto> reqDtos){
-        List<TaskRespDto> respDtos = new ArrayList<>();
-        for (TaskReqDto req : reqDtos){
-            Task task = new Task();
-            BeanUtils.copyProperties(req,task);
-            taskRepository.save(task);
-            respDtos.add(convertToResp(task));
+    // Helper: DTO -> Entity (explicit, no reflection)
+    private Task toEntity(TaskReqDto req) {
+        Task task = new Task();
+        task.setSectionId(req.getSectionId());
+        task.setCourseId(req.getCourseId());
+        task.setCourseDisplayName(req.getCourseDisplayName());
+        if (req.getEnabled() != null) {
+            task.setEnabled(req.getEnabled());
         }
-        return respDtos;
+        return task;
     }
 
-    // 4. Delete course
-    @Transactional
-    public void deleteTask(String courseDisplayName) {
-        taskRepository.deleteAllByCourseDisplayName(courseDisplayName);
+    // Quotes a CSV field if it contains a separator, quote or line break
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 
     // Helper: Entity -> DTO
     private TaskRespDto convertToResp(Task task) {
-        TaskRespDto resp = new TaskRespDto();
-        BeanUtils.copyProperties(task, resp);
-        resp.setStatus(task.getLastStatus());
-        // Explicit mapping if names differ, but here they match
-        return resp;
+        return new TaskRespDto(task.getId(), task.getSectionId(), task.getCourseId(),
+                task.getCourseDisplayName(), task.getLastStatus(), task.isEnabled());
     }
-
-
-}
\ No newline at end of file
+}
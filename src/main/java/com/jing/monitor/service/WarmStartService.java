@@ -0,0 +1,185 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.CourseCrawler;
+import com.jing.monitor.core.PollPlanner;
+import com.jing.monitor.core.SectionStateTable;
+import com.jing.monitor.core.SessionPool;
+import com.jing.monitor.model.StateSnapshot;
+import com.jing.monitor.repository.StateSnapshotFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Carries the poller's learned state across restarts.
+ * * Strategy:
+ * 1. Every interval-ms (between poll cycles, on the scheduling thread) the section states, poll plans,
+ *    HTTP validators, crawler session cookies and quarantines are written to one snapshot file. On shutdown one more is written,
+ *    marked clean if no poll (a cycle's or an on-demand refresh's) was in flight.
+ * 2. At startup, before the first cycle, sessions, cookies and poll plans are always restored when the snapshot is
+ *    younger than max-age-ms and from the same API endpoint: they are only hints.
+ * 3. Section states and validators are restored only from a clean snapshot. Only then are they known to
+ *    match the tasks table, and the startup read of every row is skipped; otherwise states come from the DB.
+ * 4. A restored snapshot is immediately overwritten as not clean, so a crash later in this run cannot
+ *    make the next start trust states the DB has since moved past.
+ * With validators restored, the first cycle mostly gets 304s / fingerprint hits instead of parsing every course,
+ * and the WAF token survives the restart.
+ */
+@Service
+@Lazy(false)
+public class WarmStartService {
+
+    private final StateSnapshotFile snapshotFile;
+    private final SectionStateTable stateTable;
+    private final PollPlanner pollPlanner;
+    private final CourseCrawler crawler;
+    private final SessionPool sessionPool;
+    private final SchedulerService scheduler;
+    private final boolean enabled;
+    private final long maxAgeMs;
+
+    public WarmStartService(StateSnapshotFile snapshotFile,
+                            SectionStateTable stateTable,
+                            PollPlanner pollPlanner,
+                            CourseCrawler crawler,
+                            SessionPool sessionPool,
+                            SchedulerService scheduler,
+                            @Value("${monitor.snapshot.enabled:true}") boolean enabled,
+                            @Value("${monitor.snapshot.max-age-ms:21600000}") long maxAgeMs) {
+        this.snapshotFile = snapshotFile;
+        this.stateTable = stateTable;
+        this.pollPlanner = pollPlanner;
+        this.crawler = crawler;
+        this.sessionPool = sessionPool;
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Restores what the snapshot allows and loads the rest from the DB. Runs before the first poll cycle.
+     */
+    @PostConstruct
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        StateSnapshot snapshot = enabled ? readSnapshot(start) : null;
+        if (snapshot == null) {
+            scheduler.loadSectionStates();
+            return;
+        }
+
+        sessionPool.restoreSessions(snapshot.sessions());
+        int cookies = crawler.restoreCookies(snapshot.cookies(), start);
+        pollPlanner.restoreSchedules(snapshot.schedules());
+        boolean statesRestored = snapshot.clean();
+        if (statesRestored) {
+            int[] keys = snapshot.sectionKeys();
+            byte[] states = snapshot.sectionStates();
+            stateTable.clear();
+            for (int i = 0; i < keys.length; i++) {
+                stateTable.put(keys[i], states[i]);
+            }
+            crawler.restoreValidators(snapshot.validators());
+        } else {
+            scheduler.loadSectionStates();
+        }
+        System.out.println("[Snapshot] Restored " + snapshot.schedules().size() + " poll plans and " + cookies
+                + " cookies" + (statesRestored ? ", " + snapshot.sectionKeys().length + " section states and "
+                + snapshot.validators().size() + " validators" : " (states from DB: snapshot not clean)")
+                + " in " + (System.currentTimeMillis() - start) + " ms.");
+
+        // From here on the DB moves past the restored states
+        write(false);
+    }
+
+    @Scheduled(fixedDelayString = "${monitor.snapshot.interval-ms:60000}",
+            initialDelayString = "${monitor.snapshot.interval-ms:60000}")
+    public void saveSnapshot() {
+        if (enabled) {
+            write(false);
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        if (enabled) {
+            // A poll in flight (cycle or refresh) may have stored validators for payloads it has not committed yet
+            write(!scheduler.isPollInFlight());
+        }
+    }
+
+    /**
+     * @return Whether the snapshot was written.
+     */
+    boolean write(boolean clean) {
+        long start = System.currentTimeMillis();
+        SectionCollector sections = new SectionCollector(stateTable.size());
+        stateTable.forEach(sections);
+
+        StateSnapshot snapshot = new StateSnapshot(start, clean, crawler.endpointKey(),
+                Arrays.copyOf(sections.keys, sections.count), Arrays.copyOf(sections.states, sections.count),
+                pollPlanner.exportSchedules(), crawler.exportValidators(), crawler.exportCookies(start),
+                sessionPool.exportSessions());
+        try {
+            snapshotFile.write(snapshot);
+            if (clean) {
+                System.out.println("[Snapshot] Wrote clean snapshot of " + sections.count + " sections in "
+                        + (System.currentTimeMillis() - start) + " ms.");
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("[Snapshot] Could not write " + snapshotFile.path() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private StateSnapshot readSnapshot(long now) {
+        StateSnapshot snapshot;
+        try {
+            snapshot = snapshotFile.read();
+        } catch (IOException e) {
+            System.err.println("[Snapshot] Ignoring unreadable snapshot: " + e.getMessage());
+            return null;
+        }
+        if (snapshot == null) {
+            return null;
+        }
+        if (!crawler.endpointKey().equals(snapshot.endpoint())) {
+            System.out.println("[Snapshot] Ignoring snapshot of another endpoint (" + snapshot.endpoint() + ").");
+            return null;
+        }
+        if (now - snapshot.writtenAt() > maxAgeMs) {
+            System.out.println("[Snapshot] Ignoring snapshot from " + (now - snapshot.writtenAt()) / 1000 + " s ago.");
+            return null;
+        }
+        return snapshot;
+    }
+
+    // Entries are visited under the table's read lock; the size read before may be stale, so grow if needed
+    private static final class SectionCollector implements SectionStateTable.EntryVisitor {
+        int[] keys;
+        byte[] states;
+        int count;
+
+        SectionCollector(int expected) {
+            keys = new int[Math.max(16, expected)];
+            states = new byte[keys.length];
+        }
+
+        @Override
+        public void visit(int key, byte state) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                states = Arrays.copyOf(states, count * 2);
+            }
+            keys[count] = key;
+            states[count++] = state;
+        }
+    }
+}
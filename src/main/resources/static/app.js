@@ -1,13 +1,66 @@
 const API_URL = 'http://localhost:8080/api/tasks';
 
+// Rows currently shown, by section id; kept up to date by the event stream
+let tasksBySection = new Map();
+let stream = null;
+
+// 0. Live updates: one snapshot, then deltas pushed by the server (no polling)
+const connectStream = () => {
+    if (!window.EventSource) { loadTasks(); return; }
+    stream = new EventSource(`${API_URL}/stream`);
+
+    stream.addEventListener('snapshot', e => {
+        const snapshot = JSON.parse(e.data);
+        tasksBySection = new Map(snapshot.tasks.map(t => [t.sectionId, t]));
+        showTasks();
+    });
+
+    stream.addEventListener('task', e => {
+        const event = JSON.parse(e.data);
+        if (event.type === 'COURSE_REMOVED') {
+            for (const [sectionId, task] of tasksBySection) {
+                if (task.courseDisplayName === event.courseDisplayName) tasksBySection.delete(sectionId);
+            }
+        } else {
+            tasksBySection.set(event.task.sectionId, event.task);
+        }
+        showTasks();
+    });
+
+    // EventSource reconnects by itself and sends Last-Event-ID, so missed deltas are replayed
+    stream.onerror = () => console.warn('Stream interrupted, reconnecting...');
+};
+
+const showTasks = () => {
+    const tasks = [...tasksBySection.values()];
+    document.getElementById('totalCount').innerText = tasks.length;
+    renderTable(tasks);
+};
+
+// Only needed without a stream; with one, changes arrive as events
+const refreshIfNoStream = () => {
+    if (!stream) loadTasks();
+};
+
 // 1. Load Tasks
+// The list endpoint is paged; walk the pages (500 rows each) to get everything
+const PAGE_SIZE = 500;
+const loadPages = async () => {
+    const tasks = [];
+    for (let page = 0; ; page++) {
+        const res = await axios.get(API_URL, { params: { page: page, size: PAGE_SIZE } });
+        const result = res.data.data;
+        tasks.push(...result.items);
+        if (page + 1 >= result.totalPages) return tasks;
+    }
+};
+
 const loadTasks = () => {
     const tbody = document.getElementById('taskTableBody');
-    axios.get(API_URL)
-        .then(response => {
-            const tasks = response.data.data;
-            document.getElementById('totalCount').innerText = tasks.length;
-            renderTable(tasks);
+    loadPages()
+        .then(tasks => {
+            tasksBySection = new Map(tasks.map(t => [t.sectionId, t]));
+            showTasks();
         })
         .catch(err => {
             console.error(err);
@@ -63,7 +116,7 @@ const toggleTask = (id) => {
         .then(res => console.log(`Task ${id} toggled`))
         .catch(err => {
             alert("Failed to toggle status");
-            loadTasks(); // revert UI on error
+            if (stream) showTasks(); else loadTasks(); // revert UI on error
         });
 };
 
@@ -79,12 +132,26 @@ const searchAndAdd = () => {
     btn.disabled = true;
     btn.innerHTML = "⏳ Searching...";
 
-    // Use params to match backend @RequestParam
-    axios.post(API_URL, null, { params: { courseName: courseName } })
+    // Several names separated by "," or ";" go to the bulk endpoint in one request
+    const names = courseName.split(/[,;]/).map(n => n.trim()).filter(n => n);
+    const request = names.length > 1
+        ? axios.post(`${API_URL}/bulk`, { courseNames: names }).then(res => awaitBulkAdd(res.data.data.jobId))
+        // Use params to match backend @RequestParam
+        : axios.post(API_URL, null, { params: { courseName: courseName } });
+
+    request
         .then(res => {
-            alert(`✅ Sniper deployed! Found ${res.data.data.length} sections.`);
+            if (names.length > 1) {
+                const bulk = res.data.data;
+                const failed = bulk.results.filter(r => r.outcome === 'NOT_FOUND' || r.outcome === 'FAILED');
+                let msg = `✅ Added ${bulk.addedSections} sections from ${bulk.addedCourses} courses.`;
+                if (failed.length) msg += `\n❌ Failed: ${failed.map(r => r.courseName).join(', ')}`;
+                alert(msg);
+            } else {
+                alert(`✅ Sniper deployed! Found ${res.data.data.length} sections.`);
+            }
             input.value = ''; // clear input
-            loadTasks(); // refresh list
+            refreshIfNoStream(); // refresh list
         })
         .catch(err => {
             console.error(err);
@@ -98,6 +165,15 @@ const searchAndAdd = () => {
         });
 };
 
+// The bulk add runs in the background; poll its job until every course is resolved
+const awaitBulkAdd = (jobId) => axios.get(`${API_URL}/bulk/${jobId}`).then(res => {
+    const job = res.data.data;
+    if (job.status === 'DONE') return res;
+    document.getElementById('btnAdd').innerHTML =
+        `⏳ ${job.results.length - job.pendingCourses}/${job.results.length} courses...`;
+    return new Promise(resolve => setTimeout(resolve, 2000)).then(() => awaitBulkAdd(jobId));
+});
+
 // 4. Delete Course
 const deleteCourse = (courseDisplayName) => {
     if (!confirm(`Are you sure you want to delete ALL sections for "${courseDisplayName}"?`)) return;
@@ -105,7 +181,7 @@ const deleteCourse = (courseDisplayName) => {
     axios.delete(API_URL, { params: { courseDisplayName: courseDisplayName } })
         .then(res => {
             // alert("Deleted."); // Optional
-            loadTasks();
+            refreshIfNoStream();
         })
         .catch(err => {
             alert("Delete failed.");
@@ -114,4 +190,4 @@ const deleteCourse = (courseDisplayName) => {
 }
 
 // Init
-window.onload = loadTasks;
\ No newline at end of file
+window.onload = connectStream;
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.jing.monitor.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jing.monitor.model.SectionInfo;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.stub.StubEnrollmentServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseCrawlerTest {
+
+    private StubEnrollmentServer stub;
+    private HostRateController rateController;
+    private SimpleMeterRegistry registry;
+    private CourseCrawler crawler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = StubEnrollmentServer.start(3, 4, StatusMapping.CLOSED);
+        RequestBudget budget = new RequestBudget(60_000, 100, 0);
+        rateController = new HostRateController(budget, 3, 60_000, 600_000, 0.125, 0.05);
+        registry = new SimpleMeterRegistry();
+        crawler = new CourseCrawler(budget, rateController, new SessionPool(1, 2, 900_000, 14_400_000, 0),
+                new MonitorMetrics(registry), 16, 60_000);
+        ReflectionTestUtils.setField(crawler, "baseUrl", stub.baseUrl());
+        ReflectionTestUtils.setField(crawler, "termId", "1264");
+        ReflectionTestUtils.setField(crawler, "subjectId", "266");
+        ReflectionTestUtils.setField(crawler, "userAgent", "CourseMonitor-Test");
+        ReflectionTestUtils.setField(crawler, "streamingParser", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void unchangedPayloadIsNotParsedAgainUntilAFlip() {
+        String courseId = StubEnrollmentServer.courseId(1);
+
+        CourseFetchResult first = crawler.fetchCourseIfChanged(courseId);
+        assertEquals(CourseFetchResult.Outcome.CHANGED, first.getOutcome());
+        assertEquals(4, first.getSections().size());
+        SectionInfo section = first.getSections().get(2);
+        assertEquals(stub.sectionId(1, 2), section.getSection());
+        assertEquals(StatusMapping.CLOSED, section.getStatus());
+
+        assertEquals(CourseFetchResult.Outcome.UNCHANGED, crawler.fetchCourseIfChanged(courseId).getOutcome());
+        assertEquals(1, crawler.getCacheStats().getFingerprintHits());
+        assertEquals(2, registry.get("monitor.fetch.latency").tag("status", "200").timer().count());
+        assertEquals(1, registry.get("monitor.parse.time").timer().count());
+
+        stub.flip(1, 2, StatusMapping.OPEN);
+        CourseFetchResult flipped = crawler.fetchCourseIfChanged(courseId);
+        assertEquals(CourseFetchResult.Outcome.CHANGED, flipped.getOutcome());
+        assertEquals(StatusMapping.OPEN, flipped.getSections().get(2).getStatus());
+    }
+
+    @Test
+    void unconditionalFetchesDoNotHideChangesFromThePoller() {
+        String courseId = StubEnrollmentServer.courseId(1);
+        crawler.fetchCourseIfChanged(courseId);
+
+        // Someone outside the poller sees the flip first
+        stub.flip(1, 0, StatusMapping.OPEN);
+        assertEquals(StatusMapping.OPEN, crawler.fetchCourseStatus(courseId).get(0).getStatus());
+
+        CourseFetchResult polled = crawler.fetchCourseIfChanged(courseId);
+        assertEquals(CourseFetchResult.Outcome.CHANGED, polled.getOutcome());
+        assertEquals(StatusMapping.OPEN, polled.getSections().get(0).getStatus());
+    }
+
+    @Test
+    void etagsTurnUnchangedPollsInto304s() {
+        stub.setEtags(true);
+        stub.setGzip(true);
+        String courseId = StubEnrollmentServer.courseId(0);
+
+        assertEquals(CourseFetchResult.Outcome.CHANGED, crawler.fetchCourseIfChanged(courseId).getOutcome());
+        assertEquals(CourseFetchResult.Outcome.UNCHANGED, crawler.fetchCourseIfChanged(courseId).getOutcome());
+        assertEquals(1, stub.notModifiedResponses());
+        assertEquals(1, crawler.getCacheStats().getNotModifiedHits());
+
+        stub.flip(0, 0, StatusMapping.WAITLISTED);
+        CourseFetchResult flipped = crawler.fetchCourseIfChanged(courseId);
+        assertEquals(CourseFetchResult.Outcome.CHANGED, flipped.getOutcome());
+        assertEquals(StatusMapping.WAITLISTED, flipped.getSections().get(0).getStatus());
+    }
+
+    @Test
+    void blockedResponsesFailTheFetchAndSlowTheHostDown() {
+        stub.setBlocking(1.0, 429, null);
+
+        assertEquals(CourseFetchResult.Outcome.FAILED,
+                crawler.fetchCourseIfChanged(StubEnrollmentServer.courseId(0)).getOutcome());
+        assertEquals(1, stub.blockedRequests());
+        assertEquals(1, rateController.getStats().get(0).getTotalBlocks());
+        assertEquals(0.5, rateController.getStats().get(0).getRateFactor());
+        assertEquals(1, registry.get("monitor.waf.blocks").tag("status", "429").counter().count());
+        assertEquals(1, registry.get("monitor.fetch.latency").tag("status", "429").timer().count());
+    }
+
+    @Test
+    void largePayloadsParseTheSame() {
+        stub.setPaddingBytes(64 * 1024);
+        stub.setGzip(true);
+
+        List<SectionInfo> sections = crawler.fetchCourseStatus(StubEnrollmentServer.courseId(2));
+        assertNotNull(sections);
+        assertEquals(4, sections.size());
+        assertEquals("COMP SCI", sections.get(0).getSubject());
+        assertEquals(StubEnrollmentServer.catalogNumber(2), sections.get(0).getCatalogNumber());
+    }
+
+    @Test
+    void searchReturnsHits() {
+        JsonNode result = crawler.searchCourse("COMP SCI");
+        assertNotNull(result);
+        assertEquals(3, result.path("hits").size());
+        assertEquals(StubEnrollmentServer.courseId(0), result.path("hits").path(0).path("courseId").asText());
+        assertEquals(1, stub.searchRequests());
+    }
+
+    @Test
+    void repeatedSearchesAreServedFromTheCache() {
+        JsonNode first = crawler.searchCourse("COMP SCI 577");
+        JsonNode second = crawler.searchCourse("  comp   sci 577 ");
+        assertSame(first, second);
+        assertEquals(1, stub.searchRequests());
+        assertEquals(1, crawler.getSearchCacheStats().getHits());
+
+        crawler.searchCourse("COMP SCI 571");
+        assertEquals(2, stub.searchRequests());
+    }
+
+    @Test
+    void failedSearchesAreNotCached() {
+        stub.setBlocking(1.0, 503, null);
+        assertNull(crawler.searchCourse("COMP SCI 577"));
+
+        stub.setBlocking(0, 503, null);
+        assertNotNull(crawler.searchCourse("COMP SCI 577"));
+        assertEquals(2, stub.searchRequests());
+    }
+
+    @Test
+    void statusProbePagesThroughCoursesWithSeats() throws IOException {
+        try (StubEnrollmentServer large = StubEnrollmentServer.start(150, 2, StatusMapping.CLOSED)) {
+            ReflectionTestUtils.setField(crawler, "baseUrl", large.baseUrl());
+            Set<String> expected = new HashSet<>();
+            for (int c = 0; c < 150; c += 2) {
+                large.flip(c, c % 4 == 0 ? 0 : 1, c % 4 == 0 ? StatusMapping.OPEN : StatusMapping.WAITLISTED);
+                if (c < 140) {
+                    expected.add(StubEnrollmentServer.courseId(c));
+                }
+            }
+
+            // 70 of the 140 asked-about courses have seats: two pages of 50
+            Set<String> found = crawler.findCoursesWithSeats(large.courseIds().subList(0, 140));
+            assertEquals(expected, found);
+            assertEquals(2, large.probeRequests());
+            assertEquals(0, large.packageRequests());
+
+            large.setBlocking(1.0, 429, null);
+            assertNull(crawler.findCoursesWithSeats(large.courseIds()));
+        }
+    }
+
+    @Test
+    void statusProbeGivesUpRatherThanAnswerFromAPartialSet() throws IOException {
+        int courses = CourseCrawler.MAX_PROBE_HITS + 10;
+        try (StubEnrollmentServer large = StubEnrollmentServer.start(courses, 1, StatusMapping.CLOSED)) {
+            ReflectionTestUtils.setField(crawler, "baseUrl", large.baseUrl());
+            for (int c = 0; c < courses; c++) {
+                large.flip(c, 0, StatusMapping.OPEN);
+            }
+
+            // The last ten courses would be missing from the pages read, and so look closed
+            assertNull(crawler.findCoursesWithSeats(large.courseIds()));
+            assertEquals(20, large.probeRequests());
+            assertEquals(CourseCrawler.MAX_PROBE_HITS,
+                    crawler.findCoursesWithSeats(large.courseIds().subList(0, CourseCrawler.MAX_PROBE_HITS)).size());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.jing.monitor.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jing.monitor.model.SectionInfo;
+import com.jing.monitor.model.StatusMapping;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Streaming path must produce exactly what the tree path produces
+class EnrollmentPackageParserTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final EnrollmentPackageParser parser = new EnrollmentPackageParser(mapper.getFactory());
+
+    @Test
+    void streamingMatchesTreeOnRecordedFixture() throws IOException {
+        byte[] body;
+        try (InputStream in = getClass().getResourceAsStream("/fixtures/enrollment-packages.json")) {
+            body = in.readAllBytes();
+        }
+
+        List<SectionInfo> streamed = parser.parse(new ByteArrayInputStream(body), "004289");
+        List<SectionInfo> tree = parser.parseTree(mapper.readTree(body), "004289");
+
+        assertEquals(tree.toString(), streamed.toString());
+        assertEquals(4, streamed.size());
+
+        SectionInfo first = streamed.get(0);
+        assertEquals("COMP SCI", first.getSubject());
+        assertEquals("577", first.getCatalogNumber());
+        assertEquals("60035", first.getSection());
+        assertEquals(StatusMapping.OPEN, first.getStatus());
+
+        assertEquals(StatusMapping.WAITLISTED, streamed.get(1).getStatus());
+        // Unknown status strings fall back to CLOSED, missing sections give an empty subject
+        assertEquals(StatusMapping.CLOSED, streamed.get(3).getStatus());
+        assertEquals("", streamed.get(3).getSubject());
+    }
+
+    @Test
+    void nonArrayRootIsRejectedByBothPaths() throws IOException {
+        String body = "{\"message\":\"Request blocked\"}";
+
+        assertNull(parser.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "004289"));
+        assertNull(parser.parseTree(mapper.readTree(body), "004289"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.jing.monitor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostRateControllerTest {
+
+    private static final String HOST = "public.enroll.wisc.edu";
+
+    @Test
+    void blocksHalveTheRateAndSuccessesWinItBack() {
+        RequestBudget budget = new RequestBudget(60, 1, 0);
+        HostRateController controller = new HostRateController(budget, 3, 60_000, 600_000, 0.125, 0.25);
+
+        controller.onResponse(HOST, 429, null);
+        assertEquals(0.5, budget.getRateFactor());
+        controller.onResponse(HOST, 403, null);
+        assertEquals(0.25, budget.getRateFactor());
+
+        controller.onResponse(HOST, 200, null);
+        assertEquals(0.5, budget.getRateFactor());
+        assertEquals(HostRateController.Admission.PROCEED, controller.admit(HOST));
+    }
+
+    @Test
+    void repeatedBlocksOpenTheCircuitAndOnlyOneProbeGetsThrough() throws InterruptedException {
+        RequestBudget budget = new RequestBudget(60, 1, 0);
+        // 50 ms cooldown so the test can watch it expire
+        HostRateController controller = new HostRateController(budget, 2, 50, 1_000, 0.125, 0.05);
+
+        controller.onResponse(HOST, 202, null);
+        controller.onResponse(HOST, 202, null);
+        assertTrue(controller.isRejecting(HOST));
+        assertEquals(HostRateController.Admission.REJECT, controller.admit(HOST));
+
+        Thread.sleep(80);
+        assertEquals(HostRateController.Admission.PROCEED, controller.admit(HOST));
+        // Second caller while the probe is in flight
+        assertEquals(HostRateController.Admission.REJECT, controller.admit(HOST));
+
+        controller.onResponse(HOST, 200, null);
+        assertFalse(controller.isRejecting(HOST));
+        assertEquals(HostRateController.Admission.PROCEED, controller.admit(HOST));
+    }
+
+    @Test
+    void parsesBothRetryAfterForms() {
+        assertEquals(TimeUnit.SECONDS.toNanos(120), HostRateController.parseRetryAfter("120"));
+        assertEquals(0, HostRateController.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals(0, HostRateController.parseRetryAfter("garbage"));
+        assertEquals(0, HostRateController.parseRetryAfter(null));
+    }
+}
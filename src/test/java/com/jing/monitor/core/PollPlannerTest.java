@@ -0,0 +1,148 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.StateSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PollPlannerTest {
+
+    private static final long BASE = 100_000;
+
+    // min 1 s, base 100 s, max 1000 s, volatility half-life 1 s, all-open x4, hot windows /4
+    private static PollPlanner planner(String hotWindows) {
+        return new PollPlanner(1_000, BASE, 1_000_000, 1_000, 4, 4, hotWindows);
+    }
+
+    @Test
+    void quietCoursePollsAtTheBaseInterval() {
+        PollPlanner planner = planner("");
+        planner.recordPoll("A", 0, false, 0);
+        assertWithinJitter(BASE, planner.nextPollAt("A"));
+    }
+
+    @Test
+    void transitionsShortenTheIntervalAndDecayWithTheHalfLife() {
+        PollPlanner planner = planner("");
+        planner.recordPoll("A", 1, false, 0);
+        assertWithinJitter(BASE / 2, planner.nextPollAt("A"));
+
+        // One half-life later the transition counts half: base / 1.5
+        planner.recordPoll("A", 0, null, 1_000);
+        assertWithinJitter(BASE * 2 / 3, planner.nextPollAt("A") - 1_000);
+
+        // Long after, the course is quiet again
+        planner.recordPoll("A", 0, null, 100_000);
+        assertWithinJitter(BASE, planner.nextPollAt("A") - 100_000);
+    }
+
+    @Test
+    void allOpenCoursesBackOffUntilTheyChange() {
+        PollPlanner planner = planner("");
+        planner.recordPoll("A", 0, true, 0);
+        assertWithinJitter(4 * BASE, planner.nextPollAt("A"));
+
+        // An unparsed (unchanged) poll keeps the last all-open value
+        planner.recordPoll("A", 0, null, 0);
+        assertWithinJitter(4 * BASE, planner.nextPollAt("A"));
+
+        planner.recordPoll("A", 0, false, 0);
+        assertWithinJitter(BASE, planner.nextPollAt("A"));
+    }
+
+    @Test
+    void hotWindowsDivideTheInterval() {
+        PollPlanner planner = planner("2026-11-03T07:00/2026-11-10T23:00");
+        long inside = epochMs("2026-11-05T12:00");
+        long after = epochMs("2026-11-11T12:00");
+        assertTrue(planner.inHotWindow(inside));
+        assertFalse(planner.inHotWindow(after));
+
+        planner.recordPoll("A", 0, false, inside);
+        assertWithinJitter(BASE / 4, planner.nextPollAt("A") - inside);
+        planner.recordPoll("A", 0, false, after);
+        assertWithinJitter(BASE, planner.nextPollAt("A") - after);
+    }
+
+    @Test
+    void intervalsAreClampedToMinAndMax() {
+        PollPlanner planner = new PollPlanner(1_000, BASE, 200_000, 1_000, 4, 4, "");
+        planner.recordPoll("open", 0, true, 0);
+        assertWithinJitter(200_000, planner.nextPollAt("open"));
+
+        planner.recordPoll("busy", 1_000, false, 0);
+        assertWithinJitter(1_000, planner.nextPollAt("busy"));
+
+        // Failures retry after the minimum interval
+        planner.recordFailure("open", 0);
+        assertWithinJitter(1_000, planner.nextPollAt("open"));
+    }
+
+    @Test
+    void jitterStaysWithinTenPercent() {
+        PollPlanner planner = planner("");
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            planner.recordPoll("A", 0, false, 0);
+            long next = planner.nextPollAt("A");
+            assertWithinJitter(BASE, next);
+            seen.add(next);
+        }
+        // Spread out, not one fixed offset
+        assertTrue(seen.size() > 100);
+    }
+
+    @Test
+    void dueCoursesAreMostOverdueFirst() {
+        PollPlanner planner = planner("");
+        planner.recordPoll("late", 0, false, 0);
+        planner.recordFailure("later", 0);
+        planner.recordPoll("notYet", 0, false, 500_000);
+
+        assertEquals(List.of("new", "later", "late"),
+                planner.dueCourses(List.of("late", "notYet", "later", "new"), 200_000));
+
+        // Untracked courses are forgotten
+        planner.dueCourses(List.of("late"), 200_000);
+        assertEquals(0, planner.nextPollAt("notYet"));
+    }
+
+    @Test
+    void schedulesRoundTripThroughTheSnapshot() {
+        PollPlanner planner = planner("");
+        planner.recordPoll("A", 2, false, 0);
+        planner.recordPoll("B", 0, true, 5_000);
+        planner.recordFailure("C", 7_000);
+        List<StateSnapshot.Schedule> exported = planner.exportSchedules();
+        assertEquals(3, exported.size());
+
+        PollPlanner restored = planner("");
+        restored.restoreSchedules(exported);
+        assertEquals(new HashSet<>(exported), new HashSet<>(restored.exportSchedules()));
+        for (String courseId : List.of("A", "B", "C")) {
+            assertEquals(planner.nextPollAt(courseId), restored.nextPollAt(courseId));
+        }
+
+        // Restored volatility and all-open flag keep shaping the next interval
+        restored.recordPoll("A", 0, null, 0);
+        assertWithinJitter(BASE / 3, restored.nextPollAt("A"));
+        restored.recordPoll("B", 0, null, 5_000);
+        assertWithinJitter(4 * BASE, restored.nextPollAt("B") - 5_000);
+    }
+
+    private static void assertWithinJitter(long interval, long actual) {
+        long spread = interval / 10;
+        assertTrue(actual >= interval - spread && actual <= interval + spread,
+                actual + " not within 10% of " + interval);
+    }
+
+    private static long epochMs(String localDateTime) {
+        return LocalDateTime.parse(localDateTime).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
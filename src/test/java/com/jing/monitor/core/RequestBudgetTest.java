@@ -0,0 +1,64 @@
+package com.jing.monitor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Pure unit test, no Spring context / MySQL needed
+class RequestBudgetTest {
+
+    @Test
+    void firstRequestIsFreeThenCallersQueueAtTheConfiguredRate() {
+        // 60 per minute = one permit per second, no jitter so the numbers are exact
+        RequestBudget budget = new RequestBudget(60, 1, 0);
+
+        assertEquals(0, budget.reserve());
+
+        long second = budget.reserve();
+        long third = budget.reserve();
+        assertTrue(second > TimeUnit.MILLISECONDS.toNanos(900) && second <= TimeUnit.SECONDS.toNanos(1));
+        assertTrue(third > TimeUnit.MILLISECONDS.toNanos(1900) && third <= TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void jitterOnlyEverStretchesTheWait() {
+        RequestBudget budget = new RequestBudget(60, 1, 500);
+        budget.reserve();
+
+        long wait = budget.reserve();
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(900));
+        assertTrue(wait < TimeUnit.MILLISECONDS.toNanos(1500));
+    }
+
+    @Test
+    void jitterNeitherRefusesASlotWithinTheLimitNorStretchesPastIt() {
+        // The next slot is a second out; the jitter alone could add up to ten more
+        for (int i = 0; i < 200; i++) {
+            RequestBudget budget = new RequestBudget(60, 1, 10_000);
+            budget.reserve();
+
+            long limit = TimeUnit.MILLISECONDS.toNanos(1_200);
+            long wait = budget.tryReserve(limit);
+            assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(900), "wait " + wait);
+            assertTrue(wait <= limit, "wait " + wait);
+        }
+    }
+
+    @Test
+    void tryAcquireGivesUpWithoutTakingAPermit() throws InterruptedException {
+        RequestBudget budget = new RequestBudget(60, 1, 0);
+        assertTrue(budget.tryAcquire(0));
+
+        // The next slot is a second out
+        assertFalse(budget.tryAcquire(100));
+        assertEquals(-1, budget.tryReserve(TimeUnit.MILLISECONDS.toNanos(100)));
+
+        // Giving up left no debt behind: the next caller still waits one interval, not two
+        long wait = budget.reserve();
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(800) && wait <= TimeUnit.SECONDS.toNanos(1));
+    }
+}
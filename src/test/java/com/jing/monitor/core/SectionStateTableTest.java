@@ -0,0 +1,65 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.StatusMapping;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Randomized comparison against a HashMap, plus the packed-byte helpers
+class SectionStateTableTest {
+
+    @Test
+    void behavesLikeAMapUnderRandomPutsAndRemoves() {
+        SectionStateTable table = new SectionStateTable();
+        Map<Integer, Byte> reference = new HashMap<>();
+        Random random = new Random(42);
+        StatusMapping[] statuses = StatusMapping.values();
+
+        for (int i = 0; i < 200_000; i++) {
+            // Dense 5-digit ids, like real section numbers, to exercise long probe chains
+            int key = 10000 + random.nextInt(20000);
+            if (random.nextInt(4) == 0) {
+                table.remove(key);
+                reference.remove(key);
+            } else {
+                byte state = SectionStateTable.encode(statuses[random.nextInt(statuses.length)], random.nextBoolean());
+                table.put(key, state);
+                reference.put(key, state);
+            }
+        }
+
+        assertEquals(reference.size(), table.size());
+        for (int key = 10000; key < 30000; key++) {
+            Byte expected = reference.get(key);
+            assertEquals(expected == null ? SectionStateTable.ABSENT : expected, table.get(key), "key " + key);
+        }
+    }
+
+    @Test
+    void packsStatusAndEnabledFlagIntoOneByte() {
+        SectionStateTable table = new SectionStateTable();
+        int key = SectionStateTable.key("60035");
+        assertEquals(60035, key);
+
+        table.put(key, SectionStateTable.encode(StatusMapping.WAITLISTED, false));
+        table.setEnabled(key, true);
+
+        byte state = table.get(key);
+        assertTrue(SectionStateTable.isPresent(state));
+        assertTrue(SectionStateTable.isEnabled(state));
+        assertEquals(StatusMapping.WAITLISTED, SectionStateTable.status(state));
+
+        // Known section whose status was never observed
+        byte unknown = SectionStateTable.encode(null, false);
+        assertTrue(SectionStateTable.isPresent(unknown));
+        assertNull(SectionStateTable.status(unknown));
+
+        assertFalse(SectionStateTable.isPresent(table.get(60036)));
+        assertEquals(-1, SectionStateTable.key("6003A"));
+        assertEquals(-1, SectionStateTable.key(""));
+    }
+}
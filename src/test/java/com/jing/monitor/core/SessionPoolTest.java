@@ -0,0 +1,134 @@
+package com.jing.monitor.core;
+
+import com.jing.monitor.model.StateSnapshot;
+import com.jing.monitor.model.dto.CrawlerSessionStatsDto;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionPoolTest {
+
+    private static final URI ORIGIN = URI.create("http://localhost:8080");
+
+    @Test
+    void requestsRotateOverHealthySessions() {
+        SessionPool pool = new SessionPool(3, 2, 1_000, 8_000, 0);
+        assertEquals(List.of(0, 1, 2, 0), List.of(id(pool, 0), id(pool, 0), id(pool, 0), id(pool, 0)));
+    }
+
+    @Test
+    void blockedSessionIsQuarantinedWithItsCookiesDropped() {
+        SessionPool pool = new SessionPool(2, 2, 1_000, 8_000, 0);
+        pool.setCookies(null, Map.of("aws-waf-token", "t0k3n"), ORIGIN);
+
+        SessionPool.Lease first = pool.acquire(0);
+        pool.onResponse(first, 403, 0);
+        // One block is not enough; a success in between starts the count again
+        pool.onResponse(first, 200, 0);
+        pool.onResponse(first, 202, 0);
+        assertEquals("HEALTHY", pool.getStats(0).get(0).getState());
+        pool.onResponse(first, 403, 0);
+
+        CrawlerSessionStatsDto stats = pool.getStats(0).get(0);
+        assertEquals("QUARANTINED", stats.getState());
+        assertEquals(1_000, stats.getQuarantinedForMs());
+        assertTrue(stats.getCookieNames().isEmpty());
+        assertEquals(List.of("aws-waf-token"), pool.getStats(0).get(1).getCookieNames());
+
+        // Only the healthy session is used until the quarantine is over
+        assertEquals(List.of(1, 1, 1), List.of(id(pool, 10), id(pool, 20), id(pool, 999)));
+        assertEquals(List.of(0, 1), List.of(id(pool, 1_000), id(pool, 1_000)));
+    }
+
+    @Test
+    void repeatedQuarantinesBackOffUntilASuccess() {
+        SessionPool pool = new SessionPool(1, 1, 1_000, 3_000, 0);
+        SessionPool.Lease lease = pool.acquire(0);
+        pool.onResponse(lease, 403, 0);
+        assertEquals(1_000, pool.getStats(0).getFirst().getQuarantinedForMs());
+
+        // Every session is quarantined: the one due back first still serves requests
+        assertSame(lease.session(), pool.acquire(500).session());
+
+        pool.onResponse(pool.acquire(1_000), 403, 1_000);
+        assertEquals(2_000, pool.getStats(1_000).getFirst().getQuarantinedForMs());
+        pool.onResponse(pool.acquire(3_000), 403, 3_000);
+        assertEquals(3_000, pool.getStats(3_000).getFirst().getQuarantinedForMs());
+
+        pool.onResponse(pool.acquire(6_000), 200, 6_000);
+        assertEquals(0, pool.getStats(6_000).getFirst().getStrikes());
+        pool.onResponse(pool.acquire(6_000), 403, 6_000);
+        assertEquals(1_000, pool.getStats(6_000).getFirst().getQuarantinedForMs());
+
+        // 429 / 503 are the host's business
+        pool.onResponse(pool.acquire(7_000), 429, 7_000);
+        assertEquals("HEALTHY", pool.getStats(7_000).getFirst().getState());
+    }
+
+    @Test
+    void lateAnswersForAReplacedIdentityAreIgnored() {
+        SessionPool pool = new SessionPool(1, 1, 1_000, 8_000, 0);
+        // Two requests in flight on the same token
+        SessionPool.Lease blocked = pool.acquire(0);
+        SessionPool.Lease late = pool.acquire(0);
+        pool.onResponse(blocked, 403, 0);
+        assertEquals("QUARANTINED", pool.getStats(10).getFirst().getState());
+
+        // The other one comes back fine, but for the token that was just dropped
+        pool.onResponse(late, 200, 10);
+        CrawlerSessionStatsDto stats = pool.getStats(10).getFirst();
+        assertEquals("QUARANTINED", stats.getState());
+        assertEquals(1, stats.getStrikes());
+
+        // Nor does a late block count against the fresh token
+        SessionPool.Lease fresh = pool.acquire(1_000);
+        pool.onResponse(late, 403, 1_000);
+        assertEquals("HEALTHY", pool.getStats(1_000).getFirst().getState());
+        pool.onResponse(fresh, 200, 1_000);
+        assertEquals(0, pool.getStats(1_000).getFirst().getStrikes());
+    }
+
+    @Test
+    void oldSessionsStartOver() {
+        SessionPool pool = new SessionPool(1, 2, 1_000, 8_000, 60_000);
+        long now = System.currentTimeMillis();
+        pool.setCookies(0, Map.of("aws-waf-token", "t0k3n"), ORIGIN);
+        pool.acquire(now + 59_000);
+        assertEquals(List.of("aws-waf-token"), pool.getStats(now).getFirst().getCookieNames());
+
+        pool.acquire(now + 60_000);
+        CrawlerSessionStatsDto stats = pool.getStats(now + 60_000).getFirst();
+        assertTrue(stats.getCookieNames().isEmpty());
+        assertEquals(1, stats.getRefreshes());
+        assertEquals(0, stats.getAgeMs());
+
+        assertThrows(IllegalArgumentException.class, () -> pool.setCookies(1, Map.of("a", "b"), ORIGIN));
+    }
+
+    @Test
+    void cookiesAndQuarantinesSurviveARestart() {
+        SessionPool pool = new SessionPool(3, 1, 1_000, 8_000, 0);
+        pool.setCookies(2, Map.of("aws-waf-token", "t0k3n"), ORIGIN);
+        pool.onResponse(pool.acquire(0), 403, 0);
+        List<StateSnapshot.Cookie> cookies = pool.exportCookies(0);
+        List<StateSnapshot.Session> sessions = pool.exportSessions();
+
+        SessionPool restored = new SessionPool(3, 1, 1_000, 8_000, 0);
+        restored.restoreSessions(sessions);
+        assertEquals(1, restored.restoreCookies(cookies, ORIGIN, 0));
+        assertEquals(List.of("aws-waf-token"), restored.getStats(0).get(2).getCookieNames());
+        assertEquals("QUARANTINED", restored.getStats(0).get(0).getState());
+        assertEquals(List.of(1, 2, 1), List.of(id(restored, 0), id(restored, 0), id(restored, 0)));
+
+        // A smaller pool drops the jars of the sessions it no longer has
+        assertEquals(0, new SessionPool(2, 1, 1_000, 8_000, 0).restoreCookies(cookies, ORIGIN, 0));
+    }
+
+    private static int id(SessionPool pool, long now) {
+        return pool.acquire(now).id();
+    }
+}
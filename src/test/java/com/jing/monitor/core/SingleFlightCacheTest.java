@@ -0,0 +1,108 @@
+package com.jing.monitor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightCacheTest {
+
+    @Test
+    void freshEntriesAreServedUntilTheyExpire() {
+        AtomicLong now = new AtomicLong();
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(10, 1_000, now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", cache.get("k", k -> "v" + loads.incrementAndGet()));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertEquals("v1", cache.get("k", k -> "v" + loads.incrementAndGet()));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals("v2", cache.get("k", k -> "v" + loads.incrementAndGet()));
+
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(2, 60_000);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.getIfFresh("a");
+        cache.put("c", "C");
+
+        assertEquals("A", cache.getIfFresh("a"));
+        assertNull(cache.getIfFresh("b"));
+        assertEquals("C", cache.getIfFresh("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void nullResultsAreNotCached() {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get("k", k -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.get("k", k -> { loads.incrementAndGet(); return null; }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            results.add(executor.submit(() -> cache.get("k", k -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return "value";
+            })));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("k", k -> {
+                    loads.incrementAndGet();
+                    return "duplicate";
+                })));
+            }
+            // Let the followers reach the in-flight future before the leader finishes
+            while (cache.coalesced() < 8) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+        }
+
+        for (Future<String> result : results) {
+            assertEquals("value", result.get());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(8, cache.coalesced());
+    }
+
+    @Test
+    void loaderFailuresReachEveryWaiterAndAreNotCached() {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(10, 60_000);
+        assertThrows(IllegalStateException.class, () -> cache.get("k", k -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("ok", cache.get("k", k -> "ok"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.jing.monitor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionIndexTest {
+
+    private final SubscriptionIndex index = new SubscriptionIndex();
+
+    @Test
+    void sectionsFanOutToEverySubscriber() {
+        assertTrue(index.add("60001", "004289", "a@wisc.edu"));
+        assertTrue(index.add("60001", "004289", "b@wisc.edu"));
+        assertFalse(index.add("60001", "004289", "a@wisc.edu"));
+
+        assertEquals(List.of("a@wisc.edu", "b@wisc.edu"), index.subscribers("60001"));
+        assertTrue(index.subscribers("60002").isEmpty());
+        assertFalse(index.hasSubscribers("60002"));
+    }
+
+    @Test
+    void courseStaysInThePollSetWhileAnySectionIsSubscribed() {
+        index.add("60001", "004289", "a@wisc.edu");
+        index.add("60002", "004289", "b@wisc.edu");
+        index.add("70001", "005000", "a@wisc.edu");
+        assertEquals(Set.of("004289", "005000"), index.courses());
+
+        assertTrue(index.remove("60001", "a@wisc.edu"));
+        assertEquals(Set.of("004289", "005000"), index.courses());
+        assertTrue(index.remove("60002", "b@wisc.edu"));
+        assertEquals(Set.of("005000"), index.courses());
+        assertFalse(index.remove("60002", "b@wisc.edu"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void capturedListsAreNotAffectedByLaterChanges() {
+        index.add("60001", "004289", "a@wisc.edu");
+        List<String> captured = index.subscribers("60001");
+        index.add("60001", "004289", "b@wisc.edu");
+        index.remove("60001", "a@wisc.edu");
+
+        assertEquals(List.of("a@wisc.edu"), captured);
+        assertEquals(List.of("b@wisc.edu"), index.subscribers("60001"));
+        assertThrows(UnsupportedOperationException.class, () -> captured.add("c@wisc.edu"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.jing.monitor.repository;
+
+import com.jing.monitor.model.StateSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotRoundTrips() throws IOException {
+        StateSnapshotFile file = new StateSnapshotFile(dir.resolve("state.snapshot").toString());
+        assertNull(file.read());
+
+        StateSnapshot written = new StateSnapshot(1_000L, true, "http://api|1264|266",
+                new int[]{60035, 60036}, new byte[]{0x41, 0x63},
+                List.of(new StateSnapshot.Schedule("004289", 5_000L, 1.5, 900L, true)),
+                List.of(new StateSnapshot.Validator("004289", null, "Tue, 03 Nov 2026 07:00:00 GMT", 42L)),
+                List.of(new StateSnapshot.Cookie(1, "aws-waf-token", "t0k3n", null, "/", -1, true, false)),
+                List.of(new StateSnapshot.Session(0, 500L, 0L, 0), new StateSnapshot.Session(1, 700L, 9_000L, 2)));
+        file.write(written);
+
+        StateSnapshot read = file.read();
+        assertEquals(1_000L, read.writtenAt());
+        assertTrue(read.clean());
+        assertEquals("http://api|1264|266", read.endpoint());
+        assertArrayEquals(new int[]{60035, 60036}, read.sectionKeys());
+        assertArrayEquals(new byte[]{0x41, 0x63}, read.sectionStates());
+        assertEquals(written.schedules(), read.schedules());
+        assertEquals(written.validators(), read.validators());
+        assertEquals(written.cookies(), read.cookies());
+        assertEquals(written.sessions(), read.sessions());
+        assertFalse(Files.exists(dir.resolve("state.snapshot.tmp")));
+    }
+
+    @Test
+    void corruptSnapshotIsRejected() throws IOException {
+        Path path = dir.resolve("state.snapshot");
+        StateSnapshotFile file = new StateSnapshotFile(path.toString());
+        file.write(new StateSnapshot(1_000L, false, "endpoint", new int[]{60035}, new byte[]{0x41},
+                List.of(), List.of(), List.of(), List.of()));
+
+        byte[] bytes = Files.readAllBytes(path);
+        // Inside the first section key: only the checksum can tell
+        bytes[32] ^= 0x01;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, file::read);
+
+        Files.write(path, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, file::read);
+    }
+}
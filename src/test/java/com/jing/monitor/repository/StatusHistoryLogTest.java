@@ -0,0 +1,154 @@
+package com.jing.monitor.repository;
+
+import com.jing.monitor.model.HistoryRecord;
+import com.jing.monitor.model.StatusMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusHistoryLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsRoundTripInOrder() {
+        StatusHistoryLog log = new StatusHistoryLog(dir.toString(), true, 100, 0, 4);
+        log.start();
+        assertTrue(log.append(1_000L, 60035, 4289, StatusMapping.CLOSED, null, HistoryRecord.Kind.DISCOVERED));
+        assertTrue(log.append(2_000L, 60035, 4289, StatusMapping.OPEN, StatusMapping.CLOSED, HistoryRecord.Kind.TRANSITION));
+
+        List<HistoryRecord> records = replay(log);
+        assertEquals(List.of(
+                new HistoryRecord(1_000L, 60035, 4289, StatusMapping.CLOSED, null, HistoryRecord.Kind.DISCOVERED),
+                new HistoryRecord(2_000L, 60035, 4289, StatusMapping.OPEN, StatusMapping.CLOSED, HistoryRecord.Kind.TRANSITION)),
+                records);
+        log.stop();
+    }
+
+    @Test
+    void reopeningResumesAfterTheLastRecord() {
+        StatusHistoryLog first = new StatusHistoryLog(dir.toString(), true, 100, 0, 4);
+        first.start();
+        for (int i = 1; i <= 7; i++) {
+            first.append(i, 60000 + i, 4289, StatusMapping.CLOSED, StatusMapping.CLOSED, HistoryRecord.Kind.OBSERVED);
+        }
+        first.stop();
+
+        StatusHistoryLog second = new StatusHistoryLog(dir.toString(), true, 100, 0, 4);
+        second.start();
+        second.append(8, 60008, 4289, StatusMapping.OPEN, null, HistoryRecord.Kind.DISCOVERED);
+
+        List<HistoryRecord> records = replay(second);
+        assertEquals(8, records.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i + 1, records.get(i).timestamp());
+        }
+        second.stop();
+    }
+
+    @Test
+    void fullSegmentsRollAndOldOnesAreDeleted() throws IOException {
+        StatusHistoryLog log = new StatusHistoryLog(dir.toString(), true, 10, 0, 3);
+        log.start();
+        for (int i = 1; i <= 45; i++) {
+            log.append(i, 60000 + i, 4289, StatusMapping.WAITLISTED, StatusMapping.CLOSED, HistoryRecord.Kind.TRANSITION);
+        }
+        log.flush();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(3, files.count());
+        }
+        // Segments 1 and 2 (records 1..20) are gone; 3, 4 and the half-full 5 remain
+        List<HistoryRecord> records = replay(log);
+        assertEquals(25, records.size());
+        assertEquals(21, records.get(0).timestamp());
+        assertEquals(45, records.get(24).timestamp());
+        assertEquals(45, log.appendedRecords());
+        log.stop();
+    }
+
+    @Test
+    void dataEndsAtTheFirstDamagedRecordAndTheDebrisIsCleared() throws IOException {
+        StatusHistoryLog first = new StatusHistoryLog(dir.toString(), true, 100, 0, 4);
+        first.start();
+        for (int i = 1; i <= 6; i++) {
+            first.append(i, 60000 + i, 4289, StatusMapping.CLOSED, StatusMapping.CLOSED, HistoryRecord.Kind.OBSERVED);
+        }
+        first.stop();
+
+        // A crash left record 3 torn (one byte flipped) and record 5 unwritten, with 4 and 6 on disk
+        Path segment = dir.resolve("history-000001.seg");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), slot(3) + 9);
+            channel.write(ByteBuffer.allocate(StatusHistoryLog.RECORD_BYTES), slot(5));
+        }
+
+        StatusHistoryLog second = new StatusHistoryLog(dir.toString(), true, 100, 0, 4);
+        second.start();
+        assertEquals(List.of(1L, 2L), timestamps(second));
+        second.append(7, 60007, 4289, StatusMapping.OPEN, null, HistoryRecord.Kind.DISCOVERED);
+        second.append(8, 60008, 4289, StatusMapping.OPEN, null, HistoryRecord.Kind.DISCOVERED);
+        second.append(9, 60009, 4289, StatusMapping.OPEN, null, HistoryRecord.Kind.DISCOVERED);
+        second.stop();
+
+        // The new records took slots 3..5; the old 4 and 6 were cleared, so nothing stale follows them
+        StatusHistoryLog third = new StatusHistoryLog(dir.toString(), true, 100, 0, 4);
+        third.start();
+        assertEquals(List.of(1L, 2L, 7L, 8L, 9L), timestamps(third));
+        third.stop();
+    }
+
+    @Test
+    void versionOneSegmentsAreReplayedButNotAppendedTo() throws IOException {
+        // 20-byte records without a checksum; the third has a kind byte no version ever wrote
+        ByteBuffer legacy = ByteBuffer.allocate(20 * 6);
+        legacy.putInt(0, 0x53484C31).putInt(4, 1).putInt(8, 20);
+        for (int i = 1; i <= 4; i++) {
+            legacy.putLong(20 * i, i).putInt(20 * i + 8, 60000 + i).putInt(20 * i + 12, 4289)
+                    .put(20 * i + 16, (byte) 1).put(20 * i + 18, (byte) (i == 3 ? 99 : 0));
+        }
+        Files.write(dir.resolve("history-000001.seg"), legacy.array());
+
+        StatusHistoryLog log = new StatusHistoryLog(dir.toString(), true, 100, 0, 4);
+        log.start();
+        log.append(5, 60005, 4289, StatusMapping.OPEN, null, HistoryRecord.Kind.DISCOVERED);
+        assertEquals(List.of(1L, 2L, 5L), timestamps(log));
+        assertEquals(20 * 6, Files.size(dir.resolve("history-000001.seg")));
+        log.stop();
+    }
+
+    @Test
+    void disabledLogAcceptsNothing() {
+        StatusHistoryLog log = new StatusHistoryLog(dir.toString(), false, 100, 0, 4);
+        log.start();
+        assertFalse(log.append(1, 60035, 4289, StatusMapping.OPEN, null, HistoryRecord.Kind.DISCOVERED));
+        assertTrue(replay(log).isEmpty());
+        log.stop();
+    }
+
+    private static long slot(int record) {
+        return (long) record * StatusHistoryLog.RECORD_BYTES;
+    }
+
+    private static List<Long> timestamps(StatusHistoryLog log) {
+        return replay(log).stream().map(HistoryRecord::timestamp).toList();
+    }
+
+    private static List<HistoryRecord> replay(StatusHistoryLog log) {
+        List<HistoryRecord> records = new ArrayList<>();
+        log.replay(records::add);
+        return records;
+    }
+}
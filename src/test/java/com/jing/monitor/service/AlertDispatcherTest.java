@@ -0,0 +1,95 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.MonitorMetrics;
+import com.jing.monitor.model.AlertEvent;
+import com.jing.monitor.model.StatusMapping;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertDispatcherTest {
+
+    // Digests handed to the mail service, in order
+    private final BlockingQueue<List<String>> digests = new LinkedBlockingQueue<>();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private AlertDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void alertsWithinTheWindowBecomeOneDigest() throws InterruptedException {
+        dispatcher = start(100, 500);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(dispatcher.enqueue(alert("6000" + i)));
+        }
+
+        assertEquals(List.of("60000", "60001", "60002"), digests.poll(5, TimeUnit.SECONDS));
+        assertNull(digests.poll(1, TimeUnit.SECONDS));
+        assertEquals(1, registry.get("monitor.alert.send").tag("outcome", "success").timer().count());
+        assertEquals(3, registry.get("monitor.alert.delivery").timer().count());
+
+        // A later alert starts a new window
+        dispatcher.enqueue(alert("60003"));
+        assertEquals(List.of("60003"), digests.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void fullQueueDropsAlerts() {
+        // Not started: nothing drains the queue
+        AlertDispatcher idle = new AlertDispatcher(recordingMailService(), new MonitorMetrics(registry), 2, 500);
+        assertTrue(idle.enqueue(alert("60000")));
+        assertTrue(idle.enqueue(alert("60001")));
+        assertFalse(idle.enqueue(alert("60002")));
+        assertEquals(2, idle.pending());
+    }
+
+    @Test
+    void queuedAlertsAreSentOnShutdown() throws InterruptedException {
+        // The window would hold the batch for a minute; shutdown must not wait for it or lose it
+        dispatcher = start(100, 60_000);
+        dispatcher.enqueue(alert("60000"));
+        dispatcher.enqueue(alert("60001"));
+        Thread.sleep(200);
+        assertTrue(digests.isEmpty());
+
+        long stopStart = System.nanoTime();
+        dispatcher.stop();
+        dispatcher = null;
+        assertTrue(System.nanoTime() - stopStart < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(List.of("60000", "60001"), digests.poll());
+    }
+
+    private AlertDispatcher start(int capacity, long windowMs) {
+        AlertDispatcher started = new AlertDispatcher(recordingMailService(), new MonitorMetrics(registry),
+                capacity, windowMs);
+        started.start();
+        return started;
+    }
+
+    private MailService recordingMailService() {
+        return new MailService(null) {
+            @Override
+            public boolean sendDigest(List<AlertEvent> alerts) {
+                digests.add(alerts.stream().map(AlertEvent::section).toList());
+                return true;
+            }
+        };
+    }
+
+    private static AlertEvent alert(String section) {
+        return new AlertEvent(StatusMapping.OPEN, section, "COMP SCI 577", System.currentTimeMillis(), true, List.of());
+    }
+}
@@ -0,0 +1,234 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.RequestBudget;
+import com.jing.monitor.model.SectionInfo;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.repository.PollerNodeRepository;
+import com.jing.monitor.repository.TaskRepository;
+import com.jing.monitor.stub.StubEnrollmentServer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several SchedulerService instances in one JVM, sharing one embedded H2 database and one stub server.
+ */
+class ClusteredPollingTest {
+
+    private static final int COURSES = 24;
+    private static final int SECTIONS = 3;
+    private static final long TIMEOUT_MS = 30_000;
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = TaskRepository.class)
+    static class JpaConfig {
+
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .setName("cluster-" + UUID.randomUUID())
+                    .build();
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+            LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setPackagesToScan("com.jing.monitor.model");
+            factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            factory.setJpaPropertyMap(Map.of(
+                    "hibernate.hbm2ddl.auto", "create-drop",
+                    "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName()));
+            return factory;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+
+    private record Node(ClusterMembership membership, SchedulerService scheduler) {}
+
+    private AnnotationConfigApplicationContext context;
+    private StubEnrollmentServer stub;
+    private TaskRepository taskRepository;
+    private PollerNodeRepository nodeRepository;
+    private TransactionTemplate transactionTemplate;
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final ConcurrentLinkedQueue<String> alerted = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        context = new AnnotationConfigApplicationContext(JpaConfig.class);
+        taskRepository = context.getBean(TaskRepository.class);
+        nodeRepository = context.getBean(PollerNodeRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        stub = StubEnrollmentServer.start(COURSES, SECTIONS, StatusMapping.CLOSED);
+        taskRepository.saveAll(SchedulerFixture.enabledTasks(stub));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+        context.close();
+    }
+
+    @Test
+    void coursesArePartitionedAndEachTransitionIsAlertedOnce() {
+        List<Node> nodes = List.of(node("node-a"), node("node-b"), node("node-c"));
+        heartbeat(nodes);
+
+        Set<String> seen = new HashSet<>();
+        for (Node node : nodes) {
+            Set<String> owned = node.membership().ownedCourses(stub.courseIds());
+            assertFalse(owned.isEmpty(), node.membership().nodeId() + " owns no course");
+            for (String courseId : owned) {
+                assertTrue(seen.add(courseId), courseId + " owned twice");
+            }
+        }
+        assertEquals(Set.copyOf(stub.courseIds()), seen);
+
+        runCycle(nodes);
+        assertEquals(COURSES, stub.packageRequests());
+        assertTrue(alerted.isEmpty());
+
+        stub.flip(2, 0, StatusMapping.OPEN);
+        stub.flip(7, 1, StatusMapping.OPEN);
+        stub.flip(19, 2, StatusMapping.WAITLISTED);
+        runCycle(nodes);
+
+        assertEquals(2 * COURSES, stub.packageRequests());
+        assertEquals(3, alerted.size());
+        assertEquals(Set.of(stub.sectionId(2, 0), stub.sectionId(7, 1), stub.sectionId(19, 2)), Set.copyOf(alerted));
+        assertEquals(StatusMapping.OPEN, taskRepository.findBySectionId(stub.sectionId(2, 0)).getLastStatus());
+    }
+
+    @Test
+    void survivorsTakeOverTheCoursesOfADeadNode() {
+        Node a = node("node-a");
+        Node b = node("node-b");
+        Node c = node("node-c");
+        heartbeat(List.of(a, b, c));
+        runCycle(List.of(a, b, c));
+
+        // c stops heartbeating; once its row is older than the timeout the others take over
+        Set<String> orphaned = c.membership().ownedCourses(stub.courseIds());
+        clock.addAndGet(TIMEOUT_MS + 1);
+        heartbeat(List.of(a, b));
+        assertEquals(List.of("node-a", "node-b"), a.membership().liveNodes());
+        assertTrue(c.membership().ownedCourses(stub.courseIds()).isEmpty(), "a node that missed its heartbeats must own nothing");
+
+        Set<String> covered = new HashSet<>(a.membership().ownedCourses(stub.courseIds()));
+        covered.addAll(b.membership().ownedCourses(stub.courseIds()));
+        assertEquals(Set.copyOf(stub.courseIds()), covered);
+
+        // A seat opens in one of c's courses while c is gone
+        int course = stub.courseIds().indexOf(orphaned.iterator().next());
+        stub.flip(course, 0, StatusMapping.OPEN);
+        runCycle(List.of(a, b, c));
+
+        assertEquals(List.of(stub.sectionId(course, 0)), List.copyOf(alerted));
+    }
+
+    @Test
+    void twoNodesSyncingTheSameTransitionAlertOnce() throws Exception {
+        // Split brain: both nodes believe they own the course and saw the same payload
+        Node a = node("node-a");
+        Node b = node("node-b");
+        List<SectionInfo> payload = new ArrayList<>();
+        for (int s = 0; s < SECTIONS; s++) {
+            payload.add(new SectionInfo("COMP SCI", StubEnrollmentServer.catalogNumber(4), stub.sectionId(4, s),
+                    s == 1 ? StatusMapping.OPEN : StatusMapping.CLOSED, StubEnrollmentServer.courseId(4)));
+        }
+
+        CountDownLatch go = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            for (Node node : List.of(a, b)) {
+                executor.submit(() -> {
+                    go.await();
+                    try {
+                        node.scheduler().syncCourse(StubEnrollmentServer.courseId(4), payload);
+                    } catch (RuntimeException e) {
+                        // The loser may also fail on a row lock instead of matching zero rows; both mean no alert
+                    }
+                    return null;
+                });
+            }
+            go.countDown();
+        }
+
+        assertEquals(List.of(stub.sectionId(4, 1)), List.copyOf(alerted));
+
+        // The loser's next sync sees the committed row and stays quiet
+        a.scheduler().syncCourse(StubEnrollmentServer.courseId(4), payload);
+        b.scheduler().syncCourse(StubEnrollmentServer.courseId(4), payload);
+        assertEquals(1, alerted.size());
+    }
+
+    private Node node(String nodeId) {
+        ClusterMembership membership = new ClusterMembership(nodeRepository, transactionTemplate, true, nodeId,
+                10_000, TIMEOUT_MS, clock::get);
+
+        SchedulerService scheduler = SchedulerFixture.builder(stub)
+                .budget(new RequestBudget(600_000, 1000, 0))
+                .searchCache(64, 60_000)
+                .repository(taskRepository)
+                .transactionTemplate(transactionTemplate)
+                .historyDir(Path.of("target/cluster-history"))
+                .cluster(membership)
+                .onAlert(alert -> alerted.add(alert.section()))
+                .build()
+                .scheduler();
+        return new Node(membership, scheduler);
+    }
+
+    private static void heartbeat(List<Node> nodes) {
+        // Twice: the first round registers everyone, the second lets everyone see everyone
+        for (int round = 0; round < 2; round++) {
+            for (Node node : nodes) {
+                node.membership().heartbeat();
+            }
+        }
+    }
+
+    private static void runCycle(List<Node> nodes) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Node node : nodes) {
+                executor.submit(() -> node.scheduler().monitorTask());
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.CourseRefreshCache;
+import com.jing.monitor.core.RequestBudget;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.model.dto.CourseRefreshRespDto;
+import com.jing.monitor.model.dto.TaskRespDto;
+import com.jing.monitor.repository.TaskRepository;
+import com.jing.monitor.stub.StubEnrollmentServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CourseRefreshServiceTest {
+
+    private static final int COURSES = 5;
+    private static final int SECTIONS = 3;
+
+    @TempDir
+    Path dir;
+
+    private StubEnrollmentServer stub;
+    private TaskRepository repository;
+    private CourseRefreshCache refreshCache;
+    private SchedulerService scheduler;
+    private CourseRefreshService refreshService;
+    private final ConcurrentLinkedQueue<String> alerted = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = StubEnrollmentServer.start(COURSES, SECTIONS, StatusMapping.CLOSED);
+        repository = InMemoryTaskRepository.create();
+        repository.saveAll(SchedulerFixture.enabledTasks(stub));
+        start(60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void concurrentRefreshesShareOneFetch() throws Exception {
+        stub.setLatencyMs(300);
+        String courseId = StubEnrollmentServer.courseId(2);
+
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<CourseRefreshRespDto>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    go.await();
+                    return refreshService.refresh(courseId);
+                }));
+            }
+            go.countDown();
+        }
+
+        assertEquals(1, stub.packageRequests());
+        long fetchedAt = results.getFirst().get().getFetchedAt();
+        for (Future<CourseRefreshRespDto> result : results) {
+            assertEquals(fetchedAt, result.get().getFetchedAt());
+            assertEquals(SECTIONS, result.get().getSections().size());
+        }
+        assertEquals(7, refreshCache.getStats().getHits() + refreshCache.getStats().getCoalesced());
+    }
+
+    @Test
+    void freshPollIsReusedByRefreshesAndByTheCycle() {
+        String courseId = StubEnrollmentServer.courseId(1);
+        CourseRefreshRespDto first = refreshService.refresh(courseId);
+        assertEquals("CHANGED", first.getOutcome());
+
+        stub.flip(1, 0, StatusMapping.OPEN);
+        CourseRefreshRespDto second = refreshService.refresh(courseId);
+        assertEquals(first.getFetchedAt(), second.getFetchedAt());
+        assertEquals(1, stub.packageRequests());
+
+        // The cycle polls every other course but takes the fresh poll for this one
+        scheduler.monitorTask();
+        assertEquals(COURSES, stub.packageRequests());
+        assertTrue(alerted.isEmpty());
+    }
+
+    @Test
+    void changedRefreshReturnsTheSyncedStatuses() {
+        start(0);
+        String courseId = StubEnrollmentServer.courseId(3);
+        refreshService.refresh(courseId);
+
+        stub.flip(3, 2, StatusMapping.OPEN);
+        CourseRefreshRespDto resp = refreshService.refresh(courseId);
+        assertEquals("CHANGED", resp.getOutcome());
+        assertEquals(1, resp.getTransitions());
+        assertEquals(List.of(StatusMapping.CLOSED, StatusMapping.CLOSED, StatusMapping.OPEN),
+                resp.getSections().stream().map(TaskRespDto::getStatus).toList());
+        assertEquals(List.of(stub.sectionId(3, 2)), List.copyOf(alerted));
+
+        assertEquals("UNCHANGED", refreshService.refresh(courseId).getOutcome());
+        assertEquals(3, stub.packageRequests());
+    }
+
+    @Test
+    void busyBudgetDefersTheRefreshToTheNextCycle() {
+        // One permit per minute: the first refresh spends it, the next one would wait a minute
+        SchedulerFixture fixture = start(0, new RequestBudget(1, 1, 0));
+        String courseId = StubEnrollmentServer.courseId(2);
+        CourseRefreshRespDto first = refreshService.refresh(courseId);
+        assertEquals("CHANGED", first.getOutcome());
+
+        long start = System.nanoTime();
+        CourseRefreshRespDto deferred = refreshService.refresh(courseId);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals("DEFERRED", deferred.getOutcome());
+        assertEquals(first.getFetchedAt(), deferred.getFetchedAt());
+        assertTrue(deferred.getAgeMs() >= 0);
+        assertEquals(SECTIONS, deferred.getSections().size());
+        assertEquals(1, stub.packageRequests());
+
+        // Not cached, and the course is due on the next cycle
+        assertTrue(fixture.planner().nextPollAt(courseId) <= System.currentTimeMillis());
+        assertEquals("DEFERRED", refreshService.refresh(courseId).getOutcome());
+        assertEquals(0, refreshCache.getStats().getHits());
+    }
+
+    @Test
+    void refreshJoiningAPollParkedOnTheBudgetIsDeferred() throws Exception {
+        // One permit per minute, spent by the first refresh: the cycle's next poll waits about a minute for its own
+        start(0, new RequestBudget(1, 1, 0));
+        String courseId = StubEnrollmentServer.courseId(2);
+        CourseRefreshRespDto first = refreshService.refresh(courseId);
+
+        Thread cyclePoll = Thread.ofVirtual().start(() -> scheduler.refreshCourse(courseId));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (refreshCache.getStats().getMisses() < 2) {
+            assertTrue(System.nanoTime() < deadline, "the cycle's poll did not start");
+            Thread.sleep(10);
+        }
+
+        long start = System.nanoTime();
+        CourseRefreshRespDto joined = refreshService.refresh(courseId);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals("DEFERRED", joined.getOutcome());
+        assertEquals(1, refreshCache.getStats().getCoalesced());
+        assertEquals(first.getFetchedAt(), joined.getFetchedAt());
+        assertEquals(SECTIONS, joined.getSections().size());
+        assertEquals(1, stub.packageRequests());
+
+        cyclePoll.interrupt();
+        cyclePoll.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Test
+    void untrackedCoursesAndFailedPollsAreErrors() {
+        assertThrows(RuntimeException.class, () -> refreshService.refresh("999999"));
+        assertEquals(0, stub.packageRequests());
+
+        stub.setBlocking(1.0, 503, null);
+        assertThrows(RuntimeException.class, () -> refreshService.refresh(StubEnrollmentServer.courseId(0)));
+
+        // Failures are not cached
+        stub.setBlocking(0, 503, null);
+        assertEquals("CHANGED", refreshService.refresh(StubEnrollmentServer.courseId(0)).getOutcome());
+        assertEquals(2, stub.packageRequests());
+    }
+
+    private SchedulerFixture start(long freshnessMs) {
+        return start(freshnessMs, new RequestBudget(60_000, 100, 0));
+    }
+
+    private SchedulerFixture start(long freshnessMs, RequestBudget budget) {
+        SchedulerFixture fixture = SchedulerFixture.builder(stub)
+                .budget(budget)
+                .repository(repository)
+                .historyDir(dir.resolve("history"))
+                .refreshFreshnessMs(freshnessMs)
+                .onAlert(alert -> alerted.add(alert.section()))
+                .build();
+        refreshCache = fixture.refreshCache();
+        scheduler = fixture.scheduler();
+        // Long enough for a joined refresh to finish, short next to a budget slot a minute out
+        refreshService = new CourseRefreshService(scheduler, repository, refreshCache, 1_000);
+        return fixture;
+    }
+}
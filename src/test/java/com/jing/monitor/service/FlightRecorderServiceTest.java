@@ -0,0 +1,95 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.CourseCrawler;
+import com.jing.monitor.core.HostRateController;
+import com.jing.monitor.core.MonitorMetrics;
+import com.jing.monitor.core.RequestBudget;
+import com.jing.monitor.core.SessionPool;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.model.dto.RecordingDumpDto;
+import com.jing.monitor.stub.StubEnrollmentServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private StubEnrollmentServer stub;
+    private FlightRecorderService recorder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = StubEnrollmentServer.start(2, 3, StatusMapping.CLOSED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (recorder != null) {
+            recorder.stop();
+        }
+        stub.close();
+    }
+
+    @Test
+    void dumpContainsCourseFetchEvents() throws IOException {
+        recorder = new FlightRecorderService(true, new ClassPathResource("jfr/monitor.jfc"), 600_000, 16,
+                dir.toString());
+        recorder.start();
+        assertTrue(recorder.isRecording());
+
+        RequestBudget budget = new RequestBudget(60_000, 100, 0);
+        CourseCrawler crawler = new CourseCrawler(budget,
+                new HostRateController(budget, 3, 60_000, 600_000, 0.125, 0.05),
+                new SessionPool(1, 2, 900_000, 14_400_000, 0), new MonitorMetrics(new SimpleMeterRegistry()),
+                16, 60_000);
+        ReflectionTestUtils.setField(crawler, "baseUrl", stub.baseUrl());
+        ReflectionTestUtils.setField(crawler, "termId", "1264");
+        ReflectionTestUtils.setField(crawler, "subjectId", "266");
+        ReflectionTestUtils.setField(crawler, "userAgent", "CourseMonitor-Test");
+        ReflectionTestUtils.setField(crawler, "streamingParser", true);
+
+        String courseId = StubEnrollmentServer.courseId(1);
+        crawler.fetchCourseIfChanged(courseId);
+        crawler.fetchCourseIfChanged(courseId);
+
+        RecordingDumpDto dump = recorder.dump();
+        assertTrue(dump.getSizeBytes() > 0);
+        List<RecordedEvent> fetches = RecordingFile.readAllEvents(Path.of(dump.getPath())).stream()
+                .filter(e -> e.getEventType().getName().equals("com.jing.monitor.CourseFetch"))
+                .toList();
+        assertEquals(2, fetches.size());
+
+        RecordedEvent first = fetches.getFirst();
+        assertEquals(courseId, first.getString("courseId"));
+        assertEquals("CHANGED", first.getString("outcome"));
+        assertEquals(200, first.getInt("statusCode"));
+        assertEquals(3, first.getInt("sections"));
+        assertTrue(first.getLong("bytes") > 0);
+        assertTrue(first.getDuration("responseTime").toNanos() > 0);
+        assertEquals("UNCHANGED", fetches.get(1).getString("outcome"));
+    }
+
+    @Test
+    void dumpWithoutRecordingIsAnError() {
+        recorder = new FlightRecorderService(false, new ClassPathResource("jfr/monitor.jfc"), 600_000, 16,
+                dir.toString());
+        recorder.start();
+        assertFalse(recorder.isRecording());
+        assertThrows(RuntimeException.class, recorder::dump);
+    }
+}
@@ -0,0 +1,174 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.model.HistoryRecord;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.model.dto.SectionHistoryDto;
+import com.jing.monitor.model.dto.TransitionDto;
+import com.jing.monitor.repository.StatusHistoryLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryServiceTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @TempDir
+    Path dir;
+
+    private StatusHistoryLog log;
+    private HistoryService history;
+    private long t0;
+
+    @BeforeEach
+    void setUp() {
+        log = new StatusHistoryLog(dir.toString(), true, 1000, 0, 4);
+        log.start();
+        history = new HistoryService(log, 3);
+        history.rebuild();
+        t0 = LocalDateTime.of(2026, 11, 3, 7, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        // Discovered CLOSED, opens at 07:10 for 20 min, opens at 09:00 for 5 min, opens again at 07:30 next day
+        record(t0, StatusMapping.CLOSED, null, HistoryRecord.Kind.DISCOVERED);
+        record(t0 + 5 * MINUTE, StatusMapping.CLOSED, StatusMapping.CLOSED, HistoryRecord.Kind.OBSERVED);
+        record(t0 + 10 * MINUTE, StatusMapping.OPEN, StatusMapping.CLOSED, HistoryRecord.Kind.TRANSITION);
+        record(t0 + 30 * MINUTE, StatusMapping.WAITLISTED, StatusMapping.OPEN, HistoryRecord.Kind.TRANSITION);
+        record(t0 + 120 * MINUTE, StatusMapping.OPEN, StatusMapping.WAITLISTED, HistoryRecord.Kind.TRANSITION);
+        record(t0 + 125 * MINUTE, StatusMapping.CLOSED, StatusMapping.OPEN, HistoryRecord.Kind.TRANSITION);
+        record(t0 + (24 * 60 + 30) * MINUTE, StatusMapping.OPEN, StatusMapping.CLOSED, HistoryRecord.Kind.TRANSITION);
+    }
+
+    @AfterEach
+    void tearDown() {
+        log.stop();
+    }
+
+    @Test
+    void aggregatesFollowTransitions() {
+        assertAggregates(history.getSectionStats("60035"));
+    }
+
+    @Test
+    void timelineIsNewestFirstAndBounded() {
+        List<TransitionDto> timeline = history.getTimeline("60035", 10);
+        // timeline-limit is 3: only the last three of the six changes are kept
+        assertEquals(3, timeline.size());
+        assertEquals("CLOSED", timeline.get(0).getFrom());
+        assertEquals("OPEN", timeline.get(0).getTo());
+        assertEquals(t0 + 120 * MINUTE, timeline.get(2).getTimestamp());
+
+        assertEquals(1, history.getTimeline("60035", 1).size());
+        assertNull(history.getTimeline("99999", 10));
+    }
+
+    @Test
+    void rebuildFromTheLogGivesTheSameAggregates() {
+        HistoryService restarted = new HistoryService(log, 3);
+        restarted.rebuild();
+        assertAggregates(restarted.getSectionStats("60035"));
+        assertEquals(1, restarted.getCourseStats("004289").size());
+        assertTrue(restarted.getCourseStats("000001").isEmpty());
+    }
+
+    @Test
+    void recordsWrittenDuringTheRebuildAreCountedOnce() {
+        log.stop();
+        HistoryService[] restarted = new HistoryService[1];
+        StatusHistoryLog reopened = new StatusHistoryLog(dir.toString(), true, 1000, 0, 4) {
+            @Override
+            public void replay(Mark upTo, Consumer<HistoryRecord> consumer) {
+                if (restarted[0].isReady()) {
+                    super.replay(upTo, consumer);
+                    return;
+                }
+                // The poller closes the section while the replay is still reading the log
+                restarted[0].record(t0 + (24 * 60 + 40) * MINUTE, 60035, 4289, StatusMapping.CLOSED,
+                        StatusMapping.OPEN, HistoryRecord.Kind.TRANSITION);
+                super.replay(upTo, consumer);
+            }
+        };
+        reopened.start();
+        try {
+            restarted[0] = new HistoryService(reopened, 3);
+            restarted[0].rebuild();
+            assertTrue(restarted[0].isReady());
+
+            SectionHistoryDto stats = restarted[0].getSectionStats("60035");
+            assertEquals("CLOSED", stats.getCurrentStatus());
+            assertEquals(3, stats.getOpenings());
+            assertEquals((20 + 5 + 10) * MINUTE / 3, stats.getAverageOpenMs());
+            assertEquals("CLOSED", restarted[0].getTimeline("60035", 1).getFirst().getTo());
+
+            // The record reached the log too: the next start sees the same history
+            HistoryService next = new HistoryService(reopened, 3);
+            next.rebuild();
+            assertEquals(stats, next.getSectionStats("60035"));
+        } finally {
+            reopened.stop();
+        }
+    }
+
+    @Test
+    void liveRecordsRacingARebuildLandInOrder() throws Exception {
+        // 3200 records: within the four 1000-record segments, so the log still holds every one of them
+        int pollers = 4;
+        int sections = 8;
+        int rounds = 100;
+        Thread[] threads = new Thread[pollers];
+        for (int p = 0; p < pollers; p++) {
+            int first = 70000 + p * sections;
+            threads[p] = Thread.ofPlatform().start(() -> {
+                for (int i = 1; i <= rounds; i++) {
+                    StatusMapping status = i % 2 == 0 ? StatusMapping.CLOSED : StatusMapping.OPEN;
+                    StatusMapping previous = i % 2 == 0 ? StatusMapping.OPEN : StatusMapping.CLOSED;
+                    for (int s = 0; s < sections; s++) {
+                        history.record(t0 + (24 * 60 + 30 + i) * MINUTE, first + s, 4289, status, previous,
+                                HistoryRecord.Kind.TRANSITION);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                history.rebuild();
+            }
+        }
+
+        // However the records interleaved with the rebuilds, the aggregates match a clean replay of the log
+        HistoryService replayed = new HistoryService(log, 3);
+        replayed.rebuild();
+        for (int s = 0; s < pollers * sections; s++) {
+            String sectionId = String.valueOf(70000 + s);
+            assertEquals(replayed.getSectionStats(sectionId), history.getSectionStats(sectionId), sectionId);
+            assertEquals("CLOSED", history.getSectionStats(sectionId).getCurrentStatus());
+        }
+    }
+
+    private void assertAggregates(SectionHistoryDto stats) {
+        assertEquals("60035", stats.getSectionId());
+        assertEquals("004289", stats.getCourseId());
+        assertEquals("OPEN", stats.getCurrentStatus());
+        assertEquals(3, stats.getOpenings());
+        assertEquals(0, stats.getWaitlistOpenings());
+        assertEquals(t0, stats.getFirstSeen());
+        // Two completed open periods (20 + 5 min) plus the one still running
+        assertEquals(25 * MINUTE / 2, stats.getAverageOpenMs());
+        assertTrue(stats.getTotalOpenMs() >= 25 * MINUTE);
+        assertEquals(7, stats.getTypicalOpeningHour());
+        assertEquals(2, stats.getOpeningsByHour()[7]);
+        assertEquals(1, stats.getOpeningsByHour()[9]);
+    }
+
+    private void record(long timestamp, StatusMapping status, StatusMapping previous, HistoryRecord.Kind kind) {
+        history.record(timestamp, 60035, 4289, status, previous, kind);
+    }
+}
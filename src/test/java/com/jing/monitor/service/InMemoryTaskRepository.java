@@ -0,0 +1,114 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.model.Task;
+import com.jing.monitor.model.TaskStateView;
+import com.jing.monitor.model.dto.TaskRespDto;
+import com.jing.monitor.repository.TaskRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * HashMap-backed TaskRepository for benchmarks and load runs, so sync logic can be measured without MySQL.
+ * Implements only the methods the poller calls; anything else throws.
+ */
+final class InMemoryTaskRepository {
+
+    private final Map<String, Task> bySectionId = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private InMemoryTaskRepository() {
+    }
+
+    static TaskRepository create() {
+        InMemoryTaskRepository store = new InMemoryTaskRepository();
+        return (TaskRepository) Proxy.newProxyInstance(
+                TaskRepository.class.getClassLoader(),
+                new Class<?>[]{TaskRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findBySectionIdIn" -> store.findBySectionIdIn((Collection<?>) args[0]);
+                    case "findBySectionId" -> store.bySectionId.get((String) args[0]);
+                    case "saveAll" -> store.saveAll((Iterable<?>) args[0]);
+                    case "save" -> store.save((Task) args[0]);
+                    case "findAll" -> new ArrayList<>(store.bySectionId.values());
+                    case "findAllStates" -> store.findAllStates();
+                    case "findAllRows" -> store.rows().toList();
+                    case "findRowsByCourseId" -> store.rows().filter(row -> row.getCourseId().equals(args[0]))
+                            .sorted(Comparator.comparing(TaskRespDto::getSectionId)).toList();
+                    case "streamAllRows" -> store.rows();
+                    case "findByEnabledTrue" -> store.bySectionId.values().stream().filter(Task::isEnabled).toList();
+                    case "findEnabledCourseIds" -> store.bySectionId.values().stream()
+                            .filter(Task::isEnabled).map(Task::getCourseId).distinct().toList();
+                    case "existsByCourseId" -> store.bySectionId.values().stream()
+                            .anyMatch(task -> task.getCourseId().equals(args[0]));
+                    case "findByCourseDisplayName" -> store.bySectionId.values().stream()
+                            .filter(task -> task.getCourseDisplayName().equals(args[0])).toList();
+                    case "deleteAllByCourseDisplayName" -> {
+                        store.bySectionId.values().removeIf(task -> task.getCourseDisplayName().equals(args[0]));
+                        yield null;
+                    }
+                    case "count" -> (long) store.bySectionId.size();
+                    case "toString" -> "InMemoryTaskRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private List<Task> findBySectionIdIn(Collection<?> sectionIds) {
+        List<Task> result = new ArrayList<>(sectionIds.size());
+        for (Object id : sectionIds) {
+            Task task = bySectionId.get((String) id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    private List<Task> saveAll(Iterable<?> tasks) {
+        List<Task> saved = new ArrayList<>();
+        for (Object task : tasks) {
+            saved.add(save((Task) task));
+        }
+        return saved;
+    }
+
+    private Task save(Task task) {
+        if (task.getId() == null) {
+            task.setId(ids.incrementAndGet());
+        }
+        bySectionId.put(task.getSectionId(), task);
+        return task;
+    }
+
+    private Stream<TaskRespDto> rows() {
+        return bySectionId.values().stream()
+                .sorted(Comparator.comparing(Task::getCourseDisplayName).thenComparing(Task::getSectionId))
+                .map(t -> new TaskRespDto(t.getId(), t.getSectionId(), t.getCourseId(),
+                        t.getCourseDisplayName(), t.getLastStatus(), t.isEnabled()));
+    }
+
+    private List<TaskStateView> findAllStates() {
+        List<TaskStateView> views = new ArrayList<>();
+        for (Task task : bySectionId.values()) {
+            String sectionId = task.getSectionId();
+            StatusMapping status = task.getLastStatus();
+            boolean enabled = task.isEnabled();
+            views.add(new TaskStateView() {
+                public String getSectionId() { return sectionId; }
+                public StatusMapping getLastStatus() { return status; }
+                public boolean isEnabled() { return enabled; }
+            });
+        }
+        return views;
+    }
+}
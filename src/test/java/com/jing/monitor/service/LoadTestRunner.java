@@ -0,0 +1,208 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.RequestBudget;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.repository.StatusHistoryLog;
+import com.jing.monitor.stub.StubEnrollmentServer;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Drives the real poller (SchedulerService -> CourseCrawler -> sync) against {@link StubEnrollmentServer}
+ * with an in-memory repository, at several scales, and prints one report line per scale.
+ * * Per scale:
+ * 1. A warm-up cycle parses every course once (cold state, every payload is new).
+ * 2. Measured cycles run back to back while a background thread flips random CLOSED sections to OPEN.
+ * 3. A final drain cycle with injection stopped picks up flips that landed during the last cycle.
+ * Reported: cycle duration, fetches/sec (stub requests, probe searches included / cycle time) and detection latency
+ * (flip injected on the stub -> alert handed to the AlertDispatcher).
+ * Every course is due every cycle (adaptive intervals off), so cycle time is bound by the request budget.
+ * * With probe=true the bulk status probe runs every cycle (full refreshes off), so the report compares request volume.
+ * Run: mvn -Pload-test test-compile exec:exec -Dload.args="courses=100,1000 latency-ms=50"
+ */
+public class LoadTestRunner {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("courses", "100,1000,10000"),
+            Map.entry("sections", "4"),
+            Map.entry("cycles", "3"),
+            Map.entry("rate-per-second", "500"),
+            Map.entry("latency-ms", "20"),
+            Map.entry("flip-interval-ms", "50"),
+            Map.entry("block-rate", "0"),
+            Map.entry("block-status", "429"),
+            Map.entry("padding-bytes", "0"),
+            Map.entry("probe", "false"),
+            Map.entry("verbose", "false"));
+
+    private record ScaleResult(int courses, List<Long> cycleMs, long fetches, long blocked,
+                               int flips, List<Long> detectionMs) {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown option: " + arg + " (known: " + DEFAULTS.keySet() + ")");
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        PrintStream console = System.out;
+        console.println("[LoadTest] " + options);
+        console.printf("%8s %7s %12s %12s %11s %7s %9s %13s %13s %13s %8s%n",
+                "courses", "cycles", "cycle p50", "cycle max", "fetches/s", "flips", "detected",
+                "detect p50", "detect p95", "detect max", "blocked");
+
+        for (String scale : options.get("courses").split(",")) {
+            ScaleResult result = runScale(Integer.parseInt(scale.trim()), options);
+            List<Long> cycles = sorted(result.cycleMs());
+            List<Long> detections = sorted(result.detectionMs());
+            long totalMs = Math.max(1, result.cycleMs().stream().mapToLong(Long::longValue).sum());
+            console.printf("%8d %7d %10d ms %10d ms %11.1f %7d %9d %10s ms %10s ms %10s ms %8d%n",
+                    result.courses(), cycles.size(), percentile(cycles, 50), percentile(cycles, 100),
+                    result.fetches() * 1000.0 / totalMs, result.flips(), detections.size(),
+                    detections.isEmpty() ? "-" : percentile(detections, 50),
+                    detections.isEmpty() ? "-" : percentile(detections, 95),
+                    detections.isEmpty() ? "-" : percentile(detections, 100),
+                    result.blocked());
+        }
+    }
+
+    private static ScaleResult runScale(int courses, Map<String, String> options) throws Exception {
+        int sections = Integer.parseInt(options.get("sections"));
+        int cycles = Integer.parseInt(options.get("cycles"));
+        double ratePerSecond = Double.parseDouble(options.get("rate-per-second"));
+        long flipIntervalMs = Long.parseLong(options.get("flip-interval-ms"));
+        boolean verbose = Boolean.parseBoolean(options.get("verbose"));
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        if (!verbose) {
+            PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+            System.setOut(discard);
+            System.setErr(discard);
+        }
+
+        Path historyDir = Files.createTempDirectory("load-history");
+        StatusHistoryLog historyLog = new StatusHistoryLog(historyDir.toString(), true, 1_000_000, 1000, 4);
+        historyLog.start();
+
+        try (StubEnrollmentServer stub = StubEnrollmentServer.start(courses, sections, StatusMapping.CLOSED)) {
+            stub.setLatencyMs(Long.parseLong(options.get("latency-ms")));
+            stub.setPaddingBytes(Integer.parseInt(options.get("padding-bytes")));
+
+            // Sections flipped CLOSED -> OPEN on the stub and not alerted yet
+            Set<String> pending = ConcurrentHashMap.newKeySet();
+            List<Long> detectionMs = Collections.synchronizedList(new ArrayList<>());
+
+            SchedulerService scheduler = newScheduler(stub, ratePerSecond, Boolean.parseBoolean(options.get("probe")),
+                    historyLog, pending, detectionMs);
+
+            // Warm-up: first sight of every course, then start injecting faults
+            scheduler.monitorTask();
+            stub.setBlocking(Double.parseDouble(options.get("block-rate")),
+                    Integer.parseInt(options.get("block-status")), null);
+
+            int[] flips = new int[1];
+            Thread injector = Thread.ofPlatform().name("flip-injector").daemon(true).start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!Thread.currentThread().isInterrupted()) {
+                    int c = random.nextInt(courses);
+                    int s = random.nextInt(sections);
+                    String sectionId = stub.sectionId(c, s);
+                    if (stub.status(c, s) == StatusMapping.CLOSED) {
+                        pending.add(sectionId);
+                        stub.flip(c, s, StatusMapping.OPEN);
+                        flips[0]++;
+                    } else if (!pending.contains(sectionId)) {
+                        // Already alerted: close it again silently so it can be reused
+                        stub.flip(c, s, StatusMapping.CLOSED);
+                    }
+                    try {
+                        Thread.sleep(flipIntervalMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+
+            long fetchesBefore = stub.packageRequests() + stub.searchRequests();
+            List<Long> cycleMs = new ArrayList<>();
+            for (int i = 0; i < cycles; i++) {
+                long start = System.nanoTime();
+                scheduler.monitorTask();
+                cycleMs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            long fetches = stub.packageRequests() + stub.searchRequests() - fetchesBefore;
+
+            injector.interrupt();
+            injector.join();
+            stub.setBlocking(0, 429, null);
+            scheduler.monitorTask();
+
+            return new ScaleResult(courses, cycleMs, fetches, stub.blockedRequests(), flips[0], detectionMs);
+        } finally {
+            historyLog.stop();
+            try (Stream<Path> files = Files.walk(historyDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+
+    private static SchedulerService newScheduler(StubEnrollmentServer stub, double ratePerSecond, boolean probe,
+                                                 StatusHistoryLog historyLog,
+                                                 Set<String> pending, List<Long> detectionMs) {
+        SchedulerFixture.Builder builder = SchedulerFixture.builder(stub)
+                .budget(new RequestBudget(ratePerSecond * 60, Math.max(1, ratePerSecond / 10), 0))
+                .circuit(3, 5_000, 30_000)
+                .sessions(3)
+                .searchCache(256, 600_000)
+                .userAgent("CourseMonitor-LoadTest")
+                .historyLog(historyLog)
+                .eventStream(new TaskEventStream(4096, 15000, 0))
+                .onAlert(alert -> {
+                    if (pending.remove(alert.section())) {
+                        long injectedAt = stub.flippedAt(alert.section());
+                        detectionMs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - injectedAt));
+                    }
+                });
+        if (probe) {
+            builder.probe(Long.MAX_VALUE);
+        }
+        return builder.build().scheduler();
+    }
+
+    private static List<Long> sorted(List<Long> values) {
+        List<Long> copy;
+        synchronized (values) {
+            copy = new ArrayList<>(values);
+        }
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.model.AlertEvent;
+import com.jing.monitor.model.StatusMapping;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailServiceTest {
+
+    private final List<SimpleMailMessage> sent = new ArrayList<>();
+    private int sendCalls;
+    private MailService mailService;
+
+    @BeforeEach
+    void setUp() {
+        mailService = new MailService(new JavaMailSenderImpl() {
+            @Override
+            public void send(SimpleMailMessage... messages) {
+                sendCalls++;
+                sent.addAll(Arrays.asList(messages));
+            }
+        });
+        ReflectionTestUtils.setField(mailService, "fromEmail", "monitor@wisc.edu");
+        ReflectionTestUtils.setField(mailService, "toEmail", "Owner@wisc.edu");
+        ReflectionTestUtils.setField(mailService, "maxPerDigest", 50);
+    }
+
+    @Test
+    void eachRecipientGetsOneDigestOfTheirOwnSections() {
+        List<String> shared = List.of("a@wisc.edu", "owner@wisc.edu");
+        AlertEvent watchedByAll = new AlertEvent(StatusMapping.OPEN, "60001", "COMP SCI 577", 0, true, shared);
+        AlertEvent subscribersOnly = new AlertEvent(StatusMapping.WAITLISTED, "60002", "COMP SCI 577", 0, false,
+                List.of("a@wisc.edu", "b@wisc.edu"));
+        AlertEvent ownerOnly = new AlertEvent(StatusMapping.OPEN, "70001", "MATH 521", 0, true, List.of());
+
+        assertTrue(mailService.sendDigest(List.of(watchedByAll, subscribersOnly, ownerOnly)));
+
+        assertEquals(1, sendCalls);
+        assertEquals(3, sent.size());
+        SimpleMailMessage owner = to("owner@wisc.edu");
+        assertTrue(owner.getSubject().contains("2 sections"));
+        assertTrue(owner.getText().contains("60001") && owner.getText().contains("70001"));
+        assertFalse(owner.getText().contains("60002"));
+
+        SimpleMailMessage a = to("a@wisc.edu");
+        assertTrue(a.getText().contains("60001") && a.getText().contains("60002"));
+        assertEquals("🔥 ALERT: Section 60002 HAS WAITLIST SEATS! 🔥", to("b@wisc.edu").getSubject());
+    }
+
+    @Test
+    void alertsWithoutRecipientsSendNothing() {
+        assertTrue(mailService.sendDigest(List.of(
+                new AlertEvent(StatusMapping.OPEN, "60001", "COMP SCI 577", 0, false, List.of()))));
+        assertEquals(0, sendCalls);
+    }
+
+    private SimpleMailMessage to(String recipient) {
+        return sent.stream()
+                .filter(m -> m.getTo() != null && m.getTo()[0].equals(recipient))
+                .findFirst()
+                .orElseThrow();
+    }
+}
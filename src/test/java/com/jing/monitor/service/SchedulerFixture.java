@@ -0,0 +1,247 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.CourseCrawler;
+import com.jing.monitor.core.CourseRefreshCache;
+import com.jing.monitor.core.HostRateController;
+import com.jing.monitor.core.MonitorMetrics;
+import com.jing.monitor.core.PollPlanner;
+import com.jing.monitor.core.RequestBudget;
+import com.jing.monitor.core.SectionStateTable;
+import com.jing.monitor.core.SessionPool;
+import com.jing.monitor.core.StatusProbe;
+import com.jing.monitor.core.SubscriptionIndex;
+import com.jing.monitor.model.AlertEvent;
+import com.jing.monitor.model.Task;
+import com.jing.monitor.repository.StatusHistoryLog;
+import com.jing.monitor.repository.TaskRepository;
+import com.jing.monitor.stub.StubEnrollmentServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A SchedulerService wired by hand against the stub server, for tests and the load test.
+ * Every course is due on every cycle, alerts go to a callback instead of the mail queue,
+ * and the status probe and freshness cache are off unless the test turns them on.
+ */
+record SchedulerFixture(CourseCrawler crawler, SessionPool sessions, MonitorMetrics metrics,
+                        TaskRepository repository, SectionStateTable stateTable, PollPlanner planner,
+                        CourseRefreshCache refreshCache, SchedulerService scheduler) {
+
+    static Builder builder(StubEnrollmentServer stub) {
+        return new Builder(stub);
+    }
+
+    /**
+     * One enabled task per stub section, with the section's current stub status.
+     */
+    static List<Task> enabledTasks(StubEnrollmentServer stub) {
+        List<Task> tasks = new ArrayList<>(stub.courseCount() * stub.sectionsPerCourse());
+        for (int c = 0; c < stub.courseCount(); c++) {
+            for (int s = 0; s < stub.sectionsPerCourse(); s++) {
+                Task task = new Task("COMP SCI", StubEnrollmentServer.catalogNumber(c), stub.sectionId(c, s),
+                        StubEnrollmentServer.courseId(c), stub.status(c, s));
+                task.setEnabled(true);
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    static final class Builder {
+
+        private final StubEnrollmentServer stub;
+        private RequestBudget budget = new RequestBudget(60_000, 100, 0);
+        private int failureThreshold = 3;
+        private long circuitOpenMs = 60_000;
+        private long circuitMaxOpenMs = 600_000;
+        private int sessions = 1;
+        private int searchCacheEntries = 16;
+        private long searchCacheTtlMs = 60_000;
+        private String termId = "1264";
+        private String userAgent = "CourseMonitor-Test";
+        private MeterRegistry registry;
+        private TaskRepository repository;
+        private TransactionTemplate transactionTemplate;
+        private Consumer<AlertEvent> onAlert = alert -> {};
+        private StatusHistoryLog historyLog;
+        private Path historyDir;
+        private TaskEventStream eventStream;
+        private ClusterMembership cluster = ClusterMembership.standalone();
+        private SubscriptionIndex subscriptions = new SubscriptionIndex();
+        private boolean probe;
+        private long probeFullRefreshMs;
+        private long refreshFreshnessMs;
+        private boolean loadStates = true;
+
+        private Builder(StubEnrollmentServer stub) {
+            this.stub = stub;
+        }
+
+        Builder budget(RequestBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        Builder circuit(int failureThreshold, long openMs, long maxOpenMs) {
+            this.failureThreshold = failureThreshold;
+            this.circuitOpenMs = openMs;
+            this.circuitMaxOpenMs = maxOpenMs;
+            return this;
+        }
+
+        Builder sessions(int sessions) {
+            this.sessions = sessions;
+            return this;
+        }
+
+        Builder searchCache(int maxEntries, long ttlMs) {
+            this.searchCacheEntries = maxEntries;
+            this.searchCacheTtlMs = ttlMs;
+            return this;
+        }
+
+        Builder termId(String termId) {
+            this.termId = termId;
+            return this;
+        }
+
+        Builder userAgent(String userAgent) {
+            this.userAgent = userAgent;
+            return this;
+        }
+
+        Builder registry(MeterRegistry registry) {
+            this.registry = registry;
+            return this;
+        }
+
+        /**
+         * Defaults to an in-memory repository holding {@link #enabledTasks}.
+         */
+        Builder repository(TaskRepository repository) {
+            this.repository = repository;
+            return this;
+        }
+
+        /**
+         * Defaults to running callbacks without a transaction (for the in-memory repository).
+         */
+        Builder transactionTemplate(TransactionTemplate transactionTemplate) {
+            this.transactionTemplate = transactionTemplate;
+            return this;
+        }
+
+        Builder onAlert(Consumer<AlertEvent> onAlert) {
+            this.onAlert = onAlert;
+            return this;
+        }
+
+        Builder historyDir(Path historyDir) {
+            this.historyDir = historyDir;
+            return this;
+        }
+
+        Builder historyLog(StatusHistoryLog historyLog) {
+            this.historyLog = historyLog;
+            return this;
+        }
+
+        Builder eventStream(TaskEventStream eventStream) {
+            this.eventStream = eventStream;
+            return this;
+        }
+
+        Builder cluster(ClusterMembership cluster) {
+            this.cluster = cluster;
+            return this;
+        }
+
+        Builder subscriptions(SubscriptionIndex subscriptions) {
+            this.subscriptions = subscriptions;
+            return this;
+        }
+
+        Builder probe(long fullRefreshMs) {
+            this.probe = true;
+            this.probeFullRefreshMs = fullRefreshMs;
+            return this;
+        }
+
+        Builder refreshFreshnessMs(long freshnessMs) {
+            this.refreshFreshnessMs = freshnessMs;
+            return this;
+        }
+
+        /**
+         * Skips the startup load of section states, e.g. when a WarmStartService restores them.
+         */
+        Builder skipStateLoad() {
+            this.loadStates = false;
+            return this;
+        }
+
+        SchedulerFixture build() {
+            MonitorMetrics metrics = new MonitorMetrics(registry != null ? registry : new SimpleMeterRegistry());
+            HostRateController rateController = new HostRateController(budget, failureThreshold, circuitOpenMs,
+                    circuitMaxOpenMs, 0.125, 0.05);
+            SessionPool sessionPool = new SessionPool(sessions, 2, 900_000, 14_400_000, 0);
+            CourseCrawler crawler = new CourseCrawler(budget, rateController, sessionPool, metrics,
+                    searchCacheEntries, searchCacheTtlMs);
+            ReflectionTestUtils.setField(crawler, "baseUrl", stub.baseUrl());
+            ReflectionTestUtils.setField(crawler, "termId", termId);
+            ReflectionTestUtils.setField(crawler, "subjectId", "266");
+            ReflectionTestUtils.setField(crawler, "userAgent", userAgent);
+            ReflectionTestUtils.setField(crawler, "streamingParser", true);
+
+            TaskRepository tasks = repository;
+            if (tasks == null) {
+                tasks = InMemoryTaskRepository.create();
+                tasks.saveAll(enabledTasks(stub));
+            }
+            StatusHistoryLog log = historyLog;
+            if (log == null) {
+                log = new StatusHistoryLog(historyDir.toString(), false, 1000, 0, 1);
+            }
+
+            AlertDispatcher dispatcher = new AlertDispatcher(null, metrics, 1, 0) {
+                @Override
+                public boolean enqueue(AlertEvent alert) {
+                    onAlert.accept(alert);
+                    return true;
+                }
+            };
+
+            SectionStateTable stateTable = new SectionStateTable();
+            // Zero intervals: every course is due on every cycle
+            PollPlanner planner = new PollPlanner(0, 0, 0, 1, 1, 1, "");
+            CourseRefreshCache refreshCache = new CourseRefreshCache(refreshFreshnessMs, 16);
+            SchedulerService scheduler = new SchedulerService(
+                    crawler,
+                    dispatcher,
+                    tasks,
+                    transactionTemplate != null ? transactionTemplate
+                            : new TransactionTemplate(new NoOpTransactionManager()),
+                    stateTable,
+                    planner,
+                    metrics,
+                    new HistoryService(log, 500),
+                    eventStream != null ? eventStream : new TaskEventStream(64, 1000, 0),
+                    subscriptions,
+                    cluster,
+                    new StatusProbe(crawler, metrics, probe, probeFullRefreshMs, 200),
+                    refreshCache);
+            if (loadStates) {
+                scheduler.loadSectionStates();
+            }
+            return new SchedulerFixture(crawler, sessionPool, metrics, tasks, stateTable, planner, refreshCache,
+                    scheduler);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.RequestBudget;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.stub.StubEnrollmentServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The poller with the bulk status probe on, against the stub server.
+ */
+class StatusProbeTest {
+
+    private static final int COURSES = 40;
+    private static final int SECTIONS = 3;
+
+    @TempDir
+    Path dir;
+
+    private StubEnrollmentServer stub;
+    private SimpleMeterRegistry registry;
+    private SchedulerService scheduler;
+    private final ConcurrentLinkedQueue<String> alerted = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = StubEnrollmentServer.start(COURSES, SECTIONS, StatusMapping.CLOSED);
+        // Course 0 already has a waitlist
+        stub.flip(0, 0, StatusMapping.WAITLISTED);
+        registry = new SimpleMeterRegistry();
+        scheduler = newScheduler(Long.MAX_VALUE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void closedCoursesAreCoveredByOneProbe() {
+        // First sight: every course is fetched and parsed
+        scheduler.monitorTask();
+        assertEquals(COURSES, stub.packageRequests());
+        assertEquals(0, stub.probeRequests());
+
+        // Only the course with seats is fetched; the 39 CLOSED ones share one probe request
+        scheduler.monitorTask();
+        assertEquals(COURSES + 1, stub.packageRequests());
+        assertEquals(1, stub.probeRequests());
+        assertEquals(COURSES - 1, registry.get("monitor.probe.skipped").counter().count());
+
+        stub.flip(17, 2, StatusMapping.OPEN);
+        stub.flip(0, 1, StatusMapping.OPEN);
+        scheduler.monitorTask();
+        assertEquals(COURSES + 3, stub.packageRequests());
+        assertEquals(List.of(stub.sectionId(0, 1), stub.sectionId(17, 2)), alerted.stream().sorted().toList());
+
+        // Course 17 closes again: still fetched once it is known to have seats, then back to the probe
+        stub.flip(17, 2, StatusMapping.CLOSED);
+        scheduler.monitorTask();
+        assertEquals(COURSES + 5, stub.packageRequests());
+        scheduler.monitorTask();
+        assertEquals(COURSES + 6, stub.packageRequests());
+        assertEquals(2, alerted.size());
+    }
+
+    @Test
+    void failedProbeFallsBackToFetchingEveryCourse() {
+        scheduler.monitorTask();
+        stub.setBlocking(1.0, 503, null);
+        scheduler.monitorTask();
+        stub.setBlocking(0, 503, null);
+        long before = stub.packageRequests();
+
+        stub.flip(5, 0, StatusMapping.OPEN);
+        scheduler.monitorTask();
+        assertEquals(List.of(stub.sectionId(5, 0)), List.copyOf(alerted));
+        assertTrue(stub.packageRequests() - before >= 2);
+    }
+
+    @Test
+    void fullRefreshFetchesEveryCourse() {
+        scheduler = newScheduler(0);
+        scheduler.monitorTask();
+        scheduler.monitorTask();
+        assertEquals(2 * COURSES, stub.packageRequests());
+        assertEquals(0, stub.probeRequests());
+    }
+
+    private SchedulerService newScheduler(long fullRefreshMs) {
+        return SchedulerFixture.builder(stub)
+                .budget(new RequestBudget(600_000, 1000, 0))
+                // A single failure opens nothing, so blocked probes stay distinguishable from an open circuit
+                .circuit(100, 60_000, 600_000)
+                .registry(registry)
+                .historyDir(dir.resolve("history"))
+                .probe(fullRefreshMs)
+                .onAlert(alert -> alerted.add(alert.section()))
+                .build()
+                .scheduler();
+    }
+}
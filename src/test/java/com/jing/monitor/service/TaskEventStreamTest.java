@@ -0,0 +1,71 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.model.Task;
+import com.jing.monitor.model.dto.TaskEventDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskEventStreamTest {
+
+    private final TaskEventStream stream = new TaskEventStream(16, 1000, 0);
+
+    @Test
+    void readersResumeAfterTheirCursor() throws InterruptedException {
+        long start = stream.lastSeq();
+        stream.publish(TaskEventStream.SECTION_ADDED, task("60001", StatusMapping.CLOSED));
+        stream.publish(TaskEventStream.STATUS_CHANGED, task("60001", StatusMapping.OPEN));
+        stream.publishCourseRemoved("COMP SCI 577");
+
+        List<TaskEventDto> all = stream.eventsAfter(start, 0);
+        assertEquals(List.of(TaskEventStream.SECTION_ADDED, TaskEventStream.STATUS_CHANGED, TaskEventStream.COURSE_REMOVED),
+                all.stream().map(TaskEventDto::getType).toList());
+        assertEquals(start + 1, all.get(0).getSeq());
+        assertEquals(StatusMapping.OPEN, all.get(1).getTask().getStatus());
+        assertNull(all.get(2).getTask());
+
+        List<TaskEventDto> resumed = stream.eventsAfter(all.get(1).getSeq(), 0);
+        assertEquals(1, resumed.size());
+        assertEquals(TaskEventStream.COURSE_REMOVED, resumed.get(0).getType());
+        assertTrue(stream.eventsAfter(stream.lastSeq(), 0).isEmpty());
+    }
+
+    @Test
+    void overwrittenOrForeignCursorsNeedASnapshot() throws InterruptedException {
+        long start = stream.lastSeq();
+        for (int i = 0; i < 20; i++) {
+            stream.publish(TaskEventStream.TOGGLED, task("60001", StatusMapping.CLOSED));
+        }
+        assertNull(stream.eventsAfter(start, 0));
+        assertEquals(16, stream.eventsAfter(stream.lastSeq() - 16, 0).size());
+        // Cursor from a previous run (smaller) or a different server (larger)
+        assertNull(stream.eventsAfter(1, 0));
+        assertNull(stream.eventsAfter(stream.lastSeq() + 1, 0));
+    }
+
+    @Test
+    void waitingReaderIsWokenByPublish() throws Exception {
+        long cursor = stream.lastSeq();
+        CompletableFuture<List<TaskEventDto>> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return stream.eventsAfter(cursor, 10_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        stream.publish(TaskEventStream.STATUS_CHANGED, task("60002", StatusMapping.WAITLISTED));
+        assertEquals("60002", read.get(5, TimeUnit.SECONDS).get(0).getTask().getSectionId());
+    }
+
+    private static Task task(String sectionId, StatusMapping status) {
+        Task task = new Task("COMP SCI", "577", sectionId, "004289", status);
+        task.setId(Long.parseLong(sectionId));
+        return task;
+    }
+}
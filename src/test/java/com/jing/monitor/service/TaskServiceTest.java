@@ -0,0 +1,242 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.CourseCrawler;
+import com.jing.monitor.core.HostRateController;
+import com.jing.monitor.core.MonitorMetrics;
+import com.jing.monitor.core.RequestBudget;
+import com.jing.monitor.core.SectionStateTable;
+import com.jing.monitor.core.SessionPool;
+import com.jing.monitor.core.SubscriptionIndex;
+import com.jing.monitor.model.AlertEvent;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.model.Task;
+import com.jing.monitor.model.dto.BulkAddRespDto;
+import com.jing.monitor.model.dto.CourseAddResultDto;
+import com.jing.monitor.model.dto.TaskRespDto;
+import com.jing.monitor.repository.SubscriptionRepository;
+import com.jing.monitor.repository.TaskRepository;
+import com.jing.monitor.stub.StubEnrollmentServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private StubEnrollmentServer stub;
+    private TaskRepository repository;
+    private SectionStateTable stateTable;
+    private TaskEventStream eventStream;
+    private SubscriptionIndex subscriptions;
+    // Section ids with a subscription row
+    private final Set<String> subscribedSections = new HashSet<>();
+    private TaskService taskService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = StubEnrollmentServer.start(5, 3, StatusMapping.CLOSED);
+        RequestBudget budget = new RequestBudget(60_000, 100, 0);
+        HostRateController rateController = new HostRateController(budget, 3, 60_000, 600_000, 0.125, 0.05);
+        CourseCrawler crawler = new CourseCrawler(budget, rateController,
+                new SessionPool(1, 2, 900_000, 14_400_000, 0),
+                new MonitorMetrics(new SimpleMeterRegistry()), 16, 60_000);
+        ReflectionTestUtils.setField(crawler, "baseUrl", stub.baseUrl());
+        ReflectionTestUtils.setField(crawler, "termId", "1264");
+        ReflectionTestUtils.setField(crawler, "subjectId", "266");
+        ReflectionTestUtils.setField(crawler, "userAgent", "CourseMonitor-Test");
+
+        repository = InMemoryTaskRepository.create();
+        stateTable = new SectionStateTable();
+        eventStream = new TaskEventStream(64, 1000, 0);
+        subscriptions = new SubscriptionIndex();
+        taskService = new TaskService(crawler, repository, stateTable,
+                new TransactionTemplate(new NoOpTransactionManager()), eventStream, subscriptionRepository(),
+                subscriptions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void bulkAddResolvesEachDistinctNameOnceAndReportsFailuresPerCourse() throws InterruptedException {
+        long cursor = eventStream.lastSeq();
+        String first = "COMP SCI " + StubEnrollmentServer.catalogNumber(1);
+        String second = "COMP SCI " + StubEnrollmentServer.catalogNumber(3);
+
+        BulkAddRespDto resp = awaitBulkAdd(List.of(first, " comp  sci " + StubEnrollmentServer.catalogNumber(1),
+                second, "MATH 999"));
+
+        assertEquals(3, stub.searchRequests());
+        assertEquals(2, resp.getAddedCourses());
+        assertEquals(6, resp.getAddedSections());
+        assertEquals(1, resp.getFailedCourses());
+
+        List<CourseAddResultDto> results = resp.getResults();
+        assertEquals(List.of(first, second, "MATH 999"), results.stream().map(CourseAddResultDto::getCourseName).toList());
+        assertEquals("ADDED", results.get(0).getOutcome());
+        assertEquals(StubEnrollmentServer.courseId(1), results.get(0).getCourseId());
+        assertEquals(stub.sectionId(1, 0), results.get(0).getAdded().get(0).getSectionId());
+        assertEquals("NOT_FOUND", results.get(2).getOutcome());
+        assertNotNull(results.get(2).getMessage());
+
+        assertEquals(6, repository.count());
+        assertTrue(SectionStateTable.isPresent(stateTable.get(SectionStateTable.key(stub.sectionId(3, 2)))));
+        assertFalse(SectionStateTable.isEnabled(stateTable.get(SectionStateTable.key(stub.sectionId(3, 2)))));
+        assertEquals(6, eventStream.eventsAfter(cursor, 0).size());
+    }
+
+    @Test
+    void sectionsAlreadyTrackedAreSkippedNotDuplicated() throws InterruptedException {
+        String course = "COMP SCI " + StubEnrollmentServer.catalogNumber(2);
+        List<TaskRespDto> added = taskService.SearchAndAdd(course);
+        assertEquals(3, added.size());
+        assertEquals(StubEnrollmentServer.courseId(2), added.get(0).getCourseId());
+
+        BulkAddRespDto resp = awaitBulkAdd(List.of(course, "COMP SCI " + StubEnrollmentServer.catalogNumber(4)));
+        assertEquals("ALREADY_TRACKED", resp.getResults().get(0).getOutcome());
+        assertEquals(3, resp.getResults().get(0).getSkippedSections());
+        assertEquals("ADDED", resp.getResults().get(1).getOutcome());
+        assertEquals(6, repository.count());
+        assertTrue(taskService.SearchAndAdd(course).isEmpty());
+    }
+
+    @Test
+    void bulkAddReturnsAtOnceAndReportsCoursesAsTheyResolve() throws InterruptedException {
+        stub.setLatencyMs(300);
+        String first = "COMP SCI " + StubEnrollmentServer.catalogNumber(0);
+        String second = "COMP SCI " + StubEnrollmentServer.catalogNumber(1);
+
+        long start = System.nanoTime();
+        BulkAddRespDto started = taskService.startBulkAdd(List.of(first, second));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+        assertEquals("RUNNING", started.getStatus());
+        assertEquals(2, started.getPendingCourses());
+        assertEquals(List.of("PENDING", "PENDING"),
+                started.getResults().stream().map(CourseAddResultDto::getOutcome).toList());
+
+        BulkAddRespDto done = await(started.getJobId());
+        assertEquals(0, done.getPendingCourses());
+        assertEquals(List.of("ADDED", "ADDED"), done.getResults().stream().map(CourseAddResultDto::getOutcome).toList());
+        assertEquals(6, repository.count());
+
+        assertThrows(RuntimeException.class, () -> taskService.getBulkAddJob("no-such-job"));
+    }
+
+    @Test
+    void exportWritesOneCsvLinePerTask() {
+        taskService.SearchAndAdd("COMP SCI " + StubEnrollmentServer.catalogNumber(0));
+        Task quoted = new Task("MATH, \"HONORS\"", "521", "99001", "000999", StatusMapping.OPEN);
+        repository.save(quoted);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        taskService.exportCsv(out);
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+
+        assertEquals(5, lines.size());
+        assertEquals("id,sectionId,courseId,courseDisplayName,status,enabled", lines.get(0));
+        assertTrue(lines.get(1).endsWith("," + stub.sectionId(0, 0) + ",000001,COMP SCI 100,,false"));
+        assertEquals(quoted.getId() + ",99001,000999,\"MATH, \"\"HONORS\"\" 521\",OPEN,false", lines.get(4));
+    }
+
+    @Test
+    void deletingACourseDropsItsSubscriptionsAndThePollerDoesNotBringItBack() {
+        String course = "COMP SCI " + StubEnrollmentServer.catalogNumber(2);
+        String courseId = StubEnrollmentServer.courseId(2);
+        taskService.SearchAndAdd(course);
+        taskService.SearchAndAdd("COMP SCI " + StubEnrollmentServer.catalogNumber(3));
+        subscribe(stub.sectionId(2, 0), courseId, "a@wisc.edu");
+        subscribe(stub.sectionId(2, 1), courseId, "b@wisc.edu");
+        subscribe(stub.sectionId(3, 0), StubEnrollmentServer.courseId(3), "a@wisc.edu");
+
+        taskService.deleteTask(course);
+        assertEquals(3, repository.count());
+        assertEquals(Set.of(stub.sectionId(3, 0)), subscribedSections);
+        assertEquals(Set.of(StubEnrollmentServer.courseId(3)), subscriptions.courses());
+
+        // A poller that still has the course in its poll set (e.g. another node's index) must not re-add it
+        SubscriptionIndex stale = new SubscriptionIndex();
+        stale.add(stub.sectionId(2, 0), courseId, "a@wisc.edu");
+        List<AlertEvent> alerts = new ArrayList<>();
+        SchedulerService scheduler = SchedulerFixture.builder(stub)
+                .repository(repository)
+                .subscriptions(stale)
+                .historyDir(dir.resolve("history"))
+                .onAlert(alerts::add)
+                .build()
+                .scheduler();
+        stub.flip(2, 0, StatusMapping.OPEN);
+        long fetches = stub.packageRequests();
+        scheduler.monitorTask();
+
+        assertEquals(fetches + 1, stub.packageRequests());
+        assertEquals(3, repository.count());
+        assertTrue(repository.findByCourseDisplayName(course).isEmpty());
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    void unknownSortOrStatusIsRejected() {
+        assertThrows(RuntimeException.class, () -> taskService.getTasks(null, null, null, 0, 50, "password", "asc"));
+        assertThrows(RuntimeException.class, () -> taskService.getTasks(null, "FULL", null, 0, 50, "sectionId", "asc"));
+    }
+
+    private void subscribe(String sectionId, String courseId, String email) {
+        subscribedSections.add(sectionId);
+        subscriptions.add(sectionId, courseId, email);
+    }
+
+    // Only what deleteTask calls
+    private SubscriptionRepository subscriptionRepository() {
+        return (SubscriptionRepository) Proxy.newProxyInstance(SubscriptionRepository.class.getClassLoader(),
+                new Class<?>[]{SubscriptionRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "deleteBySectionIdIn" -> {
+                        int deleted = 0;
+                        for (Object sectionId : (Collection<?>) args[0]) {
+                            deleted += subscribedSections.remove(sectionId) ? 1 : 0;
+                        }
+                        yield deleted;
+                    }
+                    case "toString" -> "SubscriptionRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private BulkAddRespDto awaitBulkAdd(List<String> courseNames) throws InterruptedException {
+        return await(taskService.startBulkAdd(courseNames).getJobId());
+    }
+
+    private BulkAddRespDto await(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        BulkAddRespDto job = taskService.getBulkAddJob(jobId);
+        while (!job.getStatus().equals("DONE")) {
+            assertTrue(System.nanoTime() < deadline, "bulk add " + jobId + " did not finish");
+            Thread.sleep(20);
+            job = taskService.getBulkAddJob(jobId);
+        }
+        return job;
+    }
+}
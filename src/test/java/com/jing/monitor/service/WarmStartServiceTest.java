@@ -0,0 +1,164 @@
+package com.jing.monitor.service;
+
+import com.jing.monitor.core.CourseCrawler;
+import com.jing.monitor.core.PollPlanner;
+import com.jing.monitor.core.SectionStateTable;
+import com.jing.monitor.model.StateSnapshot;
+import com.jing.monitor.model.StatusMapping;
+import com.jing.monitor.repository.StateSnapshotFile;
+import com.jing.monitor.repository.TaskRepository;
+import com.jing.monitor.stub.StubEnrollmentServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmStartServiceTest {
+
+    private static final int COURSES = 6;
+    private static final int SECTIONS = 3;
+
+    @TempDir
+    Path dir;
+
+    private StubEnrollmentServer stub;
+    private TaskRepository repository;
+    private final AtomicInteger tableReads = new AtomicInteger();
+    private final AtomicInteger alerts = new AtomicInteger();
+
+    private record Instance(CourseCrawler crawler, PollPlanner planner, SectionStateTable stateTable,
+                            SchedulerService scheduler, WarmStartService warmStart) {}
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = StubEnrollmentServer.start(COURSES, SECTIONS, StatusMapping.CLOSED);
+        TaskRepository store = InMemoryTaskRepository.create();
+        store.saveAll(SchedulerFixture.enabledTasks(stub));
+        // Counts full-table state loads, the read a clean snapshot is meant to avoid
+        repository = (TaskRepository) Proxy.newProxyInstance(TaskRepository.class.getClassLoader(),
+                new Class<?>[]{TaskRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAllStates")) {
+                        tableReads.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(store, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void cleanShutdownSnapshotRestoresStatesAndValidatorsWithoutReadingTheTable() throws IOException {
+        Instance first = start("1264");
+        assertEquals(1, tableReads.get());
+        first.crawler().setCookies(Map.of("aws-waf-token", "t0k3n"));
+        first.scheduler().monitorTask();
+        assertEquals(COURSES, first.crawler().getCacheStats().getMisses());
+        first.warmStart().saveOnShutdown();
+
+        Instance second = start("1264");
+        assertEquals(1, tableReads.get());
+        assertEquals(COURSES * SECTIONS, second.stateTable().size());
+        assertEquals(first.planner().nextPollAt(StubEnrollmentServer.courseId(0)),
+                second.planner().nextPollAt(StubEnrollmentServer.courseId(0)));
+        assertEquals(List.of("aws-waf-token"),
+                second.crawler().exportCookies(0).stream().map(StateSnapshot.Cookie::name).toList());
+
+        // Same payloads as before the restart: nothing is parsed or written
+        second.scheduler().monitorTask();
+        assertEquals(COURSES, second.crawler().getCacheStats().getFingerprintHits());
+        assertEquals(0, second.crawler().getCacheStats().getMisses());
+        assertEquals(0, alerts.get());
+
+        // Consumed: a crash from here on must not make the next start trust it
+        assertFalse(new StateSnapshotFile(dir.resolve("state.snapshot").toString()).read().clean());
+
+        stub.flip(1, 2, StatusMapping.OPEN);
+        second.scheduler().monitorTask();
+        assertEquals(1, alerts.get());
+    }
+
+    @Test
+    void shutdownDuringARefreshWritesAnUncleanSnapshot() throws Exception {
+        Instance first = start("1264");
+        stub.setLatencyMs(500);
+        // An on-demand refresh runs outside any cycle, on its caller's thread
+        Thread refresh = Thread.ofVirtual().start(
+                () -> first.scheduler().refreshCourse(StubEnrollmentServer.courseId(0)));
+        while (stub.packageRequests() == 0) {
+            Thread.sleep(5);
+        }
+        first.warmStart().saveOnShutdown();
+        StateSnapshotFile file = new StateSnapshotFile(dir.resolve("state.snapshot").toString());
+        assertFalse(file.read().clean());
+
+        refresh.join();
+        first.warmStart().saveOnShutdown();
+        assertTrue(file.read().clean());
+    }
+
+    @Test
+    void periodicSnapshotOnlyRestoresHints() {
+        Instance first = start("1264");
+        first.crawler().setCookies(Map.of("aws-waf-token", "t0k3n"));
+        first.scheduler().monitorTask();
+        first.warmStart().saveSnapshot();
+
+        Instance second = start("1264");
+        assertEquals(2, tableReads.get());
+        assertEquals(1, second.crawler().exportCookies(0).size());
+        assertEquals(first.planner().nextPollAt(StubEnrollmentServer.courseId(0)),
+                second.planner().nextPollAt(StubEnrollmentServer.courseId(0)));
+
+        second.scheduler().monitorTask();
+        assertEquals(0, second.crawler().getCacheStats().getFingerprintHits());
+        assertEquals(COURSES, second.crawler().getCacheStats().getMisses());
+        assertEquals(0, alerts.get());
+    }
+
+    @Test
+    void snapshotOfAnotherTermIsIgnored() {
+        Instance first = start("1264");
+        first.scheduler().monitorTask();
+        first.warmStart().saveOnShutdown();
+
+        Instance second = start("1272");
+        assertEquals(2, tableReads.get());
+        assertEquals(0, second.planner().nextPollAt(StubEnrollmentServer.courseId(0)));
+        assertTrue(second.crawler().exportValidators().isEmpty());
+    }
+
+    private Instance start(String termId) {
+        SchedulerFixture fixture = SchedulerFixture.builder(stub)
+                .termId(termId)
+                .repository(repository)
+                .historyDir(dir.resolve("history"))
+                .onAlert(alert -> alerts.incrementAndGet())
+                // warmUp decides whether the states come from the snapshot or the table
+                .skipStateLoad()
+                .build();
+        WarmStartService warmStart = new WarmStartService(
+                new StateSnapshotFile(dir.resolve("state.snapshot").toString()),
+                fixture.stateTable(), fixture.planner(), fixture.crawler(), fixture.sessions(), fixture.scheduler(),
+                true, 3_600_000);
+        warmStart.warmUp();
+        return new Instance(fixture.crawler(), fixture.planner(), fixture.stateTable(), fixture.scheduler(),
+                warmStart);
+    }
+}
@@ -0,0 +1,450 @@
+package com.jing.monitor.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jing.monitor.model.StatusMapping;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the UW enrollment API, for tests and load runs that must not touch the real service.
+ * * Serves:
+ * 1. GET  /api/search/v1/enrollmentPackages/{term}/{subject}/{courseId}: synthetic packages, same shape as the real API.
+ * 2. POST /api/search/v1: a search response whose hits are the first few synthetic courses, with the course whose
+ *    designation matches the queryString (e.g. "COMP SCI 102") ranked first. Hits list their section ids.
+ *    A search with a courseId "terms" filter is a status probe: its hits are the listed courses that have an
+ *    OPEN or WAITLISTED section, paged by page / pageSize.
+ * * Fault injection (all adjustable while running):
+ * 1. Status flips per section; the injection time is remembered so callers can measure detection latency.
+ * 2. Fixed response latency.
+ * 3. A fraction of requests answered with a block status (429 / 202 / 403 / 503), optionally with Retry-After.
+ * 4. Padding bytes per package to simulate large payloads.
+ * 5. Optional ETag / If-None-Match support (the real API does not send validators, so it is off by default).
+ * Course ids are 000001..N, section ids are 10000 + course index * sectionsPerCourse + section index.
+ */
+public class StubEnrollmentServer implements AutoCloseable {
+
+    private static final String PACKAGES_PATH = "/api/search/v1/enrollmentPackages/";
+    private static final String SEARCH_PATH = "/api/search/v1";
+    private static final StatusMapping[] STATUSES = StatusMapping.values();
+    private static final int FIRST_SECTION_ID = 10000;
+    private static final Pattern QUERY_STRING = Pattern.compile("\"queryString\"\\s*:\\s*\"([^\"]*)\"");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int courses;
+    private final int sectionsPerCourse;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Copy-on-write status ordinals per course, so a response never sees half a flip
+    private final AtomicReferenceArray<byte[]> statuses;
+    private final AtomicIntegerArray versions;
+    // sectionId -> System.nanoTime() of the last injected flip
+    private final ConcurrentHashMap<String, Long> flippedAt = new ConcurrentHashMap<>();
+
+    private volatile long latencyMs;
+    private volatile double blockRate;
+    private volatile int blockStatus = 429;
+    private volatile String retryAfter;
+    private volatile int paddingBytes;
+    private volatile boolean etags;
+    private volatile boolean gzip;
+
+    private final AtomicLong packageRequests = new AtomicLong();
+    private final AtomicLong searchRequests = new AtomicLong();
+    private final AtomicLong probeRequests = new AtomicLong();
+    private final AtomicLong blockedRequests = new AtomicLong();
+    private final AtomicLong notModifiedResponses = new AtomicLong();
+
+    private StubEnrollmentServer(int courses, int sectionsPerCourse, StatusMapping initialStatus) throws IOException {
+        this.courses = courses;
+        this.sectionsPerCourse = sectionsPerCourse;
+        this.statuses = new AtomicReferenceArray<>(courses);
+        this.versions = new AtomicIntegerArray(courses);
+        for (int c = 0; c < courses; c++) {
+            byte[] initial = new byte[sectionsPerCourse];
+            Arrays.fill(initial, (byte) initialStatus.ordinal());
+            statuses.set(c, initial);
+        }
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext(PACKAGES_PATH, this::handlePackages);
+        server.createContext(SEARCH_PATH, this::handleSearch);
+    }
+
+    /**
+     * Starts a server on an ephemeral loopback port with every section in the given status.
+     */
+    public static StubEnrollmentServer start(int courses, int sectionsPerCourse, StatusMapping initialStatus)
+            throws IOException {
+        StubEnrollmentServer stub = new StubEnrollmentServer(courses, sectionsPerCourse, initialStatus);
+        stub.server.start();
+        return stub;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    // ==================== Synthetic catalog ====================
+
+    public int courseCount() {
+        return courses;
+    }
+
+    public int sectionsPerCourse() {
+        return sectionsPerCourse;
+    }
+
+    public static String courseId(int courseIndex) {
+        return String.format("%06d", courseIndex + 1);
+    }
+
+    public String sectionId(int courseIndex, int sectionIndex) {
+        return String.valueOf(FIRST_SECTION_ID + courseIndex * sectionsPerCourse + sectionIndex);
+    }
+
+    public List<String> courseIds() {
+        List<String> ids = new ArrayList<>(courses);
+        for (int c = 0; c < courses; c++) {
+            ids.add(courseId(c));
+        }
+        return ids;
+    }
+
+    public static String catalogNumber(int courseIndex) {
+        return String.valueOf(100 + courseIndex % 900);
+    }
+
+    public StatusMapping status(int courseIndex, int sectionIndex) {
+        return STATUSES[statuses.get(courseIndex)[sectionIndex]];
+    }
+
+    // ==================== Fault injection ====================
+
+    /**
+     * Changes the status the API reports for one section.
+     *
+     * @return The System.nanoTime() at which the flip became visible.
+     */
+    public long flip(int courseIndex, int sectionIndex, StatusMapping status) {
+        // Recorded before the flip is published so a fast poller can never see the flip without its timestamp
+        long now = System.nanoTime();
+        flippedAt.put(sectionId(courseIndex, sectionIndex), now);
+
+        byte[] current;
+        byte[] next;
+        do {
+            current = statuses.get(courseIndex);
+            next = current.clone();
+            next[sectionIndex] = (byte) status.ordinal();
+        } while (!statuses.compareAndSet(courseIndex, current, next));
+        versions.incrementAndGet(courseIndex);
+        return now;
+    }
+
+    /**
+     * @return System.nanoTime() of the last flip of the section, or null if it was never flipped.
+     */
+    public Long flippedAt(String sectionId) {
+        return flippedAt.get(sectionId);
+    }
+
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /**
+     * Answers the given fraction of requests with a block status instead of data.
+     *
+     * @param retryAfter Retry-After header value to send with blocks, or null for none.
+     */
+    public void setBlocking(double rate, int statusCode, String retryAfter) {
+        this.blockStatus = statusCode;
+        this.retryAfter = retryAfter;
+        this.blockRate = rate;
+    }
+
+    public void setPaddingBytes(int paddingBytes) {
+        this.paddingBytes = paddingBytes;
+    }
+
+    public void setEtags(boolean etags) {
+        this.etags = etags;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public long packageRequests() {
+        return packageRequests.get();
+    }
+
+    public long searchRequests() {
+        return searchRequests.get();
+    }
+
+    /**
+     * @return Searches with a courseId filter (also counted in searchRequests).
+     */
+    public long probeRequests() {
+        return probeRequests.get();
+    }
+
+    public long blockedRequests() {
+        return blockedRequests.get();
+    }
+
+    public long notModifiedResponses() {
+        return notModifiedResponses.get();
+    }
+
+    // ==================== Handlers ====================
+
+    private void handlePackages(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            packageRequests.incrementAndGet();
+            if (delayOrBlock(exchange)) {
+                return;
+            }
+
+            // .../enrollmentPackages/{term}/{subject}/{courseId}
+            String path = exchange.getRequestURI().getPath();
+            String courseId = path.substring(path.lastIndexOf('/') + 1);
+            int courseIndex = parseCourseIndex(courseId);
+            if (courseIndex < 0) {
+                // The real API answers unknown courses with an empty array
+                respond(exchange, 200, "[]".getBytes(StandardCharsets.UTF_8), null);
+                return;
+            }
+
+            // Version before statuses: flip() bumps it after publishing, so a tag is never newer than its body
+            int version = versions.get(courseIndex);
+            byte[] snapshot = statuses.get(courseIndex);
+            String etag = etags ? "\"" + courseIndex + "-" + version + "\"" : null;
+            if (etag != null && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedResponses.incrementAndGet();
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            respond(exchange, 200, packagesJson(courseIndex, snapshot), etag);
+        }
+    }
+
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            searchRequests.incrementAndGet();
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (delayOrBlock(exchange)) {
+                return;
+            }
+            if (body.contains("\"terms\"")) {
+                probeRequests.incrementAndGet();
+                respond(exchange, 200, probeJson(MAPPER.readTree(body)), null);
+                return;
+            }
+            Matcher matcher = QUERY_STRING.matcher(body);
+            respond(exchange, 200, searchJson(matchingCourse(matcher.find() ? matcher.group(1) : "")), null);
+        }
+    }
+
+    // Returns true if the request was answered with a block status
+    private boolean delayOrBlock(HttpExchange exchange) throws IOException {
+        long delay = latencyMs;
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        double rate = blockRate;
+        if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            blockedRequests.incrementAndGet();
+            String after = retryAfter;
+            if (after != null) {
+                exchange.getResponseHeaders().set("Retry-After", after);
+            }
+            exchange.sendResponseHeaders(blockStatus, -1);
+            return true;
+        }
+        return false;
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body, String etag) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (gzip && acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip")) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                out.write(body);
+            }
+            body = buffer.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private int parseCourseIndex(String courseId) {
+        try {
+            int index = Integer.parseInt(courseId) - 1;
+            return index >= 0 && index < courses ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ==================== Payloads ====================
+
+    private byte[] packagesJson(int courseIndex, byte[] snapshot) {
+        String courseId = courseId(courseIndex);
+        String catalogNumber = catalogNumber(courseIndex);
+        String padding = paddingBytes > 0 ? "x".repeat(paddingBytes) : null;
+
+        StringBuilder json = new StringBuilder(256 * sectionsPerCourse + (padding == null ? 0 : padding.length()));
+        json.append('[');
+        for (int s = 0; s < sectionsPerCourse; s++) {
+            String sectionId = sectionId(courseIndex, s);
+            if (s > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"1264-266-").append(courseId).append("-1-").append(sectionId).append('"')
+                    .append(",\"termCode\":\"1264\",\"subjectCode\":\"266\",\"courseId\":\"").append(courseId).append('"')
+                    .append(",\"catalogNumber\":\"").append(catalogNumber).append('"')
+                    .append(",\"enrollmentClassNumber\":").append(sectionId)
+                    .append(",\"packageEnrollmentStatus\":{\"status\":\"").append(STATUSES[snapshot[s]].name())
+                    .append("\",\"availableSeats\":0,\"waitlistTotal\":0}")
+                    .append(",\"sections\":[{\"type\":\"LEC\",\"sectionNumber\":\"").append(String.format("%03d", s + 1))
+                    .append("\",\"subject\":{\"termCode\":\"1264\",\"subjectCode\":\"266\",\"shortDescription\":\"COMP SCI\"}}]");
+            if (padding != null) {
+                json.append(",\"notes\":\"").append(padding).append('"');
+            }
+            json.append('}');
+        }
+        json.append(']');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Index of the first course whose designation equals the query, or -1
+    private int matchingCourse(String query) {
+        String normalized = query.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+        if (!normalized.startsWith("COMP SCI ")) {
+            return -1;
+        }
+        for (int c = 0; c < Math.min(courses, 900); c++) {
+            if (normalized.equals("COMP SCI " + catalogNumber(c))) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    // Listed courses with an OPEN or WAITLISTED section, in request order
+    private byte[] probeJson(JsonNode request) {
+        List<Integer> matches = new ArrayList<>();
+        for (JsonNode filter : request.path("filters")) {
+            for (JsonNode id : filter.path("terms").path("courseId")) {
+                int c = parseCourseIndex(id.asText());
+                if (c >= 0 && hasSeats(statuses.get(c))) {
+                    matches.add(c);
+                }
+            }
+        }
+        int pageSize = Math.max(1, request.path("pageSize").asInt(50));
+        int from = Math.max(0, request.path("page").asInt(1) - 1) * pageSize;
+
+        StringBuilder json = new StringBuilder(128 * pageSize);
+        json.append("{\"found\":").append(matches.size()).append(",\"hits\":[");
+        for (int i = from; i < Math.min(matches.size(), from + pageSize); i++) {
+            int c = matches.get(i);
+            json.append(i > from ? "," : "")
+                    .append("{\"termCode\":\"1264\",\"courseId\":\"").append(courseId(c)).append('"')
+                    .append(",\"catalogNumber\":\"").append(catalogNumber(c)).append('"')
+                    .append(",\"courseDesignation\":\"COMP SCI ").append(catalogNumber(c)).append("\"}");
+        }
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean hasSeats(byte[] snapshot) {
+        for (byte status : snapshot) {
+            if (STATUSES[status] != StatusMapping.CLOSED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] searchJson(int first) {
+        int hits = Math.min(courses, 50);
+        StringBuilder json = new StringBuilder(256 * hits);
+        json.append("{\"found\":").append(hits).append(",\"hits\":[");
+        for (int i = 0; i < hits; i++) {
+            // The matching course first, then the others in id order
+            int c = first < 0 ? i : i == 0 ? first : i <= first ? i - 1 : i;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"termCode\":\"1264\",\"courseId\":\"").append(courseId(c)).append('"')
+                    .append(",\"subject\":{\"termCode\":\"1264\",\"subjectCode\":\"266\",\"shortDescription\":\"COMP SCI\"}")
+                    .append(",\"catalogNumber\":\"").append(catalogNumber(c)).append('"')
+                    .append(",\"courseDesignation\":\"COMP SCI ").append(catalogNumber(c)).append('"')
+                    .append(",\"courseRequirements\":{\"").append(courseId(c)).append("=\":[");
+            for (int s = 0; s < sectionsPerCourse; s++) {
+                json.append(s > 0 ? "," : "").append(sectionId(c, s));
+            }
+            json.append("]}}");
+        }
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}